@@ -0,0 +1,69 @@
+package io.github.mazs.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import io.github.mazs.worlds.WorldBuilder;
+import io.github.mazs.worlds.WorldRts;
+
+import java.util.Random;
+
+/**
+ * Headless worlds shared by the benchmarks. Everything is seeded, so every fork measures the same map.
+ */
+final class BenchmarkWorlds {
+    static final long SEED = 12345L;
+
+    private BenchmarkWorlds() {
+    }
+
+    /**
+     * Square map with a tree border and trees on random tiles.
+     *
+     * @param obstacleDensity share of tiles inside the border covered by trees, 0 to 1
+     */
+    static WorldRts withObstacles(int sizeTiles, double obstacleDensity, long seed) {
+        if (obstacleDensity < 0 || obstacleDensity > 1) {
+            throw new IllegalArgumentException("Obstacle density " + obstacleDensity + " is not between 0 and 1");
+        }
+        WorldRts world = new WorldRts(true, sizeTiles, sizeTiles);
+        WorldBuilder builder = world.beginBuild();
+        Random random = new Random(seed);
+        for (int y = 0; y < sizeTiles; y++) {
+            for (int x = 0; x < sizeTiles; x++) {
+                boolean border = x == 0 || y == 0 || x == sizeTiles - 1 || y == sizeTiles - 1;
+                if (border || random.nextDouble() < obstacleDensity) {
+                    builder.addTree(tileCenter(x), tileCenter(y));
+                }
+            }
+        }
+        builder.commit(null);
+        return world;
+    }
+
+    /**
+     * @return center of a random tile that has no unit on it, null when none was found in a few tries
+     */
+    static Vector2 randomFreeTile(WorldRts world, Random random) {
+        return randomFreeTile(world, random, 0, 0, world.getWorldWidthTiles(), world.getWorldHeightTiles());
+    }
+
+    /**
+     * @param fromTileX first tile of the area, inclusive
+     * @param toTileX   last tile of the area, exclusive
+     * @return center of a random tile of the area that has no unit on it, null when none was found in a few tries
+     */
+    static Vector2 randomFreeTile(WorldRts world, Random random, int fromTileX, int fromTileY, int toTileX, int toTileY) {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            int x = fromTileX + random.nextInt(toTileX - fromTileX);
+            int y = fromTileY + random.nextInt(toTileY - fromTileY);
+            Vector2 tile = new Vector2(tileCenter(x), tileCenter(y));
+            if (!world.getSpatialGrid().isBlocked(tile)) {
+                return tile;
+            }
+        }
+        return null;
+    }
+
+    static float tileCenter(int tile) {
+        return tile * WorldRts.TILE_SIZE + WorldRts.TILE_SIZE / 2f;
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.mazs.benchmarks;
+
+import io.github.mazs.movement.hpa.ClustersManager;
+import io.github.mazs.worlds.WorldRts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating gates and gate links of every cluster of the map, what a world pays once when there is no navigation
+ * cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClusterGenerationBenchmark {
+    @Param({"64", "256"})
+    public int mapSizeTiles;
+
+    @Param({"0.05", "0.2"})
+    public double obstacleDensity;
+
+    private WorldRts world;
+    private ClustersManager clustersManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BenchmarkWorlds.withObstacles(mapSizeTiles, obstacleDensity, BenchmarkWorlds.SEED);
+        clustersManager = world.getClustersManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        world.dispose();
+    }
+
+    @Benchmark
+    public int generateClusters() {
+        // drops the clusters generated by the previous invocation first
+        clustersManager.generateClusters();
+        return clustersManager.getGeneratedClusterCount();
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.mazs.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import io.github.mazs.movement.hpa.AStarPathfinder;
+import io.github.mazs.movement.hpa.Cluster;
+import io.github.mazs.movement.hpa.ClustersManager;
+import io.github.mazs.movement.hpa.PathfindingResult;
+import io.github.mazs.worlds.WorldRts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A* searches the way {@link io.github.mazs.movement.hpa.HpaPathFindingStrategy} runs them: inside one cluster
+ * between tiles, and over the gates of the whole map between two random tiles.
+ * Every invocation searches the next of a fixed set of queries that were checked to have a path, so failed searches
+ * don't skew the average.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathfindingBenchmark {
+    private static final int QUERY_COUNT = 64;
+
+    @Param({"64", "256"})
+    public int mapSizeTiles;
+
+    @Param({"0.05", "0.2"})
+    public double obstacleDensity;
+
+    private WorldRts world;
+    private ClustersManager clustersManager;
+    private final List<Cluster> clusterQueryClusters = new ArrayList<>();
+    private final List<Vector2[]> clusterQueries = new ArrayList<>();
+    private final List<Vector2[]> globalQueries = new ArrayList<>();
+    private int clusterQuery = 0;
+    private int globalQuery = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BenchmarkWorlds.withObstacles(mapSizeTiles, obstacleDensity, BenchmarkWorlds.SEED);
+        clustersManager = world.getClustersManager();
+        clustersManager.generateClusters();
+
+        Random random = new Random(BenchmarkWorlds.SEED);
+        int clusterTiles = WorldRts.CLUSTER_SIZE_TILES;
+        int clustersPerSide = (mapSizeTiles + clusterTiles - 1) / clusterTiles;
+        for (int attempt = 0; attempt < QUERY_COUNT * 20 && clusterQueries.size() < QUERY_COUNT; attempt++) {
+            int fromX = random.nextInt(clustersPerSide) * clusterTiles;
+            int fromY = random.nextInt(clustersPerSide) * clusterTiles;
+            int toX = Math.min(fromX + clusterTiles, mapSizeTiles);
+            int toY = Math.min(fromY + clusterTiles, mapSizeTiles);
+            Vector2 start = BenchmarkWorlds.randomFreeTile(world, random, fromX, fromY, toX, toY);
+            Vector2 end = BenchmarkWorlds.randomFreeTile(world, random, fromX, fromY, toX, toY);
+            if (start == null || end == null) {
+                continue;
+            }
+            Cluster cluster = clustersManager.getClusterByTilePosition(start);
+            if (AStarPathfinder.findPath(cluster, start, end).isSuccess()) {
+                clusterQueryClusters.add(cluster);
+                clusterQueries.add(new Vector2[]{start, end});
+            }
+        }
+        for (int attempt = 0; attempt < QUERY_COUNT * 20 && globalQueries.size() < QUERY_COUNT; attempt++) {
+            Vector2 start = BenchmarkWorlds.randomFreeTile(world, random);
+            Vector2 end = BenchmarkWorlds.randomFreeTile(world, random);
+            if (start == null || end == null) {
+                continue;
+            }
+            if (AStarPathfinder.findPath(clustersManager, start, end, ClustersManager.MAX_SEARCH_NODES).isSuccess()) {
+                globalQueries.add(new Vector2[]{start, end});
+            }
+        }
+        if (clusterQueries.isEmpty() || globalQueries.isEmpty()) {
+            throw new IllegalStateException(String.format("No paths found on %d tiles map with obstacle density %.2f",
+                mapSizeTiles, obstacleDensity));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        world.dispose();
+    }
+
+    @Benchmark
+    public PathfindingResult clusterPath() {
+        int i = clusterQuery;
+        clusterQuery = (i + 1) % clusterQueries.size();
+        Vector2[] query = clusterQueries.get(i);
+        return AStarPathfinder.findPath(clusterQueryClusters.get(i), query[0], query[1]);
+    }
+
+    @Benchmark
+    public PathfindingResult globalPath() {
+        Vector2[] query = globalQueries.get(globalQuery);
+        globalQuery = (globalQuery + 1) % globalQueries.size();
+        return AStarPathfinder.findPath(clustersManager, query[0], query[1], ClustersManager.MAX_SEARCH_NODES);
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.mazs.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import io.github.mazs.components.UnitsSpatialHashGrid;
+import io.github.mazs.units.Pawn;
+import io.github.mazs.units.Unit;
+import io.github.mazs.worlds.WorldRts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Moving units between cells of {@link UnitsSpatialHashGrid} and querying it the way culling and selection do.
+ * Pawns cover about a quarter of the map, so queries of the same area find the same number of units whatever the
+ * unit count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialGridBenchmark {
+    private static final int QUERY_COUNT = 256;
+    // world area seen by the camera at default zoom
+    private static final float VIEW_WIDTH = 640f;
+    private static final float VIEW_HEIGHT = 360f;
+
+    @Param({"1000", "10000", "100000"})
+    public int unitCount;
+
+    private WorldRts world;
+    private UnitsSpatialHashGrid grid;
+    private final List<Unit> units = new ArrayList<>();
+    // every other update moves a unit one tile right and the next one back, each move changes the unit's cell
+    private boolean[] movedRight;
+    private int nextUnit = 0;
+
+    private Vector2[] queryCorners;
+    private Vector2[] queryTiles;
+    private int nextQuery = 0;
+    private int visited = 0;
+    private final Consumer<Unit> visitor = unit -> visited++;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int sizeTiles = (int) Math.ceil(Math.sqrt(unitCount * 4.0));
+        world = BenchmarkWorlds.withObstacles(sizeTiles, 0, BenchmarkWorlds.SEED);
+        grid = world.getSpatialGrid();
+
+        Random random = new Random(BenchmarkWorlds.SEED);
+        while (units.size() < unitCount) {
+            // one tile from the right border is free, units step right and back
+            Vector2 tile = BenchmarkWorlds.randomFreeTile(world, random, 1, 1, sizeTiles - 2, sizeTiles - 1);
+            if (tile == null) {
+                throw new IllegalStateException("No free tile for unit " + units.size());
+            }
+            Pawn pawn = new Pawn(world, tile);
+            world.addUnit(pawn);
+            units.add(pawn);
+        }
+        movedRight = new boolean[unitCount];
+
+        float worldSize = sizeTiles * WorldRts.TILE_SIZE;
+        queryCorners = new Vector2[QUERY_COUNT];
+        queryTiles = new Vector2[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryCorners[i] = new Vector2(random.nextFloat() * Math.max(0, worldSize - VIEW_WIDTH),
+                random.nextFloat() * Math.max(0, worldSize - VIEW_HEIGHT));
+            queryTiles[i] = new Vector2(BenchmarkWorlds.tileCenter(random.nextInt(sizeTiles)),
+                BenchmarkWorlds.tileCenter(random.nextInt(sizeTiles)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        world.dispose();
+    }
+
+    @Benchmark
+    public void update() {
+        int i = nextUnit;
+        nextUnit = (i + 1) % unitCount;
+        Unit unit = units.get(i);
+        Vector2 position = unit.getPosition();
+        float step = movedRight[i] ? -WorldRts.TILE_SIZE : WorldRts.TILE_SIZE;
+        movedRight[i] = !movedRight[i];
+        // updates the grid like the spatial index system does after movement
+        unit.setPosition(position.x + step, position.y);
+    }
+
+    @Benchmark
+    public int forEachUnitInView() {
+        Vector2 corner = nextQueryCorner();
+        visited = 0;
+        grid.forEachUnitInRectangle(corner.x, corner.y, corner.x + VIEW_WIDTH, corner.y + VIEW_HEIGHT, visitor);
+        return visited;
+    }
+
+    @Benchmark
+    public List<Unit> findUnitsInView() {
+        Vector2 corner = nextQueryCorner();
+        return grid.findUnitsInRectangle(corner.x, corner.y, corner.x + VIEW_WIDTH, corner.y + VIEW_HEIGHT);
+    }
+
+    @Benchmark
+    public Unit findUnitAt() {
+        Vector2 tile = queryTiles[nextQuery];
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return grid.findUnitAt(tile);
+    }
+
+    private Vector2 nextQueryCorner() {
+        Vector2 corner = queryCorners[nextQuery];
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return corner;
+    }
+}
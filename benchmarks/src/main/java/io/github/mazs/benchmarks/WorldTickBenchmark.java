@@ -0,0 +1,74 @@
+package io.github.mazs.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import io.github.mazs.units.Pawn;
+import io.github.mazs.worlds.SimulationClock;
+import io.github.mazs.worlds.WorldGenerator;
+import io.github.mazs.worlds.WorldRts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One tick of a headless world on the generated test map, with pawns patrolling between random tiles so they keep
+ * searching paths and moving for the whole run. The world goes on from tick to tick, like in the game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldTickBenchmark {
+    @Param({"64", "256"})
+    public int mapSizeTiles;
+
+    @Param({"10", "100", "1000"})
+    public int pawnCount;
+
+    private WorldRts world;
+    private float tickDuration;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tickDuration = new SimulationClock().getTickDuration();
+        world = new WorldRts(true, mapSizeTiles, mapSizeTiles);
+        new WorldGenerator(BenchmarkWorlds.SEED).generate(world);
+        world.getClustersManager().generateClusters();
+
+        Random random = new Random(BenchmarkWorlds.SEED);
+        for (int i = 0; i < pawnCount; i++) {
+            Vector2 spawn = BenchmarkWorlds.randomFreeTile(world, random);
+            Vector2 target = BenchmarkWorlds.randomFreeTile(world, random);
+            if (spawn == null || target == null) {
+                throw new IllegalStateException("No free tile for pawn " + i);
+            }
+            Pawn pawn = new Pawn(world, spawn);
+            pawn.patrol(target);
+            world.addUnit(pawn);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        world.dispose();
+    }
+
+    @Benchmark
+    public void tick() {
+        world.update(tickDuration);
+    }
+}
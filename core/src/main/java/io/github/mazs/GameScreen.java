@@ -1,237 +1,376 @@
 package io.github.mazs;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.github.mazs.commands.ReplayRecorder;
+import io.github.mazs.components.MinimapComponent;
 import io.github.mazs.components.StatsComponent;
+import io.github.mazs.controllers.LockedInputProcessor;
 import io.github.mazs.controllers.RtsController;
-import io.github.mazs.movement.hpa.Cluster;
-import io.github.mazs.movement.hpa.ClustersManager;
-import io.github.mazs.movement.hpa.Gate;
+import io.github.mazs.metrics.MetricsOptions;
+import io.github.mazs.metrics.MetricsRegistry;
+import io.github.mazs.metrics.MetricsReporter;
+import io.github.mazs.movement.hpa.NavigationCache;
+import io.github.mazs.net.LockstepSession;
+import io.github.mazs.net.NetworkOptions;
+import io.github.mazs.net.StateClient;
+import io.github.mazs.net.WebSocketTransport;
+import io.github.mazs.net.WorldInfo;
 import io.github.mazs.units.Pawn;
-import io.github.mazs.units.Tree;
-import io.github.mazs.units.Unit;
+import io.github.mazs.worlds.MapFile;
+import io.github.mazs.worlds.RenderSnapshot;
+import io.github.mazs.worlds.SimulationClock;
+import io.github.mazs.worlds.SimulationRunner;
+import io.github.mazs.worlds.WorldGenerator;
 import io.github.mazs.worlds.WorldRts;
 
+import java.io.IOException;
 import java.util.List;
-import java.util.Random;
 
 public class GameScreen implements Screen {
+    private static final String TAG = "GameScreen";
+    // longer side of the minimap on screen
+    private static final float MINIMAP_SIZE = 200f;
+    private static final float MARGIN = 10f;
+
     private final Main game;
     private OrthographicCamera uiCamera;
 
     private WorldRts world;
+    private SimulationClock clock;
 
     private RtsController rtsController;
     private StatsComponent stats;
+    private MinimapComponent minimap;
+    // at most one of them is set, none in single player
+    private LockstepSession lockstep;
+    private StateClient stateClient;
+    private ReplayRecorder replayRecorder;
+    // set when the world ticks on its own thread, the screen then draws its snapshots
+    private SimulationRunner simulation;
+    // null unless the launcher asked for metrics
+    private MetricsReporter metrics;
 
     public GameScreen(Main game) {
         this.game = game;
     }
 
-    private static final long OBSTACLE_SEED = 12345L;
+    private static final int SIMULATION_TICK_RATE = SimulationClock.DEFAULT_TICK_RATE;
+    private static final int MAX_TICKS_PER_FRAME = SimulationClock.DEFAULT_MAX_TICKS_PER_FRAME;
 
-    /**
-     * Create tree border and random obstacle patterns (T, L, I shapes) in each cluster.
-     */
-    private void createObstaclePatterns(WorldRts world) {
-        final int TILE = WorldRts.TILE_SIZE;
-        final int mapWidthTiles = world.getWorldWidthTiles();
-        final int mapHeightTiles = world.getWorldHeightTiles();
-
-        // Tree border around the map
-        createBorder(world, TILE, mapWidthTiles, mapHeightTiles);
-
-        // Generate random obstacles in each cluster
-        Random random = new Random(OBSTACLE_SEED);
-        int clusterSize = 10; // tiles per cluster
-        int clustersX = (int) Math.ceil((double) mapWidthTiles / clusterSize);
-        int clustersY = (int) Math.ceil((double) mapHeightTiles / clusterSize);
-
-        for (int cx = 0; cx < clustersX; cx++) {
-            for (int cy = 0; cy < clustersY; cy++) {
-                int obstacleCount = 1 + random.nextInt(5); // 1-3 obstacles per cluster
-                for (int o = 0; o < obstacleCount; o++) {
-                    createRandomObstacle(world, random, cx, cy, clusterSize, TILE, clustersX, clustersY);
-                }
-            }
+    @Override
+    public void show() {
+        uiCamera = new OrthographicCamera();
+        uiCamera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+        clock = new SimulationClock(SIMULATION_TICK_RATE, MAX_TICKS_PER_FRAME);
+
+        NetworkOptions networkOptions = game.getNetworkOptions();
+        if (networkOptions != null && networkOptions.mode == NetworkOptions.Mode.CLIENT) {
+            // the replica is built by render() once the server said which world it runs
+            stateClient = new StateClient(new WebSocketTransport(networkOptions.url));
+            return;
         }
+        start(null);
     }
 
-    private void createBorder(WorldRts world, int TILE, int mapWidthTiles, int mapHeightTiles) {
-        // Bottom border
-        for (int x = 0; x < mapWidthTiles; x++) {
-            world.addUnit(new Tree(world, x * TILE + TILE / 2f, TILE / 2f));
-        }
-        // Top border
-        for (int x = 0; x < mapWidthTiles; x++) {
-            world.addUnit(new Tree(world, x * TILE + TILE / 2f, (mapHeightTiles - 1) * TILE + TILE / 2f));
-        }
-        // Left border (excluding corners)
-        for (int y = 1; y < mapHeightTiles - 1; y++) {
-            world.addUnit(new Tree(world, TILE / 2f, y * TILE + TILE / 2f));
-        }
-        // Right border (excluding corners)
-        for (int y = 1; y < mapHeightTiles - 1; y++) {
-            world.addUnit(new Tree(world, (mapWidthTiles - 1) * TILE + TILE / 2f, y * TILE + TILE / 2f));
+    /**
+     * Builds the world and everything around it.
+     *
+     * @param serverWorld world of the authoritative server this client follows, null otherwise
+     */
+    private void start(WorldInfo serverWorld) {
+        WorldGenerator generator = null;
+        if (serverWorld != null && serverWorld.isGenerated()) {
+            world = new WorldRts(game.assets, serverWorld.getWidthTiles(), serverWorld.getHeightTiles());
+            generator = new WorldGenerator(serverWorld.getSeed());
+            generator.setNavigationCache(game.getPlatform().createNavigationCache());
+            generator.generate(world);
+        } else if (game.getMapPath() != null) {
+            world = loadMap(game.getMapPath());
+        } else {
+            world = new WorldRts(game.assets, WorldRts.DEFAULT_WORLD_SIZE_TILES, WorldRts.DEFAULT_WORLD_SIZE_TILES);
+            generator = new WorldGenerator();
+            generator.setNavigationCache(game.getPlatform().createNavigationCache());
+            generator.generate(world);
         }
-    }
 
-    private void createRandomObstacle(WorldRts world, Random random, int clusterX, int clusterY,
-                                       int clusterSize, int TILE, int clustersX, int clustersY) {
-        // Calculate cluster bounds in world coordinates
-        float clusterStartX = clusterX * clusterSize * TILE;
-        float clusterStartY = clusterY * clusterSize * TILE;
+        stats = new StatsComponent(game.getPlatform().createMemoryProbe());
+        rtsController = new RtsController(world, stats);
+        minimap = new MinimapComponent(world);
 
-        // Adjust margins for edge clusters (extra margin near world borders)
-        int marginLeft = (clusterX == 0) ? 3 : 2;
-        int marginRight = (clusterX == clustersX - 1) ? 3 : 2;
-        int marginBottom = (clusterY == 0) ? 3 : 2;
-        int marginTop = (clusterY == clustersY - 1) ? 3 : 2;
+        if (generator != null) {
+            // Spawn units at gates of first clusters to avoid border trees
+            List<Pawn> pawns = generator.spawnPawns(world);
+            rtsController.addSelectedUnit(pawns.get(0));
+        } else {
+            selectFirstPawn();
+        }
 
-        int availableX = clusterSize - marginLeft - marginRight;
-        int availableY = clusterSize - marginBottom - marginTop;
+        NetworkOptions networkOptions = game.getNetworkOptions();
+        if (stateClient != null) {
+            world.setReplica(true);
+            stateClient.start(world);
+            rtsController.setCommandSink(stateClient);
+        } else if (networkOptions != null && networkOptions.mode == NetworkOptions.Mode.LOCKSTEP) {
+            lockstep = new LockstepSession(new WebSocketTransport(networkOptions.url), networkOptions);
+            rtsController.setCommandSink(lockstep);
+        }
 
-        // Skip if not enough space
-        if (availableX < 2 || availableY < 2) {
-            return;
+        if (game.getReplayPath() != null) {
+            if (generator != null) {
+                startRecording(game.getReplayPath(), generator.getObstacleSeed());
+            } else {
+                Gdx.app.error(TAG, "Replays start from the generated map, can't record on a map file");
+            }
         }
 
-        float x = clusterStartX + (marginLeft + random.nextInt(availableX)) * TILE + TILE / 2f;
-        float y = clusterStartY + (marginBottom + random.nextInt(availableY)) * TILE + TILE / 2f;
+        if (game.isSimulationThread()) {
+            if (lockstep != null || stateClient != null) {
+                Gdx.app.error(TAG, "Multiplayer ticks with the network, simulation stays on the render thread");
+            } else {
+                simulation = game.getPlatform().createSimulationRunner(world, clock);
+                if (simulation == null) {
+                    Gdx.app.error(TAG, "Platform has no threads, simulation stays on the render thread");
+                }
+            }
+        }
 
-        int shapeType = random.nextInt(3); // 0=T, 1=L, 2=I
-        int size = 2 + random.nextInt(3); // 2-4 tiles
+        if (simulation == null) {
+            // systems of ticks and steps of rendering show up as scopes of the stats, the world is on this thread
+            world.setProfiler(stats);
+        }
+        if (game.getMetricsOptions() != null) {
+            startMetrics(game.getMetricsOptions());
+        }
 
-        switch (shapeType) {
-            case 0: createTShape(world, x, y, size, TILE, random.nextBoolean()); break;
-            case 1: createLShape(world, x, y, size, TILE, random.nextInt(4)); break;
-            case 2: createIShape(world, x, y, size, TILE, random.nextBoolean()); break;
+        InputProcessor input = rtsController.createInputAdapter();
+        if (simulation != null) {
+            // selection and orders touch the world between ticks
+            input = new LockedInputProcessor(input, simulation.getLock());
+            simulation.start(rtsController.getVisibleArea());
         }
+        Gdx.input.setInputProcessor(input);
+        rtsController.getViewport().update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), true);
     }
 
-    private void createTShape(WorldRts world, float x, float y, int size, int TILE, boolean vertical) {
-        if (vertical) {
-            // Vertical T
-            for (int i = 0; i < size; i++) {
-                world.addUnit(new Tree(world, x, y + i * TILE));
-            }
-            for (int i = 1; i <= size / 2; i++) {
-                world.addUnit(new Tree(world, x - i * TILE, y + (size / 2) * TILE));
-                world.addUnit(new Tree(world, x + i * TILE, y + (size / 2) * TILE));
-            }
-        } else {
-            // Horizontal T
-            for (int i = 0; i < size; i++) {
-                world.addUnit(new Tree(world, x + i * TILE, y));
-            }
-            for (int i = 1; i <= size / 2; i++) {
-                world.addUnit(new Tree(world, x + (size / 2) * TILE, y - i * TILE));
-                world.addUnit(new Tree(world, x + (size / 2) * TILE, y + i * TILE));
+    private WorldRts loadMap(String path) {
+        try {
+            WorldRts loaded = MapFile.load(Gdx.files.internal(path), game.assets);
+            NavigationCache navigationCache = game.getPlatform().createNavigationCache();
+            if (navigationCache != null) {
+                navigationCache.loadOrGenerate(loaded.getClustersManager());
             }
+            return loaded;
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Can't load map " + path, e);
         }
     }
 
-    private void createLShape(WorldRts world, float x, float y, int size, int TILE, int rotation) {
-        // rotation: 0=normal, 1=90deg, 2=180deg, 3=270deg
-        int dx1 = 0, dy1 = 1, dx2 = 1, dy2 = 0;
-        switch (rotation) {
-            case 1: dx1 = -1; dy1 = 0; dx2 = 0; dy2 = 1; break;
-            case 2: dx1 = 0; dy1 = -1; dx2 = -1; dy2 = 0; break;
-            case 3: dx1 = 1; dy1 = 0; dx2 = 0; dy2 = -1; break;
+    private void selectFirstPawn() {
+        Pawn[] first = new Pawn[1];
+        world.forEachUnit(unit -> {
+            if (first[0] == null && unit instanceof Pawn) {
+                first[0] = (Pawn) unit;
+            }
+        });
+        if (first[0] != null) {
+            rtsController.addSelectedUnit(first[0]);
         }
+    }
 
-        for (int i = 0; i < size; i++) {
-            world.addUnit(new Tree(world, x + dx1 * i * TILE, y + dy1 * i * TILE));
+    private void startRecording(String path, long seed) {
+        if (stateClient != null) {
+            // commands are executed by the server, the replica has nothing to record
+            Gdx.app.error(TAG, "Can't record a replay of a client of an authoritative server");
+            return;
         }
-        for (int i = 1; i < size; i++) {
-            world.addUnit(new Tree(world, x + dx2 * i * TILE, y + dy2 * i * TILE));
+        try {
+            replayRecorder = new ReplayRecorder(Gdx.files.absolute(path).write(false), seed,
+                world.getWorldWidthTiles(), world.getWorldHeightTiles(), SIMULATION_TICK_RATE);
+            world.setReplayRecorder(replayRecorder);
+            Gdx.app.log(TAG, "Recording replay to " + path);
+        } catch (IOException | RuntimeException e) {
+            Gdx.app.error(TAG, "Can't record replay to " + path, e);
         }
     }
 
-    private void createIShape(WorldRts world, float x, float y, int size, int TILE, boolean vertical) {
-        for (int i = 0; i < size; i++) {
-            if (vertical) {
-                world.addUnit(new Tree(world, x, y + i * TILE));
-            } else {
-                world.addUnit(new Tree(world, x + i * TILE, y));
-            }
+    private void startMetrics(MetricsOptions options) {
+        try {
+            metrics = new MetricsReporter(options);
+        } catch (IOException | RuntimeException e) {
+            Gdx.app.error(TAG, "Can't start metrics", e);
+            return;
+        }
+        metrics.addWorld(world);
+        MetricsRegistry registry = metrics.getRegistry();
+        registry.gauge("frame.fps", stats::getFps);
+        registry.gauge("frame.ms", stats::getTotalFrameTimeMs);
+        registry.gauge("frame.p99_ms", () -> stats.getFramePercentileMs(0.99f));
+        registry.gauge("frame.update_ms", stats::getUpdateTimeMs);
+        registry.gauge("frame.render_ms", stats::getRenderTimeMs);
+        registry.gauge("frame.allocated_kb", stats::getAllocatedKbPerFrame);
+        registry.gauge("frame.drawn_units", world::getDrawnUnitCount);
+        if (simulation != null) {
+            registry.gauge("simulation.tick_ms", simulation::getTickTimeMs);
         }
     }
 
     @Override
-    public void show() {
-        uiCamera = new OrthographicCamera();
-        uiCamera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-
-        world = new WorldRts();
-
-        // Create obstacle patterns for testing pathfinding
-        createObstaclePatterns(world);
+    public void render(float delta) {
+        if (world == null) {
+            WorldInfo serverWorld = stateClient.pollServerWorld();
+            ScreenUtils.clear(0.2f, 0.4f, 0.2f, 1f);
+            if (serverWorld != null) {
+                Gdx.app.log(TAG, "Server runs a " + serverWorld);
+                start(serverWorld);
+            }
+            return;
+        }
+        if (simulation != null) {
+            renderSnapshot(delta);
+            return;
+        }
+        stats.beginFrame();
 
-        // Generate clusters after obstacles are placed
-        world.getClustersManager().generateClusters();
+        ScreenUtils.clear(0.2f, 0.4f, 0.2f, 1f);
 
-        stats = new StatsComponent();
-        rtsController = new RtsController(world, stats);
+        stats.beginUpdate();
+        rtsController.update(delta);
+        if (stateClient != null) {
+            stateClient.setView(rtsController.getVisibleArea());
+            stateClient.update();
+        }
+        int ticks = clock.advance(delta);
+        stats.begin("Simulation");
+        for (int i = 0; i < ticks; i++) {
+            if (lockstep != null && !lockstep.applyNextTick(world)) {
+                // waiting for other players, the world stays at the last tick
+                break;
+            }
+            world.update(clock.getTickDuration());
+        }
+        stats.end();
+        if (metrics != null) {
+            metrics.update();
+        }
+        stats.endUpdate();
 
-        // Spawn unit at first gate of cluster (1,1) to avoid border trees
-        ClustersManager cm = world.getClustersManager();
+        rtsController.getCamera().update();
+        game.batch.setProjectionMatrix(rtsController.getCamera().combined);
 
-        Gate gate000 = cm.getCluster(0,0).getGates().get(0);
-        Unit pawn1 = new Pawn(world, gate000.getMiddlePoint());
-        world.addUnit(pawn1);
-        rtsController.addSelectedUnit(pawn1);
+        stats.beginRender();
+        stats.begin("Terrain");
+        world.renderTerrain(rtsController.getCamera().combined, rtsController.getVisibleArea());
+        stats.end();
+        game.batch.begin();
+        world.render(game.batch, clock.getAlpha(), rtsController.getVisibleArea());
+        rtsController.render(game.batch);
+        // flushes what is left of the world pass
+        stats.begin("Draw");
+        game.batch.end();
+        stats.end();
+        stats.setBatchCounts(game.batch.renderCalls, game.batch.getTextureSwitches());
+        stats.begin("Debug");
+        world.renderDebug(game.batch, rtsController.getCamera().combined);
+        stats.end();
+        stats.endRender();
+        stats.setCulling(world.getDrawnUnitCount(), world.getCulledUnitCount(),
+            world.getDrawnTileCount(), world.getCulledTileCount());
 
-        Gate gate001 = cm.getCluster(0,0).getGates().get(1);
-        Gate gate102 = cm.getCluster(1,0).getGates().get(3);
-        Pawn pawn2 = new Pawn(world, gate001.getMiddlePoint());
-        pawn2.patrol(gate102.getMiddlePoint());
-        world.addUnit(pawn2);
+        // uploads changed pixels, outside of the batch
+        stats.begin("Minimap");
+        minimap.update(delta);
+        stats.end();
 
-        Pawn pawn3 = new Pawn(world, gate102.getMiddlePoint());
-        pawn3.patrol(gate001.getMiddlePoint());
-        world.addUnit(pawn3);
+        // Render stats in screen coordinates
+        stats.begin("Overlay");
+        uiCamera.update();
+        game.batch.setProjectionMatrix(uiCamera.combined);
+        game.batch.begin();
+        stats.render(game.batch, MARGIN, Gdx.graphics.getHeight() - MARGIN);
+        minimap.render(game.batch, Gdx.graphics.getWidth() - MINIMAP_SIZE - MARGIN, MARGIN, MINIMAP_SIZE,
+            rtsController.getVisibleArea());
+        game.batch.end();
+        stats.end();
 
-        Gdx.input.setInputProcessor(rtsController.createInputAdapter());
+        stats.endFrame();
     }
 
-    @Override
-    public void render(float delta) {
+    /**
+     * Frame of a world simulated by a {@link SimulationRunner}, draws its newest snapshot and only locks the world for
+     * debug and the minimap.
+     */
+    private void renderSnapshot(float delta) {
         stats.beginFrame();
 
         ScreenUtils.clear(0.2f, 0.4f, 0.2f, 1f);
 
         stats.beginUpdate();
         rtsController.update(delta);
-        world.update(delta);
+        simulation.setView(rtsController.getVisibleArea());
+        RenderSnapshot snapshot = simulation.acquireSnapshot();
         stats.endUpdate();
+        stats.setSimulationTickTime(simulation.getTickTimeMs());
 
         rtsController.getCamera().update();
         game.batch.setProjectionMatrix(rtsController.getCamera().combined);
 
         stats.beginRender();
+        stats.begin("Terrain");
+        world.renderTerrain(rtsController.getCamera().combined, rtsController.getVisibleArea());
+        stats.end();
+        stats.begin("Draw");
         game.batch.begin();
-        world.render(game.batch);
+        snapshot.render(game.batch, snapshot.getAlpha(TimeUtils.nanoTime()));
         rtsController.render(game.batch);
         game.batch.end();
+        stats.end();
+        stats.setBatchCounts(game.batch.renderCalls, game.batch.getTextureSwitches());
+        if (world.debug) {
+            stats.begin("Debug");
+            synchronized (simulation.getLock()) {
+                world.queueDebug(rtsController.getVisibleArea());
+                world.renderDebug(game.batch, rtsController.getCamera().combined);
+            }
+            stats.end();
+        }
         stats.endRender();
+        stats.setCulling(snapshot.getUnitCount(), snapshot.getCulledUnitCount(),
+            world.getDrawnTileCount(), world.getCulledTileCount());
+
+        stats.begin("Minimap");
+        synchronized (simulation.getLock()) {
+            minimap.update(delta);
+            if (metrics != null) {
+                metrics.update();
+            }
+        }
+        stats.end();
 
-        // Render stats in screen coordinates
+        stats.begin("Overlay");
         uiCamera.update();
         game.batch.setProjectionMatrix(uiCamera.combined);
         game.batch.begin();
-        stats.render(game.batch, 10, Gdx.graphics.getHeight() - 10);
+        stats.render(game.batch, MARGIN, Gdx.graphics.getHeight() - MARGIN);
+        minimap.render(game.batch, Gdx.graphics.getWidth() - MINIMAP_SIZE - MARGIN, MARGIN, MINIMAP_SIZE,
+            rtsController.getVisibleArea());
         game.batch.end();
+        stats.end();
 
         stats.endFrame();
     }
 
     @Override
     public void resize(int width, int height) {
-        rtsController.getViewport().update(width, height, true);
+        if (rtsController != null) {
+            rtsController.getViewport().update(width, height, true);
+        }
         uiCamera.setToOrtho(false, width, height);
         uiCamera.update();
     }
@@ -250,6 +389,30 @@ public class GameScreen implements Screen {
 
     @Override
     public void dispose() {
+        if (simulation != null) {
+            simulation.dispose();
+        }
+        if (metrics != null) {
+            metrics.dispose();
+        }
+        if (replayRecorder != null) {
+            try {
+                replayRecorder.finish(world.getTick());
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Can't finish replay", e);
+            }
+        }
+        if (lockstep != null) {
+            lockstep.dispose();
+        }
+        if (stateClient != null) {
+            stateClient.dispose();
+        }
+        if (world == null) {
+            // still waiting for the server
+            return;
+        }
+        minimap.dispose();
         world.dispose();
         rtsController.dispose();
         stats.dispose();
@@ -0,0 +1,90 @@
+package io.github.mazs;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Shown until assets the game needs are loaded, see {@link io.github.mazs.components.AssertsManager#queuePreload()},
+ * then replaced by {@link GameScreen}. Loading gets a slice of every frame, so the window keeps responding and shows
+ * progress while images are decoded in the background.
+ */
+public class LoadingScreen implements Screen {
+    private static final String TAG = "LoadingScreen";
+    // time per frame spent on loading, the rest of the frame draws progress
+    private static final int LOAD_MILLIS_PER_FRAME = 12;
+    private static final float BAR_WIDTH = 400f;
+    private static final float BAR_HEIGHT = 12f;
+
+    private final Main game;
+    private OrthographicCamera camera;
+    private BitmapFont font;
+    private long startTime;
+
+    public LoadingScreen(Main game) {
+        this.game = game;
+    }
+
+    @Override
+    public void show() {
+        camera = new OrthographicCamera();
+        camera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        font = new BitmapFont();
+        startTime = TimeUtils.millis();
+        game.assets.queuePreload();
+    }
+
+    @Override
+    public void render(float delta) {
+        if (game.assets.update(LOAD_MILLIS_PER_FRAME)) {
+            Gdx.app.log(TAG, String.format("Assets loaded in %d ms", TimeUtils.timeSinceMillis(startTime)));
+            game.setScreen(new GameScreen(game));
+            return;
+        }
+
+        ScreenUtils.clear(0.1f, 0.1f, 0.1f, 1f);
+        float progress = game.assets.getProgress();
+        float x = (camera.viewportWidth - BAR_WIDTH) / 2f;
+        float y = camera.viewportHeight / 2f;
+        Texture whitePixel = game.assets.getWhitePixel();
+
+        camera.update();
+        game.batch.setProjectionMatrix(camera.combined);
+        game.batch.begin();
+        game.batch.setColor(0.3f, 0.3f, 0.3f, 1f);
+        game.batch.draw(whitePixel, x, y, BAR_WIDTH, BAR_HEIGHT);
+        game.batch.setColor(0.33f, 0.55f, 0.25f, 1f);
+        game.batch.draw(whitePixel, x, y, BAR_WIDTH * progress, BAR_HEIGHT);
+        game.batch.setColor(Color.WHITE);
+        font.draw(game.batch, String.format("Loading %d%%", (int) (progress * 100)), x, y + BAR_HEIGHT + 24);
+        game.batch.end();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        camera.setToOrtho(false, width, height);
+    }
+
+    @Override
+    public void pause() {
+    }
+
+    @Override
+    public void resume() {
+    }
+
+    @Override
+    public void hide() {
+        dispose();
+    }
+
+    @Override
+    public void dispose() {
+        font.dispose();
+    }
+}
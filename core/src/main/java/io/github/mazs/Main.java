@@ -1,20 +1,80 @@
 package io.github.mazs;
 
 import com.badlogic.gdx.Game;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import io.github.mazs.components.AssertsManager;
+import io.github.mazs.components.CountingSpriteBatch;
+import io.github.mazs.metrics.MetricsOptions;
+import io.github.mazs.net.NetworkOptions;
 
 public class Main extends Game {
-    public SpriteBatch batch;
+    public CountingSpriteBatch batch;
+    // loaded by the loading screen, shared by worlds of the game
+    public AssertsManager assets;
+    private final Platform platform;
+    private final NetworkOptions networkOptions;
+    private final String replayPath;
+    private final String mapPath;
+    private final boolean simulationThread;
+    private final MetricsOptions metricsOptions;
+
+    public Main() {
+        this(Platform.NONE, null, null, null, false, null);
+    }
+
+    /**
+     * @param platform         services the platform has beyond libGDX
+     * @param networkOptions   how to join a multiplayer match, null for single player
+     * @param replayPath       file to record commands of the session to, null to not record
+     * @param mapPath          map file to play on, see {@link io.github.mazs.worlds.MapFile}, null for the generated map
+     * @param simulationThread runs single player simulation on its own thread, see
+     *                         {@link io.github.mazs.worlds.SimulationRunner}, where the platform has threads
+     * @param metricsOptions   where to write and serve metrics of the session, null to not collect them
+     */
+    public Main(Platform platform, NetworkOptions networkOptions, String replayPath, String mapPath,
+                boolean simulationThread, MetricsOptions metricsOptions) {
+        this.platform = platform;
+        this.networkOptions = networkOptions;
+        this.replayPath = replayPath;
+        this.mapPath = mapPath;
+        this.simulationThread = simulationThread;
+        this.metricsOptions = metricsOptions;
+    }
 
     @Override
     public void create() {
-        batch = new SpriteBatch();
-        setScreen(new GameScreen(this));
+        batch = new CountingSpriteBatch();
+        assets = new AssertsManager(false);
+        setScreen(new LoadingScreen(this));
+    }
+
+    public Platform getPlatform() {
+        return platform;
+    }
+
+    public NetworkOptions getNetworkOptions() {
+        return networkOptions;
+    }
+
+    public String getReplayPath() {
+        return replayPath;
+    }
+
+    public String getMapPath() {
+        return mapPath;
+    }
+
+    public boolean isSimulationThread() {
+        return simulationThread;
+    }
+
+    public MetricsOptions getMetricsOptions() {
+        return metricsOptions;
     }
 
     @Override
     public void dispose() {
         batch.dispose();
         super.dispose();
+        assets.dispose();
     }
 }
@@ -0,0 +1,39 @@
+package io.github.mazs;
+
+import io.github.mazs.components.MemoryProbe;
+import io.github.mazs.movement.hpa.NavigationCache;
+import io.github.mazs.worlds.SimulationClock;
+import io.github.mazs.worlds.SimulationRunner;
+import io.github.mazs.worlds.WorldRts;
+
+/**
+ * Services of the platform the game runs on that core can't rely on. Core is also compiled for the browser by GWT,
+ * which has no file channels, threads or management beans, so desktop and headless launchers pass an implementation
+ * from the jvm module. Every default leaves the feature out.
+ */
+public interface Platform {
+    Platform NONE = new Platform() {
+    };
+
+    /**
+     * @return cache of generated cluster graphs, null to always generate them
+     */
+    default NavigationCache createNavigationCache() {
+        return null;
+    }
+
+    /**
+     * @param world rendered world ticked by the runner, see {@link WorldRts#snapshot}
+     * @return runner of ticks on a thread of its own, null when the platform has no threads
+     */
+    default SimulationRunner createSimulationRunner(WorldRts world, SimulationClock clock) {
+        return null;
+    }
+
+    /**
+     * @return reader of allocations and garbage collections for the stats overlay
+     */
+    default MemoryProbe createMemoryProbe() {
+        return MemoryProbe.NONE;
+    }
+}
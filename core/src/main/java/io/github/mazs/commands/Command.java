@@ -0,0 +1,35 @@
+package io.github.mazs.commands;
+
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Player order that changes the simulation. Commands refer to units by {@link io.github.mazs.units.Unit#getId()},
+ * so the same command can be applied to every copy of the world.
+ */
+public interface Command {
+    byte TYPE_MOVE = 1;
+
+    byte getType();
+
+    /**
+     * Changes the world, use {@link WorldRts#execute(Command)} instead, so the command is recorded.
+     */
+    void apply(WorldRts world);
+
+    /**
+     * Writes command without its type, {@link #read(ByteBuffer)} reads the type first.
+     */
+    void write(DataOutput out) throws IOException;
+
+    static Command read(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case TYPE_MOVE: return MoveCommand.read(in);
+            default: throw new IOException("Unknown command type " + type);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.mazs.commands;
+
+/**
+ * Receives commands issued by the local player. Single player applies them right away,
+ * lockstep schedules them for a later tick on every peer.
+ */
+public interface CommandSink {
+    void submit(Command command);
+}
@@ -0,0 +1,74 @@
+package io.github.mazs.commands;
+
+import io.github.mazs.movement.Moving;
+import io.github.mazs.units.Unit;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Sends units to a point, units that can't move or don't exist anymore are skipped.
+ */
+public class MoveCommand implements Command {
+    private final int[] unitIds;
+    private final float x;
+    private final float y;
+
+    public MoveCommand(int[] unitIds, float x, float y) {
+        if (unitIds.length > 0xFFFF) {
+            throw new IllegalArgumentException("Too many units in one command: " + unitIds.length);
+        }
+        this.unitIds = unitIds;
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public byte getType() {
+        return TYPE_MOVE;
+    }
+
+    @Override
+    public void apply(WorldRts world) {
+        for (int id : unitIds) {
+            Unit unit = world.getUnit(id);
+            if (unit instanceof Moving) {
+                ((Moving) unit).moveTo(x, y);
+            }
+        }
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeShort(unitIds.length);
+        for (int id : unitIds) {
+            out.writeInt(id);
+        }
+    }
+
+    static MoveCommand read(ByteBuffer in) {
+        float x = in.getFloat();
+        float y = in.getFloat();
+        int[] unitIds = new int[in.getShort() & 0xFFFF];
+        for (int i = 0; i < unitIds.length; i++) {
+            unitIds[i] = in.getInt();
+        }
+        return new MoveCommand(unitIds, x, y);
+    }
+
+    public int[] getUnitIds() {
+        return unitIds;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.mazs.commands;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded session: world seed and size, and every player command with the tick it was applied at. Simulation is deterministic,
+ * so generating the world from the seed and applying the commands at the same ticks repeats the session exactly.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header:  int magic "MZRP", short version, long seed, short widthTiles, short heightTiles, short tickRate
+ * entries: varlong ticksSincePreviousEntry, byte commandType, command      see Command#write
+ * end:     varlong ticksSincePreviousEntry, byte 0                         missing when recording crashed
+ * </pre>
+ */
+public class Replay {
+    public static final int MAGIC = 0x4D5A5250; // "MZRP"
+    public static final int VERSION = 2;
+    static final byte END = 0;
+
+    private final long seed;
+    private final int widthTiles;
+    private final int heightTiles;
+    private final int tickRate;
+    private final long[] ticks;
+    private final List<Command> commands;
+    private final long endTick;
+    private final boolean complete;
+
+    private Replay(long seed, int widthTiles, int heightTiles, int tickRate,
+                   long[] ticks, List<Command> commands, long endTick, boolean complete) {
+        this.seed = seed;
+        this.widthTiles = widthTiles;
+        this.heightTiles = heightTiles;
+        this.tickRate = tickRate;
+        this.ticks = ticks;
+        this.commands = commands;
+        this.endTick = endTick;
+        this.complete = complete;
+    }
+
+    /**
+     * @throws IOException when data is not a replay or is made by another version
+     */
+    public static Replay read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a replay");
+            }
+            int version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version + ", expected " + VERSION);
+            }
+            long seed = in.getLong();
+            int widthTiles = in.getShort() & 0xFFFF;
+            int heightTiles = in.getShort() & 0xFFFF;
+            int tickRate = in.getShort() & 0xFFFF;
+            if (tickRate == 0) {
+                throw new IOException("Replay has no tick rate");
+            }
+
+            List<Command> commands = new ArrayList<>();
+            long[] ticks = new long[16];
+            long tick = 0;
+            while (in.hasRemaining()) {
+                try {
+                    tick += readVarLong(in);
+                    if (in.get(in.position()) == END) {
+                        return new Replay(seed, widthTiles, heightTiles, tickRate, ticks, commands, tick, true);
+                    }
+                    Command command = Command.read(in);
+                    if (commands.size() == ticks.length) {
+                        long[] grown = new long[ticks.length * 2];
+                        System.arraycopy(ticks, 0, grown, 0, ticks.length);
+                        ticks = grown;
+                    }
+                    ticks[commands.size()] = tick;
+                    commands.add(command);
+                } catch (BufferUnderflowException e) {
+                    // recording stopped in the middle of an entry
+                    break;
+                }
+            }
+            long endTick = commands.isEmpty() ? 0 : ticks[commands.size() - 1];
+            return new Replay(seed, widthTiles, heightTiles, tickRate, ticks, commands, endTick, false);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Replay header is truncated", e);
+        }
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed tick delta");
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidthTiles() {
+        return widthTiles;
+    }
+
+    public int getHeightTiles() {
+        return heightTiles;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getCommandCount() {
+        return commands.size();
+    }
+
+    public long getCommandTick(int index) {
+        return ticks[index];
+    }
+
+    public Command getCommand(int index) {
+        return commands.get(index);
+    }
+
+    /**
+     * @return tick the recording stopped at, or tick of the last command when the recording didn't end properly
+     */
+    public long getEndTick() {
+        return endTick;
+    }
+
+    /**
+     * @return false when the recording didn't end properly, e.g. the recorded session crashed
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
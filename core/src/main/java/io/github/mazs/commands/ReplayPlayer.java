@@ -0,0 +1,33 @@
+package io.github.mazs.commands;
+
+import io.github.mazs.worlds.WorldRts;
+
+/**
+ * Feeds commands of a replay to a world generated from the replay's seed.
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+    private int nextCommand = 0;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Executes commands recorded for the world's current tick, call it before every update.
+     */
+    public void applyCommands(WorldRts world) {
+        while (nextCommand < replay.getCommandCount() && replay.getCommandTick(nextCommand) <= world.getTick()) {
+            world.execute(replay.getCommand(nextCommand));
+            nextCommand++;
+        }
+    }
+
+    public boolean isFinished(WorldRts world) {
+        return nextCommand == replay.getCommandCount() && world.getTick() >= replay.getEndTick();
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+}
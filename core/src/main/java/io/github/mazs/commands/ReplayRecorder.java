@@ -0,0 +1,74 @@
+package io.github.mazs.commands;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes executed commands to a replay as they happen, so a replay survives a crash of the recorded session.
+ * See {@link Replay} for the format.
+ */
+public class ReplayRecorder implements Closeable {
+    private final DataOutputStream out;
+    private long lastTick = 0;
+    private boolean closed = false;
+
+    /**
+     * @param seed     obstacle seed the recorded world was generated with
+     * @param tickRate ticks per second of the recorded simulation
+     */
+    public ReplayRecorder(OutputStream output, long seed, int widthTiles, int heightTiles, int tickRate)
+        throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(Replay.MAGIC);
+        out.writeShort(Replay.VERSION);
+        out.writeLong(seed);
+        out.writeShort(widthTiles);
+        out.writeShort(heightTiles);
+        out.writeShort(tickRate);
+        out.flush();
+    }
+
+    /**
+     * @param tick tick the command is applied before, never lower than for the previous command
+     */
+    public void record(long tick, Command command) {
+        if (closed) {
+            return;
+        }
+        try {
+            Replay.writeVarLong(out, tick - lastTick);
+            lastTick = tick;
+            out.writeByte(command.getType());
+            command.write(out);
+            // commands are rare, flushing each keeps the replay complete up to a crash
+            out.flush();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Can't record replay", e);
+        }
+    }
+
+    /**
+     * Ends the replay at given tick, so playback simulates the ticks after the last command too.
+     */
+    public void finish(long tick) throws IOException {
+        if (closed) {
+            return;
+        }
+        Replay.writeVarLong(out, Math.max(0, tick - lastTick));
+        out.writeByte(Replay.END);
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+}
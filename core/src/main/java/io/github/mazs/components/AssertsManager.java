@@ -1,25 +1,238 @@
 package io.github.mazs.components;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.TextureAtlasLoader;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.github.mazs.metrics.Tracer;
+import io.github.mazs.metrics.Tracing;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Loads and caches rendering resources.
+ * Sprite sheets are served as regions of the atlas packed by the packTextures Gradle task, so sprites of different
+ * units are drawn without switching textures. Sheets missing from the atlas, or all of them when the atlas wasn't
+ * packed, are loaded as separate textures.
+ * Files are loaded through a libGDX {@link AssetManager}: {@link #queuePreload()} and {@link #update(int)} decode them
+ * in the background before the game starts, see {@link io.github.mazs.LoadingScreen}. A file asked for without being
+ * preloaded is still loaded, right away, and logged, because it stalls the frame asking for it.
+ * Headless manager has no GL context to load into, it hands out null instead of textures and fonts.
+ */
 public class AssertsManager {
+    public static final String ATLAS_PATH = "atlas/tinyswords.atlas";
+    /**
+     * Every file shipped in assets, one path per line, written by the generateAssetList Gradle task.
+     */
+    public static final String MANIFEST_PATH = "assets.txt";
+    /**
+     * Sprite sheets the game draws, one path per line. The packTextures Gradle task packs them into the atlas, they
+     * are preloaded from here when the atlas isn't packed.
+     */
+    public static final String SPRITES_PATH = "sprites.txt";
+    private static final String TAG = "Assets";
 
-    private final Map<String, Texture> cache = new HashMap<>();
+    // null when headless
+    private final AssetManager assetManager;
+    private final Map<String, TextureRegion> regions = new HashMap<>();
+    private final Map<String, Animation<TextureRegion>> animations = new HashMap<>();
+    private final boolean headless;
+    private TextureAtlas atlas;
+    private boolean atlasMissing = false;
     private Texture whitePixel;
     private BitmapFont defaultFont;
+    // the asset manager loads queued files one after another, each is traced from the end of the one before
+    private long lastPreloadedNanos;
+
+    public AssertsManager() {
+        this(false);
+    }
+
+    public AssertsManager(boolean headless) {
+        this.headless = headless;
+        this.assetManager = headless ? null : new AssetManager();
+    }
+
+    /**
+     * Queues the atlas, or the separate sheets when it isn't packed, for loading by {@link #update(int)}.
+     * The atlas is looked up on its own, {@link #MANIFEST_PATH} can be older than it. Separate sheets come from
+     * {@link #SPRITES_PATH} and are only queued when the manifest lists them, so a missing one is reported here
+     * instead of failing the loading.
+     */
+    public void queuePreload() {
+        if (headless) {
+            return;
+        }
+        lastPreloadedNanos = TimeUtils.nanoTime();
+        if (Gdx.files.internal(ATLAS_PATH).exists()) {
+            queue(ATLAS_PATH, TextureAtlas.class, new TextureAtlasLoader.TextureAtlasParameter());
+            return;
+        }
+        reportMissingAtlas();
+
+        Set<String> manifest = readList(MANIFEST_PATH);
+        Set<String> sheets = readList(SPRITES_PATH);
+        if (manifest == null || sheets == null) {
+            Gdx.app.error(TAG, MANIFEST_PATH + " or " + SPRITES_PATH + " is missing, nothing is preloaded");
+            return;
+        }
+        for (String sheet : sheets) {
+            if (manifest.contains(sheet)) {
+                queue(sheet, Texture.class, new TextureLoader.TextureParameter());
+            } else {
+                Gdx.app.error(TAG, sheet + " is not in " + MANIFEST_PATH);
+            }
+        }
+    }
+
+    /**
+     * @return non empty lines of the internal file, in order, null when it is missing
+     */
+    private static Set<String> readList(String path) {
+        FileHandle file = Gdx.files.internal(path);
+        if (!file.exists()) {
+            return null;
+        }
+        Set<String> lines = new LinkedHashSet<>();
+        for (String line : file.readString("UTF-8").split("\n")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+
+    private void reportMissingAtlas() {
+        atlasMissing = true;
+        Gdx.app.error(TAG, ATLAS_PATH + " is missing, run the packTextures Gradle task. Sprite sheets are loaded "
+            + "as separate textures, drawing units of different types switches textures");
+    }
+
+    private <T> void queue(String path, Class<T> type, AssetLoaderParameters<T> parameters) {
+        parameters.loadedCallback = (manager, fileName, loadedType) -> {
+            long now = TimeUtils.nanoTime();
+            Tracer tracer = Tracing.get();
+            if (tracer.isAssetLoadEnabled()) {
+                tracer.assetLoaded(fileName, loadedType.getSimpleName(), true, now - lastPreloadedNanos);
+            }
+            lastPreloadedNanos = now;
+        };
+        assetManager.load(path, type, parameters);
+    }
+
+    /**
+     * Loads queued files for about the given time, decoding images on a background thread.
+     *
+     * @return true when everything queued is loaded
+     */
+    public boolean update(int millis) {
+        return headless || assetManager.update(millis);
+    }
+
+    /**
+     * @return share of queued files loaded, 0 to 1
+     */
+    public float getProgress() {
+        return headless ? 1f : assetManager.getProgress();
+    }
 
     public Texture getTexture(String path) {
-        return cache.computeIfAbsent(path, p -> new Texture(Gdx.files.internal(p)));
+        if (headless) {
+            return null;
+        }
+        return loadNow(path, Texture.class);
+    }
+
+    private <T> T loadNow(String path, Class<T> type) {
+        if (!assetManager.isLoaded(path, type)) {
+            Gdx.app.log(TAG, path + " was not preloaded, loading it now");
+            long start = TimeUtils.nanoTime();
+            if (!assetManager.contains(path)) {
+                assetManager.load(path, type);
+            }
+            assetManager.finishLoadingAsset(path);
+            Tracer tracer = Tracing.get();
+            if (tracer.isAssetLoadEnabled()) {
+                tracer.assetLoaded(path, type.getSimpleName(), false, TimeUtils.nanoTime() - start);
+            }
+        }
+        return assetManager.get(path, type);
+    }
+
+    /**
+     * @param path sprite sheet under assets, the same path it would be loaded from on its own
+     * @return the whole sheet, frames are cut from it relative to the region
+     */
+    public TextureRegion getRegion(String path) {
+        if (headless) {
+            return null;
+        }
+        TextureRegion region = regions.get(path);
+        if (region == null) {
+            TextureAtlas atlas = getAtlas();
+            if (atlas != null) {
+                // regions are named after sheet paths without the extension
+                region = atlas.findRegion(path.substring(0, path.lastIndexOf('.')));
+            }
+            if (region == null) {
+                region = new TextureRegion(getTexture(path));
+            }
+            regions.put(path, region);
+        }
+        return region;
+    }
+
+    /**
+     * Animation of frames laid out left to right in a sheet, defined once and shared by every unit playing it.
+     * Units keep only their own animation time, see {@link io.github.mazs.ecs.UnitStore#getAnimationTime(int)}.
+     */
+    public Animation<TextureRegion> getAnimation(String path, int frameWidth, int frameHeight, int frameCount,
+                                                 float fps) {
+        if (headless) {
+            return null;
+        }
+        String key = path + '#' + frameWidth + 'x' + frameHeight + '#' + frameCount + '@' + fps;
+        Animation<TextureRegion> animation = animations.get(key);
+        if (animation == null) {
+            TextureRegion sheet = getRegion(path);
+            TextureRegion[] frames = new TextureRegion[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                frames[i] = new TextureRegion(sheet, i * frameWidth, 0, frameWidth, frameHeight);
+            }
+            animation = new Animation<>(1f / fps, frames);
+            animations.put(key, animation);
+        }
+        return animation;
+    }
+
+    private TextureAtlas getAtlas() {
+        if (atlas == null && !atlasMissing) {
+            if (assetManager.contains(ATLAS_PATH) || Gdx.files.internal(ATLAS_PATH).exists()) {
+                atlas = loadNow(ATLAS_PATH, TextureAtlas.class);
+            } else {
+                reportMissingAtlas();
+            }
+        }
+        return atlas;
     }
 
     public Texture getWhitePixel() {
+        if (headless) {
+            return null;
+        }
         if (whitePixel == null) {
             Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
             pixmap.setColor(Color.WHITE);
@@ -31,6 +244,9 @@ public class AssertsManager {
     }
 
     public BitmapFont getDefaultFont() {
+        if (headless) {
+            return null;
+        }
         if (defaultFont == null) {
             defaultFont = new BitmapFont();
             defaultFont.getData().setScale(0.5f);
@@ -38,11 +254,20 @@ public class AssertsManager {
         return defaultFont;
     }
 
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Frees everything loaded, the manager can't be used after.
+     */
     public void dispose() {
-        for (Texture texture : cache.values()) {
-            texture.dispose();
+        if (assetManager != null) {
+            assetManager.dispose();
         }
-        cache.clear();
+        regions.clear();
+        animations.clear();
+        atlas = null;
 
         if (whitePixel != null) {
             whitePixel.dispose();
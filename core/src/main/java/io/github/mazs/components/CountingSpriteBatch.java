@@ -0,0 +1,31 @@
+package io.github.mazs.components;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+/**
+ * SpriteBatch that also counts texture switches, every switch flushes the batch. Like {@link #renderCalls} the count
+ * covers draws since the last begin().
+ */
+public class CountingSpriteBatch extends SpriteBatch {
+    private int textureSwitches = 0;
+
+    @Override
+    public void begin() {
+        super.begin();
+        textureSwitches = 0;
+    }
+
+    @Override
+    protected void switchTexture(Texture texture) {
+        super.switchTexture(texture);
+        textureSwitches++;
+    }
+
+    /**
+     * @return times a texture was bound since begin(), the first texture included
+     */
+    public int getTextureSwitches() {
+        return textureSwitches;
+    }
+}
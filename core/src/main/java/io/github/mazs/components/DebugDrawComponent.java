@@ -1,19 +1,47 @@
 package io.github.mazs.components;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Debug shapes and labels queued from anywhere in the game and drawn over the world.
+ * Primitives are kept in fixed ring buffers of plain arrays, so queueing one allocates nothing, and when a buffer is
+ * full the oldest primitive is dropped. Rectangles and lines are drawn in one {@link ShapeRenderer} pass, labels in one
+ * SpriteBatch pass after it.
+ * While disabled nothing is queued, callers doing work to build what they draw should check {@link #isEnabled()} first.
+ */
 public class DebugDrawComponent {
+    /**
+     * Time to live of a primitive drawn by the next render only, for debug redrawn every frame.
+     */
+    public static final float FRAME = 0f;
+
+    private static final int RECTANGLE_CAPACITY = 16384;
+    private static final int LINE_CAPACITY = 8192;
+    private static final int TEXT_CAPACITY = 2048;
+    private static final float LINE_THICKNESS = 2f;
+
     private final AssertsManager assertsManager;
-    private final List<DebugRectangle> rectangles = new ArrayList<>();
-    private final List<DebugLine> lines = new ArrayList<>();
-    private final List<DebugText> texts = new ArrayList<>();
+    // rectangles by bottom left corner and size
+    private final PrimitiveRing rectangles = new PrimitiveRing(RECTANGLE_CAPACITY, false);
+    // lines from x, y to x2, y2
+    private final PrimitiveRing lines = new PrimitiveRing(LINE_CAPACITY, false);
+    private final PrimitiveRing texts = new PrimitiveRing(TEXT_CAPACITY, true);
+    // "#0", "#1", ... labels of path points, made once
+    private final Array<String> indexLabels = new Array<>();
+    private final Color color = new Color();
+    // created by the first render, headless worlds never make one
+    private ShapeRenderer shapes;
+    private boolean enabled = true;
 
     private static DebugDrawComponent instance;
 
@@ -32,162 +60,260 @@ public class DebugDrawComponent {
         this.assertsManager = assertsManager;
     }
 
-    public DebugDrawComponent drawPath(List<Vector2> path, Color green, float v) {
+    /**
+     * Disabled component ignores all queued primitives, so nothing piles up while debug is off.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            rectangles.clear();
+            lines.clear();
+            texts.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Lines between points of the path, each point labeled with its index.
+     */
+    public DebugDrawComponent drawPath(List<Vector2> path, Color color, float ttl) {
+        if (!enabled) return this;
         for (int i = 1; i < path.size(); i++) {
-            drawLine(path.get(i - 1), path.get(i), green, v);
-            drawText(path.get(i - 1),"#"+(i-1),Color.BLACK,0.1f);
+            drawLine(path.get(i - 1), path.get(i), color, ttl);
+            drawText(path.get(i - 1), indexLabel(i - 1), Color.BLACK, 0.1f);
         }
+        return this;
+    }
 
+    /**
+     * Square centered at given point.
+     */
+    public DebugDrawComponent drawRectangle(Vector2 xy, float size, Color color, float ttl) {
+        drawRectangle(xy.x, xy.y, size, size, color, ttl);
         return this;
     }
 
-    private static class DebugText {
-        Vector2 position;
-        String text;
-        Color color;
-        float ttl;
+    /**
+     * Rectangle centered at x, y.
+     */
+    public void drawRectangle(float x, float y, float width, float height, Color color, float ttl) {
+        if (!enabled) return;
+        rectangles.add(x - width / 2, y - height / 2, width, height, color.toFloatBits(), ttl, null);
+    }
 
-        DebugText(Vector2 position, String text, Color color, float ttl) {
-            this.position = new Vector2(position);
-            this.text = text;
-            this.color = new Color(color);
-            this.ttl = ttl;
-        }
+    /**
+     * Rectangle with bottom left corner at x, y, drawn by the next render only.
+     */
+    public void fillRectangle(float x, float y, float width, float height, Color color) {
+        if (!enabled) return;
+        rectangles.add(x, y, width, height, color.toFloatBits(), FRAME, null);
     }
 
-    private static class DebugRectangle {
-        float x, y, width, height;
-        Color color;
-        float ttl;
+    /**
+     * Square centered at x, y, drawn by the next render only.
+     */
+    public void drawPixel(float x, float y, Color color, float size) {
+        drawRectangle(x, y, size, size, color, FRAME);
+    }
 
-        DebugRectangle(float x, float y, float width, float height, Color color, float ttl) {
-            this.x = x;
-            this.y = y;
-            this.width = width;
-            this.height = height;
-            this.color = new Color(color);
-            this.ttl = ttl;
-        }
+    public DebugDrawComponent drawLine(Vector2 from, Vector2 to, Color color, float ttl) {
+        if (!enabled) return this;
+        lines.add(from.x, from.y, to.x, to.y, color.toFloatBits(), ttl, null);
+        return this;
     }
 
-    private static class DebugLine {
-        Vector2 from, to;
-        Color color;
-        float ttl;
+    public void drawText(Vector2 position, String text, Color color, float ttl) {
+        if (!enabled) return;
+        texts.add(position.x, position.y, 0, 0, color.toFloatBits(), ttl, text);
+    }
 
-        DebugLine(Vector2 from, Vector2 to, Color color, float ttl) {
-            this.from = new Vector2(from);
-            this.to = new Vector2(to);
-            this.color = new Color(color);
-            this.ttl = ttl;
+    private String indexLabel(int index) {
+        while (indexLabels.size <= index) {
+            indexLabels.add("#" + indexLabels.size);
         }
+        return indexLabels.get(index);
     }
 
+    /**
+     * Ages queued primitives, the ones whose time is up are dropped.
+     */
     public void update(float delta) {
-        Iterator<DebugRectangle> rectIterator = rectangles.iterator();
-        while (rectIterator.hasNext()) {
-            DebugRectangle rect = rectIterator.next();
-            rect.ttl -= delta;
-        }
-        rectangles.removeIf(rect -> rect.ttl <= 0);
+        rectangles.age(delta);
+        lines.age(delta);
+        texts.age(delta);
+    }
 
-        Iterator<DebugLine> lineIterator = lines.iterator();
-        while (lineIterator.hasNext()) {
-            DebugLine line = lineIterator.next();
-            line.ttl -= delta;
+    /**
+     * Draws queued primitives and drops the ones queued for one frame. Must not be called between begin() and end()
+     * of a SpriteBatch.
+     *
+     * @param batch      draws labels
+     * @param projection camera matrix
+     */
+    public void render(SpriteBatch batch, Matrix4 projection) {
+        if (!enabled) {
+            return;
         }
-        lines.removeIf(line -> line.ttl <= 0);
-
-        Iterator<DebugText> textIterator = texts.iterator();
-        while (textIterator.hasNext()) {
-            DebugText text = textIterator.next();
-            text.ttl -= delta;
+        if (rectangles.count > 0 || lines.count > 0) {
+            renderShapes(projection);
         }
-        texts.removeIf(text -> text.ttl <= 0);
+        if (texts.count > 0) {
+            renderTexts(batch, projection);
+        }
+        rectangles.age(0);
+        lines.age(0);
+        texts.age(0);
     }
 
-    public void render(SpriteBatch batch) {
-        for (DebugRectangle rect : rectangles) {
-            float drawX = rect.x - rect.width / 2;
-            float drawY = rect.y - rect.height / 2;
-            drawRectangleImmediate(
-                batch,
-                drawX,
-                drawY,
-                rect.width,
-                rect.height, rect.color);
+    private void renderShapes(Matrix4 projection) {
+        if (shapes == null) {
+            shapes = new ShapeRenderer();
         }
-
-        for (DebugLine line : lines) {
-            drawLineImmediate(batch, line.from, line.to, line.color);
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        shapes.setProjectionMatrix(projection);
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+
+        PrimitiveRing ring = rectangles;
+        for (int i = 0; i < ring.count; i++) {
+            int index = ring.index(i);
+            Color.abgr8888ToColor(color, ring.color[index]);
+            shapes.setColor(color);
+            shapes.rect(ring.a[index], ring.b[index], ring.c[index], ring.d[index]);
         }
-
-        for (DebugText text : texts) {
-            drawTextImmediate(batch, text.position, text.text, text.color);
+        ring = lines;
+        for (int i = 0; i < ring.count; i++) {
+            int index = ring.index(i);
+            Color.abgr8888ToColor(color, ring.color[index]);
+            shapes.setColor(color);
+            shapes.rectLine(ring.a[index], ring.b[index], ring.c[index], ring.d[index], LINE_THICKNESS);
         }
-    }
 
-    public void drawPixel(SpriteBatch batch, float x, float y, Color color, float size) {
-        Texture whitePixel = assertsManager.getWhitePixel();
-        batch.setColor(color);
-        batch.draw(whitePixel, x - size / 2f, y - size / 2f, size, size);
-        batch.setColor(Color.WHITE);
+        shapes.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
     }
 
-    public DebugDrawComponent drawRectangle(Vector2 xy, float size, Color color, float ttl) {
-        rectangles.add(new DebugRectangle(xy.x, xy.y, size, size, color, ttl));
-        return this;
-    }
-
-    public void drawRectangle(float x, float y, float width, float height, Color color, float ttl) {
-        rectangles.add(new DebugRectangle(x, y, width, height, color, ttl));
-    }
-
-    public DebugDrawComponent drawLine(Vector2 from, Vector2 to, Color color, float ttl) {
-        lines.add(new DebugLine(from, to, color, ttl));
-        return this;
-    }
-
-    public void drawText(Vector2 position, String text, Color color, float ttl) {
-        texts.add(new DebugText(position, text, color, ttl));
+    private void renderTexts(SpriteBatch batch, Matrix4 projection) {
+        BitmapFont font = assertsManager.getDefaultFont();
+        batch.setProjectionMatrix(projection);
+        batch.begin();
+        PrimitiveRing ring = texts;
+        for (int i = 0; i < ring.count; i++) {
+            int index = ring.index(i);
+            Color.abgr8888ToColor(color, ring.color[index]);
+            font.setColor(color);
+            font.draw(batch, ring.text[index], ring.a[index], ring.b[index]);
+        }
+        font.setColor(Color.WHITE);
+        batch.end();
     }
 
-    public void drawRectangleImmediate(SpriteBatch batch, float x, float y, float width, float height, Color color) {
-        Texture whitePixel = assertsManager.getWhitePixel();
-        batch.setColor(color);
-        batch.draw(whitePixel, x, y, width, height);
-        batch.setColor(Color.WHITE);
+    /**
+     * Frees the shape renderer, the next render creates it again.
+     */
+    public void dispose() {
+        if (shapes != null) {
+            shapes.dispose();
+            shapes = null;
+        }
     }
 
-    private void drawLineImmediate(SpriteBatch batch, Vector2 from, Vector2 to, Color color) {
-        Texture whitePixel = assertsManager.getWhitePixel();
-
-        float dx = to.x - from.x;
-        float dy = to.y - from.y;
-        float distance = (float) Math.sqrt(dx * dx + dy * dy);
-        float angle = (float) Math.toDegrees(Math.atan2(dy, dx));
+    /**
+     * Primitives of one kind in parallel arrays used as a ring, oldest first. Four coordinates are enough for every
+     * kind, their meaning depends on the kind.
+     */
+    private static class PrimitiveRing {
+        final float[] a;
+        final float[] b;
+        final float[] c;
+        final float[] d;
+        final float[] color;
+        final float[] ttl;
+        // only labels have it
+        final String[] text;
+        int start = 0;
+        int count = 0;
+
+        PrimitiveRing(int capacity, boolean withText) {
+            a = new float[capacity];
+            b = new float[capacity];
+            c = new float[capacity];
+            d = new float[capacity];
+            color = new float[capacity];
+            ttl = new float[capacity];
+            text = withText ? new String[capacity] : null;
+        }
 
-        float lineThickness = 2f;
+        int index(int i) {
+            int index = start + i;
+            return index < ttl.length ? index : index - ttl.length;
+        }
 
-        batch.setColor(color);
-        batch.draw(whitePixel,
-            from.x, from.y - lineThickness / 2f,
-            0, lineThickness / 2f,
-            distance, lineThickness,
-            1, 1,
-            angle,
-            0, 0,
-            1, 1,
-            false, false);
-        batch.setColor(Color.WHITE);
-    }
+        void add(float a, float b, float c, float d, float color, float ttl, String text) {
+            int index;
+            if (count == this.ttl.length) {
+                // full, the oldest one makes room
+                index = start;
+                start = index(1);
+            } else {
+                index = index(count);
+                count++;
+            }
+            this.a[index] = a;
+            this.b[index] = b;
+            this.c[index] = c;
+            this.d[index] = d;
+            this.color[index] = color;
+            this.ttl[index] = ttl;
+            if (this.text != null) {
+                this.text[index] = text;
+            }
+        }
 
-    private void drawTextImmediate(SpriteBatch batch, Vector2 position, String text, Color color) {
-        assertsManager.getDefaultFont().setColor(color);
-        assertsManager.getDefaultFont().draw(batch, text, position.x, position.y);
-        assertsManager.getDefaultFont().setColor(Color.WHITE);
-    }
+        /**
+         * Takes delta from time to live of every primitive and drops the ones left without any, keeping order of
+         * the rest.
+         */
+        void age(float delta) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int from = index(i);
+                float left = ttl[from] - delta;
+                if (left <= 0) {
+                    continue;
+                }
+                int to = index(kept++);
+                if (to != from) {
+                    a[to] = a[from];
+                    b[to] = b[from];
+                    c[to] = c[from];
+                    d[to] = d[from];
+                    color[to] = color[from];
+                    if (text != null) {
+                        text[to] = text[from];
+                    }
+                }
+                ttl[to] = left;
+            }
+            if (text != null) {
+                for (int i = kept; i < count; i++) {
+                    text[index(i)] = null;
+                }
+            }
+            count = kept;
+        }
 
-    public void dispose() {
+        void clear() {
+            if (text != null) {
+                for (int i = 0; i < count; i++) {
+                    text[index(i)] = null;
+                }
+            }
+            start = 0;
+            count = 0;
+        }
     }
 }
@@ -0,0 +1,49 @@
+package io.github.mazs.components;
+
+/**
+ * Bytes allocated by a thread and garbage collections of the runtime. Core can't read them on every platform,
+ * the ones that can pass a probe in, see {@link io.github.mazs.Platform#createMemoryProbe()}.
+ */
+public interface MemoryProbe {
+    /**
+     * Probe of a platform that can't tell, {@link #isSupported()} is false and every count is 0.
+     */
+    MemoryProbe NONE = new MemoryProbe() {
+        @Override
+        public boolean isSupported() {
+            return false;
+        }
+
+        @Override
+        public long getAllocatedBytes() {
+            return 0;
+        }
+
+        @Override
+        public long getCollectionCount() {
+            return 0;
+        }
+
+        @Override
+        public long getCollectionTimeMs() {
+            return 0;
+        }
+    };
+
+    boolean isSupported();
+
+    /**
+     * @return bytes allocated by the calling thread since it started
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return collections of all collectors since the runtime started
+     */
+    long getCollectionCount();
+
+    /**
+     * @return milliseconds spent collecting since the runtime started
+     */
+    long getCollectionTimeMs();
+}
@@ -0,0 +1,279 @@
+package io.github.mazs.components;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import io.github.mazs.ecs.UnitComponent;
+import io.github.mazs.ecs.UnitStore;
+import io.github.mazs.movement.UnitMovementComponent;
+import io.github.mazs.units.Unit;
+import io.github.mazs.worlds.WalkabilityLayer;
+import io.github.mazs.worlds.WorldRts;
+
+/**
+ * Overview of the whole map drawn in a corner of the screen: blocked terrain and moving units.
+ * The map is kept in a Pixmap with one pixel per square of tiles and uploaded to a texture. Terrain is drawn once,
+ * moving units are refreshed a few times per second, and only blocks of pixels changed by the refresh are uploaded
+ * again, so its cost depends on how many units moved to another pixel, not on map size.
+ * Units that don't move, like trees, block their tiles and are part of the terrain.
+ */
+public class MinimapComponent implements EntityListener {
+    /**
+     * Longest side of the map in pixels, bigger maps put several tiles into one pixel.
+     */
+    public static final int MAX_SIZE_PIXELS = 256;
+    public static final float REFRESH_INTERVAL = 0.25f;
+    // pixels uploaded together, the pixmap is padded to whole blocks
+    private static final int BLOCK_SIZE = 16;
+
+    private static final Color GROUND_COLOR = new Color(0.33f, 0.55f, 0.25f, 1f);
+    private static final Color BLOCKED_COLOR = new Color(0.1f, 0.25f, 0.1f, 1f);
+    private static final Color UNIT_COLOR = new Color(0.95f, 0.85f, 0.2f, 1f);
+    private static final Color VIEW_COLOR = new Color(1f, 1f, 1f, 0.8f);
+
+    private static final Family FAMILY = Family.all(UnitComponent.class, UnitMovementComponent.class).get();
+
+    private final ComponentMapper<UnitComponent> unitMapper = ComponentMapper.getFor(UnitComponent.class);
+
+    private final Engine engine;
+    private final UnitStore store;
+    private final ImmutableArray<Entity> movingEntities;
+    private final Texture whitePixel;
+    private final int worldWidth;
+    private final int worldHeight;
+    // tiles per pixel side
+    private final int scale;
+    private final int width;
+    private final int height;
+    private final int blocksX;
+
+    private final Pixmap pixmap;
+    // block sized copy of the pixmap uploaded to the texture
+    private final Pixmap blockPixmap;
+    private final Texture texture;
+    private final TextureRegion region;
+    // terrain color of every pixel, drawn again where units leave
+    private final int[] terrain;
+    private final int[] unitCounts;
+    private final int unitColor = Color.rgba8888(UNIT_COLOR);
+    private final Color color = new Color();
+
+    // pixel every tracked unit was counted in
+    private final ObjectIntMap<Unit> unitPixels = new ObjectIntMap<>();
+    private final boolean[] dirtyBlocks;
+    private final IntArray dirtyBlockList = new IntArray();
+    private float sinceRefresh = REFRESH_INTERVAL;
+    private int uploadedBlockCount = 0;
+
+    public MinimapComponent(WorldRts world) {
+        WalkabilityLayer walkability = world.getWalkability();
+        int widthTiles = walkability.getWidthTiles();
+        int heightTiles = walkability.getHeightTiles();
+        this.worldWidth = widthTiles * walkability.getTileSize();
+        this.worldHeight = heightTiles * walkability.getTileSize();
+        this.scale = Math.max(1, (Math.max(widthTiles, heightTiles) + MAX_SIZE_PIXELS - 1) / MAX_SIZE_PIXELS);
+        this.width = (widthTiles + scale - 1) / scale;
+        this.height = (heightTiles + scale - 1) / scale;
+        this.blocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blocksY = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.engine = world.getEngine();
+        this.store = world.getUnitStore();
+        this.whitePixel = world.assertsManager.getWhitePixel();
+
+        pixmap = new Pixmap(blocksX * BLOCK_SIZE, blocksY * BLOCK_SIZE, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        blockPixmap = new Pixmap(BLOCK_SIZE, BLOCK_SIZE, Pixmap.Format.RGBA8888);
+        blockPixmap.setBlending(Pixmap.Blending.None);
+        terrain = new int[width * height];
+        unitCounts = new int[width * height];
+        dirtyBlocks = new boolean[blocksX * blocksY];
+
+        drawTerrain(walkability);
+        texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        // pixmap rows go top down, the padding is at the bottom and right and stays hidden
+        region = new TextureRegion(texture, 0, 0, width, height);
+
+        movingEntities = engine.getEntitiesFor(FAMILY);
+        for (Entity entity : movingEntities) {
+            entityAdded(entity);
+        }
+        engine.addEntityListener(FAMILY, this);
+    }
+
+    private void drawTerrain(WalkabilityLayer walkability) {
+        pixmap.setColor(BLOCKED_COLOR);
+        pixmap.fill();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = y * width + x;
+                terrain[pixel] = terrainColor(walkability, x, y);
+                pixmap.drawPixel(x, height - 1 - y, terrain[pixel]);
+            }
+        }
+    }
+
+    /**
+     * Draws given tile's square again from the walkability layer the next refresh, after the tile was blocked or
+     * freed.
+     */
+    public void invalidateTile(WalkabilityLayer walkability, int tileX, int tileY) {
+        int x = tileX / scale;
+        int y = tileY / scale;
+        if (tileX < 0 || tileY < 0 || x >= width || y >= height) {
+            return;
+        }
+        terrain[y * width + x] = terrainColor(walkability, x, y);
+        redrawPixel(y * width + x);
+    }
+
+    /**
+     * @return ground color darkened by the share of blocked tiles in the pixel's square
+     */
+    private int terrainColor(WalkabilityLayer walkability, int x, int y) {
+        int toX = Math.min((x + 1) * scale, walkability.getWidthTiles());
+        int toY = Math.min((y + 1) * scale, walkability.getHeightTiles());
+        int blocked = 0;
+        for (int tileY = y * scale; tileY < toY; tileY++) {
+            for (int tileX = x * scale; tileX < toX; tileX++) {
+                if (walkability.isBlocked(tileX, tileY)) {
+                    blocked++;
+                }
+            }
+        }
+        int tiles = (toX - x * scale) * (toY - y * scale);
+        return Color.rgba8888(color.set(GROUND_COLOR).lerp(BLOCKED_COLOR, (float) blocked / tiles));
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        Unit unit = unitMapper.get(entity).getUnit();
+        int pixel = pixelOf(unit);
+        unitPixels.put(unit, pixel);
+        if (unitCounts[pixel]++ == 0) {
+            redrawPixel(pixel);
+        }
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        Unit unit = unitMapper.get(entity).getUnit();
+        int pixel = unitPixels.remove(unit, -1);
+        if (pixel >= 0 && --unitCounts[pixel] == 0) {
+            redrawPixel(pixel);
+        }
+    }
+
+    /**
+     * Moves units to their current pixels every {@link #REFRESH_INTERVAL} and uploads changed blocks.
+     */
+    public void update(float delta) {
+        sinceRefresh += delta;
+        if (sinceRefresh < REFRESH_INTERVAL) {
+            return;
+        }
+        sinceRefresh = 0;
+
+        for (int i = 0; i < movingEntities.size(); i++) {
+            Unit unit = unitMapper.get(movingEntities.get(i)).getUnit();
+            int pixel = pixelOf(unit);
+            int previous = unitPixels.get(unit, -1);
+            if (pixel == previous) {
+                continue;
+            }
+            unitPixels.put(unit, pixel);
+            if (previous >= 0 && --unitCounts[previous] == 0) {
+                redrawPixel(previous);
+            }
+            if (unitCounts[pixel]++ == 0) {
+                redrawPixel(pixel);
+            }
+        }
+        upload();
+    }
+
+    private int pixelOf(Unit unit) {
+        int tileSize = WorldRts.TILE_SIZE;
+        int x = Math.max(0, Math.min(width - 1, (int) (store.getX(unit.getSlot()) / tileSize) / scale));
+        int y = Math.max(0, Math.min(height - 1, (int) (store.getY(unit.getSlot()) / tileSize) / scale));
+        return y * width + x;
+    }
+
+    private void redrawPixel(int pixel) {
+        int x = pixel % width;
+        int y = height - 1 - pixel / width;
+        pixmap.drawPixel(x, y, unitCounts[pixel] > 0 ? unitColor : terrain[pixel]);
+        int block = y / BLOCK_SIZE * blocksX + x / BLOCK_SIZE;
+        if (!dirtyBlocks[block]) {
+            dirtyBlocks[block] = true;
+            dirtyBlockList.add(block);
+        }
+    }
+
+    private void upload() {
+        uploadedBlockCount = dirtyBlockList.size;
+        for (int i = 0; i < dirtyBlockList.size; i++) {
+            int block = dirtyBlockList.get(i);
+            dirtyBlocks[block] = false;
+            int x = block % blocksX * BLOCK_SIZE;
+            int y = block / blocksX * BLOCK_SIZE;
+            blockPixmap.drawPixmap(pixmap, x, y, BLOCK_SIZE, BLOCK_SIZE, 0, 0, BLOCK_SIZE, BLOCK_SIZE);
+            texture.draw(blockPixmap, x, y);
+        }
+        dirtyBlockList.clear();
+    }
+
+    /**
+     * Draws the minimap and the outline of the visible area, the map's longer side is size pixels long.
+     *
+     * @param batch       batch projecting to screen coordinates, between begin() and end()
+     * @param x           left edge on screen
+     * @param y           bottom edge on screen
+     * @param visibleArea world area seen by the camera
+     */
+    public void render(SpriteBatch batch, float x, float y, float size, Rectangle visibleArea) {
+        float pixelSize = size / Math.max(width, height);
+        float drawWidth = width * pixelSize;
+        float drawHeight = height * pixelSize;
+        batch.draw(region, x, y, drawWidth, drawHeight);
+
+        float fromX = x + Math.max(0, visibleArea.x) / worldWidth * drawWidth;
+        float fromY = y + Math.max(0, visibleArea.y) / worldHeight * drawHeight;
+        float toX = x + Math.min(worldWidth, visibleArea.x + visibleArea.width) / worldWidth * drawWidth;
+        float toY = y + Math.min(worldHeight, visibleArea.y + visibleArea.height) / worldHeight * drawHeight;
+        if (toX <= fromX || toY <= fromY) {
+            return;
+        }
+        batch.setColor(VIEW_COLOR);
+        batch.draw(whitePixel, fromX, fromY, toX - fromX, 1);
+        batch.draw(whitePixel, fromX, toY - 1, toX - fromX, 1);
+        batch.draw(whitePixel, fromX, fromY, 1, toY - fromY);
+        batch.draw(whitePixel, toX - 1, fromY, 1, toY - fromY);
+        batch.setColor(Color.WHITE);
+    }
+
+    /**
+     * @return blocks of pixels uploaded by the last refresh
+     */
+    public int getUploadedBlockCount() {
+        return uploadedBlockCount;
+    }
+
+    public void dispose() {
+        engine.removeEntityListener(this);
+        texture.dispose();
+        pixmap.dispose();
+        blockPixmap.dispose();
+    }
+}
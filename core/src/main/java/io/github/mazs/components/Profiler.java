@@ -0,0 +1,23 @@
+package io.github.mazs.components;
+
+/**
+ * Times named sections of frames and world ticks, see {@link io.github.mazs.worlds.WorldRts#setProfiler}.
+ * Sections nest, a section begun while another one is open is part of it.
+ */
+public interface Profiler {
+    void begin(String section);
+
+    /**
+     * Closes the section begun last.
+     */
+    void end();
+
+    default void beginTick() {
+    }
+
+    /**
+     * @param tick number of the tick that ended, see {@link io.github.mazs.worlds.WorldRts#getTick()}
+     */
+    default void endTick(long tick) {
+    }
+}
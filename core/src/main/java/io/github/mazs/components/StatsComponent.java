@@ -3,96 +3,257 @@ package io.github.mazs.components;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.TimeUtils;
+import io.github.mazs.metrics.Tracer;
+import io.github.mazs.metrics.Tracing;
 
-public class StatsComponent {
-    private static final int SAMPLE_SIZE = 60;
-    private static final long NANOS_TO_MILLIS = 1_000_000;
+import java.util.Arrays;
 
-    private long frameStartTime;
-    private long updateStartTime;
-    private long renderStartTime;
+/**
+ * Frame stats overlay. Frames are split into named scopes that nest, update and render and whatever is begun inside
+ * them, e.g. systems of world ticks when this is the world's profiler. Every scope keeps its time of the last
+ * {@link #WINDOW_SIZE} frames and shows percentiles and the worst frame, averages hide the spikes.
+ * Where the platform allows it, bytes allocated by the render thread and garbage collections are kept per frame too.
+ * <p>
+ * Percentiles and the overlay text are refreshed every {@link #REFRESH_FRAMES} frames, so measuring doesn't sort
+ * every frame and the overlay doesn't allocate its strings every frame.
+ * <p>
+ * Scopes are passed to the {@link Tracer} of the process as phases whether the overlay is enabled or not.
+ */
+public class StatsComponent implements Profiler {
+    public static final int WINDOW_SIZE = 300;
+    public static final int REFRESH_FRAMES = 30;
+    private static final float NANOS_TO_MILLIS = 1_000_000f;
+    private static final float LINE_HEIGHT = 25f;
+    // nested scopes are moved right by this per level
+    private static final float INDENT = 20f;
+
+    private final Scope frame = new Scope("Frame", 0);
+    // every scope, for moving frame times to the windows
+    private final Array<Scope> scopes = new Array<>();
+    private final Array<Scope> openScopes = new Array<>();
+    private final LongArray openStarts = new LongArray();
+
+    private final MemoryProbe memoryProbe;
+    private final Window allocatedKb = new Window();
+    private final Window collections = new Window();
+    private final Window collectionMs = new Window();
+    private long frameStartAllocated;
+    private long frameStartCollections;
+    private long frameStartCollectionMs;
 
-    private float updateTimeMs;
-    private float renderTimeMs;
-    private float totalFrameTimeMs;
     private float fps;
 
-    private final float[] updateTimeSamples = new float[SAMPLE_SIZE];
-    private final float[] renderTimeSamples = new float[SAMPLE_SIZE];
-    private final float[] frameTimeSamples = new float[SAMPLE_SIZE];
-    private int sampleIndex = 0;
+    // drawn and culled counts of the last frame
+    private int drawnUnits;
+    private int culledUnits;
+    private int drawnTiles;
+    private int culledTiles;
+    // batch flushes and texture switches of the world pass of the last frame
+    private int renderCalls;
+    private int textureSwitches;
+    // average tick time of a simulation running on its own thread, negative when it runs in update
+    private float simulationTickMs = -1;
+
+    private int framesSinceRefresh = REFRESH_FRAMES;
+    private final Array<String> lines = new Array<>();
+    private final FloatArray lineIndents = new FloatArray();
 
     private final BitmapFont font;
     private boolean enabled = true;
+    // enabling takes effect with the next frame, so scopes of a frame are always begun and ended together
+    private boolean measuring = false;
+
+    private final Tracer tracer = Tracing.get();
+    // phases begun on the tracer, the frame included
+    private int tracedPhases = 0;
 
     public StatsComponent() {
+        this(MemoryProbe.NONE);
+    }
+
+    /**
+     * @param memoryProbe reads allocations and collections of every frame, lines about them are left out when it
+     *                    isn't supported
+     */
+    public StatsComponent(MemoryProbe memoryProbe) {
+        this.memoryProbe = memoryProbe;
         font = new BitmapFont();
         font.setColor(Color.YELLOW);
         font.getData().setScale(1.5f);
+        scopes.add(frame);
     }
 
     public void beginFrame() {
-        if (!enabled) return;
-        frameStartTime = TimeUtils.nanoTime();
+        tracer.beginPhase(frame.name);
+        tracedPhases = 1;
+        measuring = enabled;
+        if (!measuring) return;
+        openScopes.clear();
+        openStarts.clear();
+        if (memoryProbe.isSupported()) {
+            frameStartAllocated = memoryProbe.getAllocatedBytes();
+            frameStartCollections = memoryProbe.getCollectionCount();
+            frameStartCollectionMs = memoryProbe.getCollectionTimeMs();
+        }
+        openScopes.add(frame);
+        openStarts.add(TimeUtils.nanoTime());
+    }
+
+    /**
+     * Starts a scope inside the scope begun last, time spent in the same scope several times a frame adds up.
+     */
+    @Override
+    public void begin(String name) {
+        tracer.beginPhase(name);
+        tracedPhases++;
+        if (!measuring) return;
+        Scope parent = openScopes.peek();
+        Scope scope = parent.children.get(name);
+        if (scope == null) {
+            scope = new Scope(name, parent.depth + 1);
+            parent.children.put(name, scope);
+            parent.childOrder.add(scope);
+            scopes.add(scope);
+        }
+        openScopes.add(scope);
+        openStarts.add(TimeUtils.nanoTime());
+    }
+
+    @Override
+    public void end() {
+        if (tracedPhases > 1) {
+            tracer.endPhase();
+            tracedPhases--;
+        }
+        if (!measuring) return;
+        // the frame scope is only closed by endFrame()
+        if (openScopes.size <= 1) {
+            throw new IllegalStateException("No scope was begun");
+        }
+        closeScope();
+    }
+
+    private void closeScope() {
+        long nanos = TimeUtils.nanoTime() - openStarts.pop();
+        openScopes.pop().frameNanos += nanos;
     }
 
     public void beginUpdate() {
-        if (!enabled) return;
-        updateStartTime = TimeUtils.nanoTime();
+        begin("Update");
     }
 
     public void endUpdate() {
-        if (!enabled) return;
-        long updateEndTime = TimeUtils.nanoTime();
-        float updateMs = (updateEndTime - updateStartTime) / (float) NANOS_TO_MILLIS;
-
-        updateTimeSamples[sampleIndex] = updateMs;
-        updateTimeMs = calculateAverage(updateTimeSamples);
+        end();
     }
 
     public void beginRender() {
-        if (!enabled) return;
-        renderStartTime = TimeUtils.nanoTime();
+        begin("Render");
     }
 
     public void endRender() {
-        if (!enabled) return;
-        long renderEndTime = TimeUtils.nanoTime();
-        float renderMs = (renderEndTime - renderStartTime) / (float) NANOS_TO_MILLIS;
-
-        renderTimeSamples[sampleIndex] = renderMs;
-        renderTimeMs = calculateAverage(renderTimeSamples);
+        end();
     }
 
     public void endFrame() {
-        if (!enabled) return;
-        long frameEndTime = TimeUtils.nanoTime();
-        float frameMs = (frameEndTime - frameStartTime) / (float) NANOS_TO_MILLIS;
+        for (; tracedPhases > 0; tracedPhases--) {
+            tracer.endPhase();
+        }
+        if (!measuring) return;
+        while (openScopes.size > 0) {
+            closeScope();
+        }
+        for (int i = 0; i < scopes.size; i++) {
+            Scope scope = scopes.get(i);
+            scope.window.add(scope.frameNanos / NANOS_TO_MILLIS);
+            scope.frameNanos = 0;
+        }
+        if (memoryProbe.isSupported()) {
+            allocatedKb.add((memoryProbe.getAllocatedBytes() - frameStartAllocated) / 1024f);
+            collections.add(memoryProbe.getCollectionCount() - frameStartCollections);
+            collectionMs.add(memoryProbe.getCollectionTimeMs() - frameStartCollectionMs);
+        }
 
-        frameTimeSamples[sampleIndex] = frameMs;
-        totalFrameTimeMs = calculateAverage(frameTimeSamples);
+        if (++framesSinceRefresh >= REFRESH_FRAMES) {
+            framesSinceRefresh = 0;
+            refresh();
+        }
+    }
 
-        fps = totalFrameTimeMs > 0 ? 1000f / totalFrameTimeMs : 0;
+    /**
+     * Sorts the windows and formats the overlay.
+     */
+    private void refresh() {
+        for (int i = 0; i < scopes.size; i++) {
+            scopes.get(i).window.sort();
+        }
+        float frameAverage = frame.window.average();
+        fps = frameAverage > 0 ? 1000f / frameAverage : 0;
 
-        sampleIndex = (sampleIndex + 1) % SAMPLE_SIZE;
+        lines.clear();
+        lineIndents.clear();
+        addLine(String.format("FPS: %.1f, ms per frame over the last %d frames", fps, frame.window.count), 0);
+        addScopeLines(frame);
+        addLine(String.format("Units: %d drawn, %d culled", drawnUnits, culledUnits), 0);
+        addLine(String.format("Tiles: %d drawn, %d culled", drawnTiles, culledTiles), 0);
+        addLine(String.format("Batch: %d calls, %d texture switches", renderCalls, textureSwitches), 0);
+        if (simulationTickMs >= 0) {
+            addLine(String.format("Simulation thread: %.2f ms per tick", simulationTickMs), 0);
+        }
+        if (memoryProbe.isSupported()) {
+            allocatedKb.sort();
+            collectionMs.sort();
+            addLine(String.format("Allocated: %.1f KB avg, %.1f KB p99, %.1f KB max per frame",
+                allocatedKb.average(), allocatedKb.percentile(0.99f), allocatedKb.max()), 0);
+            addLine(String.format("GC: %.0f collections, %.0f ms, worst frame %.0f ms",
+                collections.sum(), collectionMs.sum(), collectionMs.max()), 0);
+        }
     }
 
-    private float calculateAverage(float[] samples) {
-        float sum = 0;
-        for (float sample : samples) {
-            sum += sample;
+    private void addScopeLines(Scope scope) {
+        Window window = scope.window;
+        addLine(String.format("%s: %.2f avg, %.2f p50, %.2f p95, %.2f p99, %.2f max", scope.name,
+            window.average(), window.percentile(0.5f), window.percentile(0.95f), window.percentile(0.99f),
+            window.max()), scope.depth * INDENT);
+        for (int i = 0; i < scope.childOrder.size; i++) {
+            addScopeLines(scope.childOrder.get(i));
         }
-        return sum / samples.length;
+    }
+
+    private void addLine(String line, float indent) {
+        lines.add(line);
+        lineIndents.add(indent);
     }
 
     public void render(SpriteBatch batch, float x, float y) {
-        if (!enabled) return;
+        if (!measuring) return;
+
+        for (int i = 0; i < lines.size; i++) {
+            font.draw(batch, lines.get(i), x + lineIndents.get(i), y - i * LINE_HEIGHT);
+        }
+    }
+
+    public void setBatchCounts(int renderCalls, int textureSwitches) {
+        this.renderCalls = renderCalls;
+        this.textureSwitches = textureSwitches;
+    }
 
-        font.draw(batch, String.format("FPS: %.1f", fps), x, y);
-        font.draw(batch, String.format("Frame: %.2f ms", totalFrameTimeMs), x, y - 25);
-        font.draw(batch, String.format("Update: %.2f ms", updateTimeMs), x, y - 50);
-        font.draw(batch, String.format("Render: %.2f ms", renderTimeMs), x, y - 75);
+    /**
+     * @param tickMs average tick time of the simulation thread, shown instead of being part of update time
+     */
+    public void setSimulationTickTime(float tickMs) {
+        this.simulationTickMs = tickMs;
+    }
+
+    public void setCulling(int drawnUnits, int culledUnits, int drawnTiles, int culledTiles) {
+        this.drawnUnits = drawnUnits;
+        this.culledUnits = culledUnits;
+        this.drawnTiles = drawnTiles;
+        this.culledTiles = culledTiles;
     }
 
     public void setEnabled(boolean enabled) {
@@ -108,18 +269,107 @@ public class StatsComponent {
     }
 
     public float getTotalFrameTimeMs() {
-        return totalFrameTimeMs;
+        return frame.window.average();
+    }
+
+    /**
+     * @param p 0 to 1, e.g. 0.99f
+     * @return percentile of frame time as of the last refresh of the overlay
+     */
+    public float getFramePercentileMs(float p) {
+        return frame.window.percentile(p);
+    }
+
+    /**
+     * @return average KB allocated by the render thread per frame, NaN where the platform can't tell
+     */
+    public float getAllocatedKbPerFrame() {
+        return memoryProbe.isSupported() ? allocatedKb.average() : Float.NaN;
     }
 
     public float getUpdateTimeMs() {
-        return updateTimeMs;
+        return getAverageMs("Update");
     }
 
     public float getRenderTimeMs() {
-        return renderTimeMs;
+        return getAverageMs("Render");
+    }
+
+    /**
+     * @param name scope begun right inside the frame
+     * @return average time of the scope per frame, 0 when it was never begun
+     */
+    public float getAverageMs(String name) {
+        Scope scope = frame.children.get(name);
+        return scope != null ? scope.window.average() : 0;
     }
 
     public void dispose() {
         font.dispose();
     }
+
+    private static class Scope {
+        final String name;
+        final int depth;
+        final ObjectMap<String, Scope> children = new ObjectMap<>();
+        // in order of first use
+        final Array<Scope> childOrder = new Array<>();
+        final Window window = new Window();
+        long frameNanos;
+
+        Scope(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Samples of the last {@link #WINDOW_SIZE} frames. Percentiles and max read a sorted copy made by sort().
+     */
+    private static class Window {
+        final float[] samples = new float[WINDOW_SIZE];
+        final float[] sorted = new float[WINDOW_SIZE];
+        int count = 0;
+        int sortedCount = 0;
+        int next = 0;
+
+        void add(float sample) {
+            samples[next] = sample;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+        }
+
+        void sort() {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            sortedCount = count;
+        }
+
+        float sum() {
+            float sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += samples[i];
+            }
+            return sum;
+        }
+
+        float average() {
+            return count > 0 ? sum() / count : 0;
+        }
+
+        /**
+         * @param p 0 to 1, nearest rank of the sorted samples
+         */
+        float percentile(float p) {
+            if (sortedCount == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(p * sortedCount) - 1;
+            return sorted[Math.max(0, Math.min(sortedCount - 1, rank))];
+        }
+
+        float max() {
+            return sortedCount > 0 ? sorted[sortedCount - 1] : 0;
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package io.github.mazs.components;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects time spent in named sections of world ticks, see {@link io.github.mazs.worlds.WorldRts#setProfiler}.
+ * Besides totals it remembers the slowest tick, so a hitch found in a replay can be looked at again.
+ */
+public class TickProfiler implements Profiler {
+    private static final float NANOS_TO_MILLIS = 1_000_000f;
+
+    private final ObjectMap<String, Section> sections = new ObjectMap<>();
+    // in order of first use, which is the order sections run in a tick, nested ones right after their parent
+    private final List<Section> orderedSections = new ArrayList<>();
+    private final Array<Section> openSections = new Array<>();
+    private final LongArray openStarts = new LongArray();
+
+    private long ticks = 0;
+    private long tickStart;
+    private long totalNanos = 0;
+    private long slowestTickNanos = 0;
+    private long slowestTick = -1;
+
+    @Override
+    public void beginTick() {
+        tickStart = TimeUtils.nanoTime();
+    }
+
+    @Override
+    public void endTick(long tick) {
+        long nanos = TimeUtils.nanoTime() - tickStart;
+        totalNanos += nanos;
+        ticks++;
+        if (nanos > slowestTickNanos) {
+            slowestTickNanos = nanos;
+            slowestTick = tick;
+        }
+    }
+
+    @Override
+    public void begin(String name) {
+        ObjectMap<String, Section> siblings = openSections.size > 0 ? openSections.peek().children : sections;
+        Section section = siblings.get(name);
+        if (section == null) {
+            section = new Section(name, openSections.size);
+            siblings.put(name, section);
+            int index = openSections.size > 0 ? lastDescendantIndex(openSections.peek()) + 1 : orderedSections.size();
+            orderedSections.add(index, section);
+        }
+        openSections.add(section);
+        openStarts.add(TimeUtils.nanoTime());
+    }
+
+    @Override
+    public void end() {
+        long nanos = TimeUtils.nanoTime() - openStarts.pop();
+        Section section = openSections.pop();
+        section.totalNanos += nanos;
+        section.maxNanos = Math.max(section.maxNanos, nanos);
+    }
+
+    private int lastDescendantIndex(Section parent) {
+        int index = orderedSections.indexOf(parent);
+        while (index + 1 < orderedSections.size() && orderedSections.get(index + 1).depth > parent.depth) {
+            index++;
+        }
+        return index;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getSlowestTick() {
+        return slowestTick;
+    }
+
+    /**
+     * @return one line per section with total, average and worst time, then the whole tick. Nested sections are
+     * indented under the section they are part of.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Section section : orderedSections) {
+            lines.add(line(indent(section.depth) + section.name, section.totalNanos, section.maxNanos));
+        }
+        lines.add(line("tick", totalNanos, slowestTickNanos) + ", slowest is tick " + slowestTick);
+        return lines;
+    }
+
+    private static String indent(int depth) {
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            indent.append("  ");
+        }
+        return indent.toString();
+    }
+
+    private String line(String name, long total, long max) {
+        return String.format("%-20s %10.2f ms total, %8.4f ms avg, %8.3f ms max, %5.1f%%",
+            name,
+            total / NANOS_TO_MILLIS,
+            ticks > 0 ? total / NANOS_TO_MILLIS / ticks : 0f,
+            max / NANOS_TO_MILLIS,
+            totalNanos > 0 ? 100f * total / totalNanos : 0f);
+    }
+
+    public void reset() {
+        sections.clear();
+        orderedSections.clear();
+        openSections.clear();
+        openStarts.clear();
+        ticks = 0;
+        totalNanos = 0;
+        slowestTickNanos = 0;
+        slowestTick = -1;
+    }
+
+    private static class Section {
+        final String name;
+        final int depth;
+        final ObjectMap<String, Section> children = new ObjectMap<>();
+        long totalNanos;
+        long maxNanos;
+
+        Section(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+}
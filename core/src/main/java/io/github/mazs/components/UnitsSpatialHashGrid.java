@@ -1,17 +1,25 @@
 package io.github.mazs.components;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
 import io.github.mazs.movement.Moving;
 import io.github.mazs.units.Unit;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class UnitsSpatialHashGrid {
+    private static final Color ONE_UNIT_COLOR = new Color(0f, 1f, 0f, 0.3f);
+    private static final Color FEW_UNITS_COLOR = new Color(1f, 1f, 0f, 0.4f);
+    private static final Color MANY_UNITS_COLOR = new Color(1f, 0f, 0f, 0.5f);
+
     private final int cellSize;
-    private final Map<Long, List<Unit>> grid = new HashMap<>();
+    // LongMap scrambles keys, Long.hashCode() of packed cell coordinates is cellX ^ cellY and collides all over a map
+    private final LongMap<List<Unit>> grid = new LongMap<>();
     private final Map<Unit, Long> unitToCellKey = new HashMap<>();
 
     public UnitsSpatialHashGrid(int cellSize) {
@@ -24,21 +32,13 @@ public class UnitsSpatialHashGrid {
         return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
     }
 
-    private int getCellX(long key) {
-        return (int) (key >> 32);
-    }
-
-    private int getCellY(long key) {
-        return (int) key;
-    }
-
     public void update(Unit unit) {
         Vector2 pos = unit.getPosition();
         long newKey = getCellKey(pos.x, pos.y);
         Long oldKey = unitToCellKey.get(unit);
 
         if (oldKey == null) {
-            grid.computeIfAbsent(newKey, k -> new ArrayList<>()).add(unit);
+            getOrCreateCell(newKey).add(unit);
             unitToCellKey.put(unit, newKey);
         } else if (oldKey != newKey) {
             List<Unit> oldCell = grid.get(oldKey);
@@ -49,12 +49,36 @@ public class UnitsSpatialHashGrid {
                 }
             }
 
-            grid.computeIfAbsent(newKey, k -> new ArrayList<>()).add(unit);
+            getOrCreateCell(newKey).add(unit);
             unitToCellKey.put(unit, newKey);
         }
         // If oldKey == newKey, unit is still in same cell - no update needed
     }
 
+    /**
+     * Indexes units that are not in the grid yet, one pass without looking up cells they were in before.
+     * Used by bulk world construction, see {@link io.github.mazs.worlds.WorldBuilder}.
+     */
+    public void addAll(Array<Unit> units) {
+        grid.ensureCapacity(units.size);
+        for (int i = 0; i < units.size; i++) {
+            Unit unit = units.get(i);
+            Vector2 pos = unit.getPosition();
+            long key = getCellKey(pos.x, pos.y);
+            getOrCreateCell(key).add(unit);
+            unitToCellKey.put(unit, key);
+        }
+    }
+
+    private List<Unit> getOrCreateCell(long key) {
+        List<Unit> cell = grid.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>();
+            grid.put(key, cell);
+        }
+        return cell;
+    }
+
     public void remove(Unit unit) {
         Long key = unitToCellKey.remove(unit);
         if (key != null) {
@@ -98,7 +122,15 @@ public class UnitsSpatialHashGrid {
 
     public List<Unit> findUnitsInRectangle(float minX, float minY, float maxX, float maxY) {
         List<Unit> unitsInRect = new ArrayList<>();
+        forEachUnitInRectangle(minX, minY, maxX, maxY, unitsInRect::add);
+        return unitsInRect;
+    }
 
+    /**
+     * Visits units in the rectangle without collecting them, cost depends on the rectangle, not on the number of units
+     * in the world. Every unit lives in exactly one cell, so it is visited once.
+     */
+    public void forEachUnitInRectangle(float minX, float minY, float maxX, float maxY, Consumer<Unit> action) {
         int minCellX = (int) (minX / cellSize);
         int minCellY = (int) (minY / cellSize);
         int maxCellX = (int) (maxX / cellSize);
@@ -110,20 +142,15 @@ public class UnitsSpatialHashGrid {
                 List<Unit> cell = grid.get(key);
 
                 if (cell != null) {
-                    // Check each unit in the cell to see if it's actually within the rectangle
                     for (Unit unit : cell) {
                         Vector2 pos = unit.getPosition();
                         if (pos.x >= minX && pos.x <= maxX && pos.y >= minY && pos.y <= maxY) {
-                            if (!unitsInRect.contains(unit)) {
-                                unitsInRect.add(unit);
-                            }
+                            action.accept(unit);
                         }
                     }
                 }
             }
         }
-
-        return unitsInRect;
     }
 
     public void snapToGrid(Vector2 position) {
@@ -136,25 +163,36 @@ public class UnitsSpatialHashGrid {
         );
     }
 
-    public void drawDebug(SpriteBatch batch, DebugDrawComponent debugDraw) {
-        for (Map.Entry<Long, List<Unit>> entry : grid.entrySet()) {
-            long key = entry.getKey();
-            int cellX = getCellX(key);
-            int cellY = getCellY(key);
-            int unitCount = entry.getValue().size();
-
-            Color color;
-            if (unitCount == 1) {
-                color = new Color(0f, 1f, 0f, 0.3f);
-            } else if (unitCount <= 3) {
-                color = new Color(1f, 1f, 0f, 0.4f);
-            } else {
-                color = new Color(1f, 0f, 0f, 0.5f);
-            }
+    /**
+     * Draws occupied cells inside of given area.
+     */
+    public void drawDebug(DebugDrawComponent debugDraw, Rectangle area) {
+        int minCellX = (int) Math.floor(area.x / cellSize);
+        int minCellY = (int) Math.floor(area.y / cellSize);
+        int maxCellX = (int) Math.floor((area.x + area.width) / cellSize);
+        int maxCellY = (int) Math.floor((area.y + area.height) / cellSize);
 
-            float worldX = cellX * cellSize;
-            float worldY = cellY * cellSize;
-            debugDraw.drawRectangleImmediate(batch, worldX, worldY, cellSize, cellSize, color);
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                List<Unit> cell = grid.get(((long) cellX << 32) | (cellY & 0xFFFFFFFFL));
+                if (cell == null) {
+                    continue;
+                }
+                int unitCount = cell.size();
+
+                Color color;
+                if (unitCount == 1) {
+                    color = ONE_UNIT_COLOR;
+                } else if (unitCount <= 3) {
+                    color = FEW_UNITS_COLOR;
+                } else {
+                    color = MANY_UNITS_COLOR;
+                }
+
+                float worldX = cellX * cellSize;
+                float worldY = cellY * cellSize;
+                debugDraw.fillRectangle(worldX, worldY, cellSize, cellSize, color);
+            }
         }
     }
 
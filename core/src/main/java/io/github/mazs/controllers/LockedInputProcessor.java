@@ -0,0 +1,80 @@
+package io.github.mazs.controllers;
+
+import com.badlogic.gdx.InputProcessor;
+
+/**
+ * Passes input events on while holding a lock, for handlers that touch a world simulated on another thread,
+ * see {@link io.github.mazs.worlds.SimulationRunner#getLock()}.
+ */
+public class LockedInputProcessor implements InputProcessor {
+    private final InputProcessor processor;
+    private final Object lock;
+
+    public LockedInputProcessor(InputProcessor processor, Object lock) {
+        this.processor = processor;
+        this.lock = lock;
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        synchronized (lock) {
+            return processor.keyDown(keycode);
+        }
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        synchronized (lock) {
+            return processor.keyUp(keycode);
+        }
+    }
+
+    @Override
+    public boolean keyTyped(char character) {
+        synchronized (lock) {
+            return processor.keyTyped(character);
+        }
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        synchronized (lock) {
+            return processor.touchDown(screenX, screenY, pointer, button);
+        }
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        synchronized (lock) {
+            return processor.touchUp(screenX, screenY, pointer, button);
+        }
+    }
+
+    @Override
+    public boolean touchCancelled(int screenX, int screenY, int pointer, int button) {
+        synchronized (lock) {
+            return processor.touchCancelled(screenX, screenY, pointer, button);
+        }
+    }
+
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        synchronized (lock) {
+            return processor.touchDragged(screenX, screenY, pointer);
+        }
+    }
+
+    @Override
+    public boolean mouseMoved(int screenX, int screenY) {
+        synchronized (lock) {
+            return processor.mouseMoved(screenX, screenY);
+        }
+    }
+
+    @Override
+    public boolean scrolled(float amountX, float amountY) {
+        synchronized (lock) {
+            return processor.scrolled(amountX, amountY);
+        }
+    }
+}
@@ -7,9 +7,12 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import io.github.mazs.commands.CommandSink;
+import io.github.mazs.commands.MoveCommand;
 import io.github.mazs.components.StatsComponent;
 import io.github.mazs.effects.LeftClickEffect;
 import io.github.mazs.effects.RightClickEffect;
@@ -30,8 +33,10 @@ public class RtsController {
     private OrthographicCamera camera;
     private Viewport viewport;
     private StatsComponent stats;
+    private CommandSink commandSink;
 
     private List<Unit> selectedUnits = new ArrayList<>();
+    private final Rectangle visibleArea = new Rectangle();
 
     private boolean isDragging = false;
     private float dragStartX, dragStartY;
@@ -40,6 +45,8 @@ public class RtsController {
     public RtsController(WorldRts world, StatsComponent stats) {
         this.world = world;
         this.stats = stats;
+        // single player applies commands right away
+        this.commandSink = world::execute;
 
         camera = new OrthographicCamera();
         camera.setToOrtho(false, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
@@ -54,6 +61,22 @@ public class RtsController {
         return viewport;
     }
 
+    /**
+     * @return world area covered by the camera, the rectangle is reused
+     */
+    public Rectangle getVisibleArea() {
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        return visibleArea.set(camera.position.x - width / 2, camera.position.y - height / 2, width, height);
+    }
+
+    /**
+     * @param commandSink receives orders given to selected units, instead of applying them to the world directly
+     */
+    public void setCommandSink(CommandSink commandSink) {
+        this.commandSink = commandSink;
+    }
+
     public void update(float delta) {
         handleCameraMovement(delta);
     }
@@ -116,11 +139,13 @@ public class RtsController {
                 if (button == Input.Buttons.RIGHT) {
                     world.addEffect(new RightClickEffect(world, worldCoords.x, worldCoords.y));
 
-                    selectedUnits.forEach(u -> {
-                        if (u instanceof Moving) {
-                            ((Moving) u).moveTo(worldCoords.x, worldCoords.y);
-                        }
-                    });
+                    int[] unitIds = selectedUnits.stream()
+                        .filter(u -> u instanceof Moving)
+                        .mapToInt(Unit::getId)
+                        .toArray();
+                    if (unitIds.length > 0) {
+                        commandSink.submit(new MoveCommand(unitIds, worldCoords.x, worldCoords.y));
+                    }
                     return true;
                 }
 
@@ -0,0 +1,21 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.ashley.core.EntitySystem;
+
+/**
+ * Advances animation time of every unit. Units only remember when they started, so a tick costs the same no matter
+ * how many units there are.
+ */
+public class AnimationSystem extends EntitySystem {
+    private final UnitStore store;
+
+    public AnimationSystem(UnitStore store, int priority) {
+        super(priority);
+        this.store = store;
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        store.advanceAnimationClock(deltaTime);
+    }
+}
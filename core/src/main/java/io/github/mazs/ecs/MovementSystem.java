@@ -0,0 +1,118 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import io.github.mazs.components.Profiler;
+import io.github.mazs.movement.UnitMovementComponent;
+
+/**
+ * Moves units towards their current target tile.
+ * Units standing on their target tile ask their movement strategy for the next one,
+ * then positions of all moving units are integrated in one pass over {@link UnitStore} arrays.
+ */
+public class MovementSystem extends EntitySystem implements EntityListener {
+    public static final Family FAMILY = Family.all(UnitComponent.class, UnitMovementComponent.class).get();
+
+    private final ComponentMapper<UnitComponent> unitMapper = ComponentMapper.getFor(UnitComponent.class);
+    private final ComponentMapper<UnitMovementComponent> movementMapper = ComponentMapper.getFor(UnitMovementComponent.class);
+
+    private final UnitStore store;
+
+    // kept in the same order, slots are what the integration loop walks
+    private final IntArray slots = new IntArray();
+    private final Array<UnitMovementComponent> movements = new Array<>();
+    private Profiler profiler;
+
+    public MovementSystem(UnitStore store, int priority) {
+        super(priority);
+        this.store = store;
+    }
+
+    /**
+     * @param profiler times decisions of the next tile as "Pathfinding", null to not measure them
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        ImmutableArray<Entity> entities = engine.getEntitiesFor(FAMILY);
+        for (Entity entity : entities) {
+            entityAdded(entity);
+        }
+        engine.addEntityListener(FAMILY, this);
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        engine.removeEntityListener(this);
+        slots.clear();
+        movements.clear();
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        slots.add(unitMapper.get(entity).getSlot());
+        movements.add(movementMapper.get(entity));
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        int index = movements.indexOf(movementMapper.get(entity), true);
+        if (index >= 0) {
+            slots.removeIndex(index);
+            movements.removeIndex(index);
+        }
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        // decisions are made per unit, only for units that arrived at their tile
+        if (profiler != null) {
+            profiler.begin("Pathfinding");
+        }
+        for (int i = 0; i < movements.size; i++) {
+            movements.get(i).updateTargetTile();
+        }
+        if (profiler != null) {
+            profiler.end();
+        }
+
+        int[] moving = slots.items;
+        float[] x = store.x;
+        float[] y = store.y;
+        float[] prevX = store.prevX;
+        float[] prevY = store.prevY;
+        float[] targetX = store.targetX;
+        float[] targetY = store.targetY;
+        float[] speed = store.speed;
+
+        for (int i = 0, n = slots.size; i < n; i++) {
+            int s = moving[i];
+            prevX[s] = x[s];
+            prevY[s] = y[s];
+
+            float dx = targetX[s] - x[s];
+            float dy = targetY[s] - y[s];
+            float distanceToTarget = (float) Math.sqrt(dx * dx + dy * dy);
+            float moveDistance = speed[s] * deltaTime;
+
+            if (moveDistance >= distanceToTarget) {
+                x[s] = targetX[s];
+                y[s] = targetY[s];
+            } else {
+                float k = moveDistance / distanceToTarget;
+                x[s] += dx * k;
+                y[s] += dy * k;
+            }
+        }
+    }
+}
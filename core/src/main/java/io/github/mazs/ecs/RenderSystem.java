@@ -0,0 +1,219 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import io.github.mazs.movement.UnitMovementComponent;
+import io.github.mazs.units.Unit;
+
+import java.util.Arrays;
+
+/**
+ * Draws units seen by the camera from top to bottom, so units lower on the screen overlap the ones behind them.
+ * The order is maintained instead of sorted every frame: units that don't move are kept in buckets per tile row,
+ * sorted by x once when added, and moving units are kept in an array that is only nearly out of order between frames,
+ * so an insertion sort fixes it in time proportional to how many of them moved past each other.
+ * Both are merged row by row while drawing, only rows and columns around the visible area are visited.
+ * It does not run as part of the simulation tick, {@link #render(SpriteBatch, float, Rectangle)} is called from world
+ * rendering, or {@link #collect(Rectangle)} when a snapshot of the tick is drawn later.
+ */
+public class RenderSystem extends EntitySystem implements EntityListener {
+    /**
+     * How far a sprite may reach out of its unit's tile, units this close to the visible area are drawn too.
+     */
+    public static final float CULLING_MARGIN = 64f;
+
+    private static final Family FAMILY = Family.all(UnitComponent.class).get();
+
+    private final ComponentMapper<UnitComponent> unitMapper = ComponentMapper.getFor(UnitComponent.class);
+    private final ComponentMapper<UnitMovementComponent> movementMapper =
+        ComponentMapper.getFor(UnitMovementComponent.class);
+
+    private final UnitStore store;
+    private final int tileSize;
+    // static units by tile row, each row sorted by x, null when the row has none
+    private final Array<Unit>[] staticRows;
+    // moving units, top to bottom as of the last render
+    private final Array<Unit> dynamicUnits = new Array<>(Unit[]::new);
+    private final Array<Unit> visibleUnits = new Array<>(Unit[]::new);
+
+    @SuppressWarnings("unchecked")
+    public RenderSystem(UnitStore store, int tileSize, int heightTiles) {
+        this.store = store;
+        this.tileSize = tileSize;
+        this.staticRows = (Array<Unit>[]) new Array<?>[heightTiles];
+        setProcessing(false);
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        ImmutableArray<Entity> entities = engine.getEntitiesFor(FAMILY);
+        for (Entity entity : entities) {
+            entityAdded(entity);
+        }
+        engine.addEntityListener(FAMILY, this);
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        engine.removeEntityListener(this);
+        Arrays.fill(staticRows, null);
+        dynamicUnits.clear();
+        visibleUnits.clear();
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        Unit unit = unitMapper.get(entity).getUnit();
+        if (movementMapper.has(entity)) {
+            // sorted into place by the next render
+            dynamicUnits.add(unit);
+            return;
+        }
+        int row = rowOf(unit);
+        Array<Unit> units = staticRows[row];
+        if (units == null) {
+            units = new Array<>();
+            staticRows[row] = units;
+        }
+        units.insert(firstAtOrRightOf(units, store.x[unit.getSlot()]), unit);
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        Unit unit = unitMapper.get(entity).getUnit();
+        if (movementMapper.has(entity)) {
+            dynamicUnits.removeValue(unit, true);
+        } else {
+            Array<Unit> units = staticRows[rowOf(unit)];
+            if (units != null) {
+                units.removeValue(unit, true);
+            }
+        }
+    }
+
+    /**
+     * @param visibleArea world area seen by the camera, units outside of it are not drawn
+     */
+    public void render(SpriteBatch batch, float alpha, Rectangle visibleArea) {
+        collect(visibleArea);
+        draw(batch, alpha);
+    }
+
+    /**
+     * Draws units found by the last {@link #collect(Rectangle)}.
+     */
+    public void draw(SpriteBatch batch, float alpha) {
+        Unit[] units = visibleUnits.items;
+        for (int i = 0, n = visibleUnits.size; i < n; i++) {
+            units[i].render(batch, alpha);
+        }
+    }
+
+    /**
+     * Finds units to draw without drawing them, see {@link #getVisibleUnits()}.
+     *
+     * @param visibleArea world area seen by the camera, units outside of it are left out
+     */
+    public void collect(Rectangle visibleArea) {
+        visibleUnits.clear();
+        sortDynamicUnits();
+
+        float minX = visibleArea.x - CULLING_MARGIN;
+        float minY = visibleArea.y - CULLING_MARGIN;
+        float maxX = visibleArea.x + visibleArea.width + CULLING_MARGIN;
+        float maxY = visibleArea.y + visibleArea.height + CULLING_MARGIN;
+        int topRow = Math.min(staticRows.length - 1, (int) Math.floor(maxY / tileSize));
+        int bottomRow = Math.max(0, (int) Math.floor(minY / tileSize));
+
+        float[] x = store.x;
+        float[] y = store.y;
+        int next = 0;
+        for (int row = topRow; row >= bottomRow; row--) {
+            // moving units above the middle of the row go before its static units
+            float rowY = row * tileSize + tileSize / 2f;
+            for (; next < dynamicUnits.size && y[dynamicUnits.get(next).getSlot()] > rowY; next++) {
+                addIfVisible(dynamicUnits.get(next), minX, minY, maxX, maxY);
+            }
+
+            Array<Unit> units = staticRows[row];
+            // static units stand in the middle of their tile
+            if (units == null || rowY < minY || rowY > maxY) {
+                continue;
+            }
+            for (int i = firstAtOrRightOf(units, minX); i < units.size; i++) {
+                Unit unit = units.get(i);
+                if (x[unit.getSlot()] > maxX) {
+                    break;
+                }
+                visibleUnits.add(unit);
+            }
+        }
+        for (; next < dynamicUnits.size; next++) {
+            addIfVisible(dynamicUnits.get(next), minX, minY, maxX, maxY);
+        }
+    }
+
+    private void addIfVisible(Unit unit, float minX, float minY, float maxX, float maxY) {
+        int slot = unit.getSlot();
+        float x = store.x[slot];
+        float y = store.y[slot];
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+            visibleUnits.add(unit);
+        }
+    }
+
+    /**
+     * Insertion sort top to bottom, close to linear because units move little between frames.
+     */
+    private void sortDynamicUnits() {
+        Unit[] units = dynamicUnits.items;
+        float[] y = store.y;
+        for (int i = 1, n = dynamicUnits.size; i < n; i++) {
+            Unit unit = units[i];
+            float unitY = y[unit.getSlot()];
+            int j = i - 1;
+            while (j >= 0 && y[units[j].getSlot()] < unitY) {
+                units[j + 1] = units[j];
+                j--;
+            }
+            units[j + 1] = unit;
+        }
+    }
+
+    /**
+     * @return index of the first unit of the row at or right of x, the row's size when there is none
+     */
+    private int firstAtOrRightOf(Array<Unit> units, float x) {
+        int low = 0;
+        int high = units.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.x[units.get(middle).getSlot()] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int rowOf(Unit unit) {
+        int row = (int) (store.y[unit.getSlot()] / tileSize);
+        return Math.max(0, Math.min(staticRows.length - 1, row));
+    }
+
+    /**
+     * @return units drawn by the last render or found by the last collect, top to bottom
+     */
+    public Array<Unit> getVisibleUnits() {
+        return visibleUnits;
+    }
+}
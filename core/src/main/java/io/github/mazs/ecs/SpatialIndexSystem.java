@@ -0,0 +1,31 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.systems.IteratingSystem;
+import io.github.mazs.components.UnitsSpatialHashGrid;
+
+/**
+ * Keeps {@link UnitsSpatialHashGrid} in sync with positions of moving units.
+ * Static units are indexed once when created and never visited here.
+ */
+public class SpatialIndexSystem extends IteratingSystem {
+    private final ComponentMapper<UnitComponent> unitMapper = ComponentMapper.getFor(UnitComponent.class);
+
+    private final UnitStore store;
+    private final UnitsSpatialHashGrid spatialGrid;
+
+    public SpatialIndexSystem(UnitStore store, UnitsSpatialHashGrid spatialGrid, int priority) {
+        super(MovementSystem.FAMILY, priority);
+        this.store = store;
+        this.spatialGrid = spatialGrid;
+    }
+
+    @Override
+    protected void processEntity(Entity entity, float deltaTime) {
+        int slot = unitMapper.get(entity).getSlot();
+        if (store.x[slot] != store.prevX[slot] || store.y[slot] != store.prevY[slot]) {
+            spatialGrid.update(store.getUnit(slot));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.ashley.core.Component;
+
+/**
+ * Marks entity as one that makes decisions, {@link ThinkSystem} assigns it a bucket when added to engine.
+ */
+public class ThinkComponent implements Component {
+    int bucket = -1;
+
+    public int getBucket() {
+        return bucket;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import io.github.mazs.movement.PatrolComponent;
+import io.github.mazs.movement.UnitMovementComponent;
+
+/**
+ * Schedules expensive decisions (patrol logic, re-planning after a failed move) of thinking units.
+ * Units are spread round-robin over buckets and every tick only one bucket thinks,
+ * so each unit thinks once per bucketCount ticks and the cost is the same every tick.
+ * Stepping between tiles is not affected, it still runs every tick in {@link MovementSystem}.
+ */
+public class ThinkSystem extends EntitySystem implements EntityListener {
+    public static final float DEFAULT_THINK_INTERVAL = 1f;
+
+    private static final Family FAMILY = Family.all(UnitComponent.class, ThinkComponent.class)
+        .one(UnitMovementComponent.class, PatrolComponent.class)
+        .get();
+
+    private final ComponentMapper<ThinkComponent> thinkMapper = ComponentMapper.getFor(ThinkComponent.class);
+    private final ComponentMapper<UnitMovementComponent> movementMapper = ComponentMapper.getFor(UnitMovementComponent.class);
+    private final ComponentMapper<PatrolComponent> patrolMapper = ComponentMapper.getFor(PatrolComponent.class);
+
+    private final Array<Entity>[] buckets;
+    private int currentBucket = 0;
+    private int nextBucket = 0;
+
+    @SuppressWarnings("unchecked")
+    public ThinkSystem(int bucketCount, int priority) {
+        super(priority);
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("bucketCount must be positive: " + bucketCount);
+        }
+        buckets = (Array<Entity>[]) new Array<?>[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Array<>(false, 16);
+        }
+    }
+
+    /**
+     * @param tickRate      simulation ticks per second
+     * @param thinkInterval seconds between two decisions of the same unit
+     * @return how many buckets are needed for units to think once per thinkInterval
+     */
+    public static int bucketsFor(int tickRate, float thinkInterval) {
+        return Math.max(1, Math.round(tickRate * thinkInterval));
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        ImmutableArray<Entity> entities = engine.getEntitiesFor(FAMILY);
+        for (Entity entity : entities) {
+            entityAdded(entity);
+        }
+        engine.addEntityListener(FAMILY, this);
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        engine.removeEntityListener(this);
+        for (Array<Entity> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        ThinkComponent think = thinkMapper.get(entity);
+        think.bucket = nextBucket;
+        buckets[nextBucket].add(entity);
+        nextBucket = (nextBucket + 1) % buckets.length;
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        ThinkComponent think = thinkMapper.get(entity);
+        if (think.bucket >= 0) {
+            buckets[think.bucket].removeValue(entity, true);
+            think.bucket = -1;
+        }
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        Array<Entity> bucket = buckets[currentBucket];
+        // time since the bucket thought last time
+        float thinkDelta = deltaTime * buckets.length;
+
+        for (int i = 0; i < bucket.size; i++) {
+            Entity entity = bucket.get(i);
+
+            UnitMovementComponent movement = movementMapper.get(entity);
+            if (movement != null) {
+                movement.think();
+            }
+
+            PatrolComponent patrol = patrolMapper.get(entity);
+            if (patrol != null) {
+                patrol.update(thinkDelta);
+            }
+        }
+
+        currentBucket = (currentBucket + 1) % buckets.length;
+    }
+
+    public int getBucketCount() {
+        return buckets.length;
+    }
+
+    public int getBucketSize(int bucket) {
+        return buckets[bucket].size;
+    }
+}
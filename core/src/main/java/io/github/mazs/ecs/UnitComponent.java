@@ -0,0 +1,26 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.ashley.core.Component;
+import io.github.mazs.units.Unit;
+
+/**
+ * Links entity to its unit and to the unit's slot in {@link UnitStore}.
+ * Every unit entity has one.
+ */
+public class UnitComponent implements Component {
+    private final Unit unit;
+    private final int slot;
+
+    public UnitComponent(Unit unit, int slot) {
+        this.unit = unit;
+        this.slot = slot;
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.mazs.ecs;
+
+import com.badlogic.gdx.utils.IntArray;
+import io.github.mazs.units.Unit;
+
+/**
+ * Struct-of-arrays storage for per-unit data that systems touch every tick.
+ * Every unit owns one slot; systems iterate slots and read/write the arrays directly,
+ * so hot loops walk tightly packed floats instead of chasing unit objects.
+ * Freed slots are reused by the next allocated unit.
+ */
+public class UnitStore {
+    private static final int INITIAL_CAPACITY = 256;
+
+    float[] x;
+    float[] y;
+    float[] prevX;
+    float[] prevY;
+    // tile the unit is currently stepping to
+    float[] targetX;
+    float[] targetY;
+    float[] speed;
+    // animation clock at allocation, the only per unit animation state, animations themselves are shared
+    private double[] animationStart;
+    private double animationClock = 0;
+    private Unit[] units;
+
+    private int size = 0;
+    private final IntArray freeSlots = new IntArray();
+
+    public UnitStore() {
+        resize(INITIAL_CAPACITY);
+    }
+
+    public int allocate(Unit unit, float px, float py) {
+        int slot;
+        if (freeSlots.notEmpty()) {
+            slot = freeSlots.pop();
+        } else {
+            if (size == x.length) {
+                resize(x.length * 2);
+            }
+            slot = size++;
+        }
+
+        units[slot] = unit;
+        x[slot] = px;
+        y[slot] = py;
+        prevX[slot] = px;
+        prevY[slot] = py;
+        targetX[slot] = px;
+        targetY[slot] = py;
+        speed[slot] = 0f;
+        animationStart[slot] = animationClock;
+        return slot;
+    }
+
+    public void free(int slot) {
+        if (units[slot] == null) {
+            return;
+        }
+        units[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    private void resize(int capacity) {
+        x = copy(x, capacity);
+        y = copy(y, capacity);
+        prevX = copy(prevX, capacity);
+        prevY = copy(prevY, capacity);
+        targetX = copy(targetX, capacity);
+        targetY = copy(targetY, capacity);
+        speed = copy(speed, capacity);
+
+        double[] newAnimationStart = new double[capacity];
+        if (animationStart != null) {
+            System.arraycopy(animationStart, 0, newAnimationStart, 0, size);
+        }
+        animationStart = newAnimationStart;
+
+        Unit[] newUnits = new Unit[capacity];
+        if (units != null) {
+            System.arraycopy(units, 0, newUnits, 0, size);
+        }
+        units = newUnits;
+    }
+
+    private float[] copy(float[] source, int capacity) {
+        float[] result = new float[capacity];
+        if (source != null) {
+            System.arraycopy(source, 0, result, 0, size);
+        }
+        return result;
+    }
+
+    /**
+     * @return one past the highest slot ever used, slots below it may be free
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public Unit getUnit(int slot) {
+        return units[slot];
+    }
+
+    public float getX(int slot) {
+        return x[slot];
+    }
+
+    public float getY(int slot) {
+        return y[slot];
+    }
+
+    public float getPrevX(int slot) {
+        return prevX[slot];
+    }
+
+    public float getPrevY(int slot) {
+        return prevY[slot];
+    }
+
+    /**
+     * Places unit without interpolating from where it was.
+     */
+    public void setPosition(int slot, float px, float py) {
+        x[slot] = px;
+        y[slot] = py;
+        prevX[slot] = px;
+        prevY[slot] = py;
+    }
+
+    /**
+     * Moves unit, rendering interpolates from where it was.
+     */
+    public void setPositionInterpolated(int slot, float px, float py) {
+        prevX[slot] = x[slot];
+        prevY[slot] = y[slot];
+        x[slot] = px;
+        y[slot] = py;
+    }
+
+    public float getTargetX(int slot) {
+        return targetX[slot];
+    }
+
+    public float getTargetY(int slot) {
+        return targetY[slot];
+    }
+
+    public void setTarget(int slot, float tx, float ty) {
+        targetX[slot] = tx;
+        targetY[slot] = ty;
+    }
+
+    public void setSpeed(int slot, float value) {
+        speed[slot] = value;
+    }
+
+    /**
+     * Advances animations of all units at once.
+     */
+    public void advanceAnimationClock(float delta) {
+        animationClock += delta;
+    }
+
+    /**
+     * @return seconds the unit has been animated for
+     */
+    public float getAnimationTime(int slot) {
+        return (float) (animationClock - animationStart[slot]);
+    }
+}
@@ -1,20 +1,23 @@
 package io.github.mazs.effects;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import io.github.mazs.worlds.RenderSnapshot;
 
 // Represents a temporary visual effect
 // well... it works
 public abstract class AnimationEffect {
-    private final Texture texture;
+    private static final float RENDER_SIZE = 32;
+
+    private final TextureRegion region;
     private final float x;
     private final float y;
     private float lifetime;
     private float maxLifetime;
     private boolean finished;
 
-    public AnimationEffect(Texture texture, float x, float y, float duration) {
-        this.texture = texture;
+    public AnimationEffect(TextureRegion region, float x, float y, float duration) {
+        this.region = region;
         this.x = x;
         this.y = y;
         this.maxLifetime = duration;
@@ -41,21 +44,29 @@ public abstract class AnimationEffect {
      */
     public void render(SpriteBatch batch) {
         if (!finished) {
-            // Calculate fade out alpha based on remaining lifetime
-            float alpha = 1f - (lifetime / maxLifetime);
-
-            final float renderSize = 32;
-
-            float drawX = x - renderSize / 2f;
-            float drawY = y - renderSize / 2f;
-
             // Draw with fade out effect
-            batch.setColor(1f, 1f, 1f, alpha);
-            batch.draw(texture, drawX, drawY, renderSize, renderSize);
+            batch.setColor(1f, 1f, 1f, getFade());
+            batch.draw(region, x - RENDER_SIZE / 2f, y - RENDER_SIZE / 2f, RENDER_SIZE, RENDER_SIZE);
             batch.setColor(1f, 1f, 1f, 1f);
         }
     }
 
+    /**
+     * Adds the effect as it is now to a snapshot drawn while the simulation runs on.
+     */
+    public void snapshot(RenderSnapshot out) {
+        if (!finished) {
+            out.addEffect(region, x - RENDER_SIZE / 2f, y - RENDER_SIZE / 2f, RENDER_SIZE, getFade());
+        }
+    }
+
+    /**
+     * @return fade out alpha based on remaining lifetime
+     */
+    private float getFade() {
+        return 1f - (lifetime / maxLifetime);
+    }
+
     public boolean isFinished() {
         return finished;
     }
@@ -6,7 +6,7 @@ public class RightClickEffect extends AnimationEffect {
 
     public RightClickEffect(WorldRts world, float x, float y) {
         super(
-            world.assertsManager.getTexture("TinySwords/UI Elements/UI Elements/Cursors/Cursor_02.png"),
+            world.assertsManager.getRegion("TinySwords/UI Elements/UI Elements/Cursors/Cursor_02.png"),
             x, y, 1);
     }
 }
@@ -0,0 +1,64 @@
+package io.github.mazs.metrics;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Appends every snapshot to a file as one line, JSON objects or CSV rows. A CSV header is written before the first
+ * row and again whenever the set of metrics changed.
+ * Lines are flushed right away, so a soak run that is killed keeps everything sampled until then.
+ */
+public class MetricsFileSink implements MetricsSink {
+    public enum Format {
+        JSON_LINES,
+        CSV;
+
+        /**
+         * @return CSV for paths ending with .csv, JSON lines otherwise
+         */
+        public static Format forPath(String path) {
+            return path.toLowerCase().endsWith(".csv") ? CSV : JSON_LINES;
+        }
+    }
+
+    private final Writer writer;
+    private final Format format;
+    // names of the last header written, null before the first row
+    private MetricsSnapshot header;
+
+    /**
+     * Creates the file, or truncates it, the format is given by its extension, see {@link Format#forPath(String)}.
+     */
+    public MetricsFileSink(FileHandle file) {
+        this(new BufferedWriter(file.writer(false, "UTF-8")), Format.forPath(file.name()));
+    }
+
+    public MetricsFileSink(Writer writer, Format format) {
+        this.writer = writer;
+        this.format = format;
+    }
+
+    @Override
+    public void write(MetricsSnapshot snapshot) throws IOException {
+        if (format == Format.CSV) {
+            if (header == null || !header.hasSameNames(snapshot)) {
+                writer.write(snapshot.toCsvHeader());
+                writer.write('\n');
+                header = snapshot;
+            }
+            writer.write(snapshot.toCsvRow());
+        } else {
+            writer.write(snapshot.toJson());
+        }
+        writer.write('\n');
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.mazs.metrics;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Where metrics go, given by the platform launcher as --metrics=file, --metrics-port=port and
+ * --metrics-interval=seconds.
+ */
+public class MetricsOptions {
+    public static final float DEFAULT_INTERVAL_SECONDS = 1f;
+
+    // .csv for CSV, anything else for JSON lines, null to not write a file
+    public final FileHandle file;
+    // 0 to not serve metrics
+    public final int port;
+    public final float intervalSeconds;
+    // null when the platform can't serve metrics
+    public final MetricsServer.Factory serverFactory;
+
+    /**
+     * @param file            see {@link MetricsFileSink.Format#forPath}
+     * @param port            port passed to the server factory
+     * @param intervalSeconds wall clock time between samples
+     * @param serverFactory   serves metrics on the port, required when a port is given
+     */
+    public MetricsOptions(FileHandle file, int port, float intervalSeconds, MetricsServer.Factory serverFactory) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Metrics port " + port + " is not a valid port");
+        }
+        if (port > 0 && serverFactory == null) {
+            throw new IllegalArgumentException("Metrics can't be served on this platform");
+        }
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Metrics interval must be positive, was " + intervalSeconds);
+        }
+        this.file = file;
+        this.port = port;
+        this.intervalSeconds = intervalSeconds;
+        this.serverFactory = serverFactory;
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.mazs.metrics;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.io.IOException;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named values sampled together every interval, written to sinks and served by a {@link MetricsServer}.
+ * Values are read through suppliers only when a sample is taken on the thread calling {@link #update()}, usually
+ * the one updating the world, so they don't have to be thread safe. Other threads only see finished snapshots.
+ * Counters are sampled as totals, rates are left to whatever reads the samples.
+ */
+public class MetricsRegistry {
+    private static final String TAG = "Metrics";
+
+    private final long intervalMillis;
+    private final Array<String> names = new Array<>();
+    private final Array<DoubleSupplier> gauges = new Array<>();
+    private final Array<MetricsSink> sinks = new Array<>();
+    private long nextSampleMillis = 0;
+    private volatile MetricsSnapshot latest;
+
+    /**
+     * @param intervalSeconds wall clock time between samples
+     */
+    public MetricsRegistry(float intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Metrics interval must be positive, was " + intervalSeconds);
+        }
+        this.intervalMillis = (long) (intervalSeconds * 1000);
+    }
+
+    /**
+     * @param name lower case letters, digits, '_' and '.', e.g. world.units, written to files as it is
+     * @throws IllegalArgumentException when the name is not valid or already registered
+     */
+    public void gauge(String name, DoubleSupplier value) {
+        if (!name.matches("[a-z0-9_.]+")) {
+            throw new IllegalArgumentException("Metric name " + name + " has other characters than a-z, 0-9, _ and .");
+        }
+        if (names.contains(name, false)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered");
+        }
+        names.add(name);
+        gauges.add(value);
+    }
+
+    /**
+     * @param sink receives every following snapshot, closed by {@link #dispose()}
+     */
+    public void addSink(MetricsSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Takes a sample when the interval passed since the last one, call it every frame or tick.
+     */
+    public void update() {
+        long now = TimeUtils.millis();
+        if (now >= nextSampleMillis) {
+            nextSampleMillis = now + intervalMillis;
+            sample();
+        }
+    }
+
+    /**
+     * Reads every metric now and writes the snapshot to all sinks. A sink that fails is closed and dropped, the
+     * game goes on without it.
+     */
+    public MetricsSnapshot sample() {
+        double[] values = new double[gauges.size];
+        for (int i = 0; i < gauges.size; i++) {
+            values[i] = gauges.get(i).getAsDouble();
+        }
+        MetricsSnapshot snapshot = new MetricsSnapshot(TimeUtils.millis(), names.toArray(String[]::new), values);
+        latest = snapshot;
+
+        for (int i = sinks.size - 1; i >= 0; i--) {
+            MetricsSink sink = sinks.get(i);
+            try {
+                sink.write(snapshot);
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Can't write metrics, dropping the sink", e);
+                sinks.removeIndex(i);
+                close(sink);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return last sample, null before the first one. Safe to call from any thread.
+     */
+    public MetricsSnapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * Takes a last sample, so the end of a run is in the files, and closes the sinks.
+     */
+    public void dispose() {
+        sample();
+        for (MetricsSink sink : sinks) {
+            close(sink);
+        }
+        sinks.clear();
+    }
+
+    private static void close(MetricsSink sink) {
+        try {
+            sink.close();
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Can't close metrics sink", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.mazs.metrics;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.Gdx;
+import io.github.mazs.ecs.MovementSystem;
+import io.github.mazs.movement.hpa.AStarPathfinder;
+import io.github.mazs.movement.hpa.ClustersManager;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.IOException;
+
+/**
+ * A {@link MetricsRegistry} with the file and the server asked for by {@link MetricsOptions}, used the same way by the
+ * game and the headless runtime.
+ */
+public class MetricsReporter {
+    private static final String TAG = "Metrics";
+    private static final double BYTES_TO_MB = 1024.0 * 1024.0;
+
+    private final MetricsRegistry registry;
+    private MetricsServer server;
+
+    public MetricsReporter(MetricsOptions options) throws IOException {
+        registry = new MetricsRegistry(options.intervalSeconds);
+        if (options.file != null) {
+            registry.addSink(new MetricsFileSink(options.file));
+            Gdx.app.log(TAG, String.format("Writing metrics to %s every %.1f s", options.file.path(),
+                options.intervalSeconds));
+        }
+        if (options.port > 0) {
+            server = options.serverFactory.start(registry, options.port);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        registry.gauge("jvm.heap_used_mb", () -> (runtime.totalMemory() - runtime.freeMemory()) / BYTES_TO_MB);
+    }
+
+    /**
+     * Registers size of the world and work of pathfinding. Path searches are counted over the whole process, local
+     * searches inside clusters included, see {@link AStarPathfinder#getSearchCount()}.
+     */
+    public void addWorld(WorldRts world) {
+        ClustersManager clusters = world.getClustersManager();
+        ImmutableArray<Entity> moving = world.getEngine().getEntitiesFor(MovementSystem.FAMILY);
+        registry.gauge("world.tick", world::getTick);
+        registry.gauge("world.units", world::getUnitCount);
+        registry.gauge("world.moving_units", moving::size);
+        registry.gauge("world.clusters_generated", clusters::getGeneratedClusterCount);
+        registry.gauge("path.searches", AStarPathfinder::getSearchCount);
+        registry.gauge("path.failed_searches", AStarPathfinder::getFailedSearchCount);
+        registry.gauge("path.nodes_checked", AStarPathfinder::getNodesCheckedCount);
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Samples when the interval passed, call it on the thread that updates the world.
+     */
+    public void update() {
+        registry.update();
+    }
+
+    public void dispose() {
+        if (server != null) {
+            server.dispose();
+        }
+        registry.dispose();
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.mazs.metrics;
+
+import java.io.IOException;
+
+/**
+ * Serves the latest snapshot of a {@link MetricsRegistry} to other processes, e.g. over HTTP. Core has no sockets on
+ * every platform, launchers that have them pass a {@link Factory} in {@link MetricsOptions}.
+ */
+public interface MetricsServer {
+    /**
+     * Stops serving, requests being answered are cut off.
+     */
+    void dispose();
+
+    interface Factory {
+        /**
+         * Starts serving snapshots of the registry, reading {@link MetricsRegistry#getLatest()} from its own threads.
+         *
+         * @throws IOException when the port can't be opened
+         */
+        MetricsServer start(MetricsRegistry registry, int port) throws IOException;
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.mazs.metrics;
+
+import java.io.IOException;
+
+/**
+ * Receives every snapshot taken by a {@link MetricsRegistry}, on the thread that took it.
+ */
+public interface MetricsSink {
+    void write(MetricsSnapshot snapshot) throws IOException;
+
+    void close() throws IOException;
+}
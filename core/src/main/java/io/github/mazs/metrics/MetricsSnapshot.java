@@ -0,0 +1,97 @@
+package io.github.mazs.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Values of all metrics of a registry at one moment, see {@link MetricsRegistry#sample()}. Immutable, so it can be
+ * handed to other threads.
+ */
+public class MetricsSnapshot {
+    private final long timeMillis;
+    private final String[] names;
+    private final double[] values;
+
+    MetricsSnapshot(long timeMillis, String[] names, double[] values) {
+        this.timeMillis = timeMillis;
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * @return wall clock time of the sample, milliseconds since the epoch
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int getCount() {
+        return names.length;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return value of the named metric, NaN when there is no such metric
+     */
+    public double getValue(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return values[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+    boolean hasSameNames(MetricsSnapshot other) {
+        return Arrays.equals(names, other.names);
+    }
+
+    /**
+     * @return one line JSON object with the time and every metric, e.g. {"time":1700000000000,"world.units":42}
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(32 + names.length * 24);
+        json.append("{\"time\":").append(timeMillis);
+        for (int i = 0; i < names.length; i++) {
+            json.append(",\"").append(names[i]).append("\":");
+            appendValue(json, values[i], "null");
+        }
+        return json.append('}').toString();
+    }
+
+    public String toCsvHeader() {
+        StringBuilder header = new StringBuilder("time");
+        for (String name : names) {
+            header.append(',').append(name);
+        }
+        return header.toString();
+    }
+
+    public String toCsvRow() {
+        StringBuilder row = new StringBuilder().append(timeMillis);
+        for (double value : values) {
+            row.append(',');
+            appendValue(row, value, "");
+        }
+        return row.toString();
+    }
+
+    /**
+     * Whole numbers are written without a fraction, counters stay readable and compare exactly.
+     */
+    private static void appendValue(StringBuilder out, double value, String missing) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append(missing);
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+}
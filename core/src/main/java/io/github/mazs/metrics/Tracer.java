@@ -0,0 +1,62 @@
+package io.github.mazs.metrics;
+
+import io.github.mazs.movement.hpa.PathfindingGraph;
+import io.github.mazs.movement.hpa.PathfindingResult;
+
+/**
+ * Receives frame phases, path searches, cluster generation and asset loads for an event recorder outside the game,
+ * e.g. Java Flight Recorder, see {@link Tracing}. A begun span is always ended on the same thread, spans of one kind
+ * nest. Callers ask the isEnabled methods before measuring anything for a span, so a tracer that isn't recording
+ * costs them one call. Every method does nothing by default, that is {@link #NONE}.
+ */
+public interface Tracer {
+    Tracer NONE = new Tracer() {
+    };
+
+    /**
+     * Phases are named like scopes of {@link io.github.mazs.components.StatsComponent}, which begins them.
+     */
+    default void beginPhase(String name) {
+    }
+
+    default void endPhase() {
+    }
+
+    default boolean isPathSearchEnabled() {
+        return false;
+    }
+
+    default void beginPathSearch() {
+    }
+
+    /**
+     * @param result null when the search threw
+     */
+    default void endPathSearch(PathfindingGraph graph, PathfindingResult result) {
+    }
+
+    default boolean isClusterGenerationEnabled() {
+        return false;
+    }
+
+    /**
+     * @param clusterX cluster coordinates, not tiles
+     */
+    default void beginClusterGeneration(int clusterX, int clusterY) {
+    }
+
+    default void endClusterGeneration(int gateCount) {
+    }
+
+    default boolean isAssetLoadEnabled() {
+        return false;
+    }
+
+    /**
+     * Assets are loaded by libGDX in slices across frames, so a load is reported once it is done.
+     *
+     * @param preloaded loaded behind the loading screen, otherwise it stalled the frame asking for it
+     */
+    default void assetLoaded(String path, String type, boolean preloaded, long durationNanos) {
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.mazs.metrics;
+
+/**
+ * The tracer of the process. It is {@link Tracer#NONE} unless a launcher installs one before the game starts,
+ * it isn't meant to be changed while threads use it.
+ */
+public final class Tracing {
+    private static Tracer tracer = Tracer.NONE;
+
+    private Tracing() {
+    }
+
+    public static Tracer get() {
+        return tracer;
+    }
+
+    public static void set(Tracer tracer) {
+        Tracing.tracer = tracer != null ? tracer : Tracer.NONE;
+    }
+}
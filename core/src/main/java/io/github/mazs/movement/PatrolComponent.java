@@ -1,12 +1,14 @@
 package io.github.mazs.movement;
 
+import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.math.Vector2;
 import io.github.mazs.units.Unit;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class PatrolComponent {
+public class PatrolComponent implements Component {
     private final Unit owner;
     private final UnitMovementComponent movementComponent;
     private final List<Vector2> patrolPoints = new ArrayList<>();
@@ -32,6 +34,13 @@ public class PatrolComponent {
     }
 
     public void setPatrolPoints(List<Vector2> points) {
+        setPatrolPoints(points, 0);
+    }
+
+    /**
+     * @param startIndex patrol point unit goes to first
+     */
+    public void setPatrolPoints(List<Vector2> points, int startIndex) {
         patrolPoints.clear();
         if (points == null || points.isEmpty()) {
             return;
@@ -41,9 +50,16 @@ public class PatrolComponent {
             patrolPoints.add(new Vector2(point));
         }
 
-        currentPointIndex = 0;
-        Vector2 firstPoint = patrolPoints.get(0);
+        currentPointIndex = Math.floorMod(startIndex, patrolPoints.size());
+        Vector2 firstPoint = patrolPoints.get(currentPointIndex);
         movementComponent.moveTo(firstPoint.x, firstPoint.y);
     }
 
+    public List<Vector2> getPatrolPoints() {
+        return Collections.unmodifiableList(patrolPoints);
+    }
+
+    public int getCurrentPointIndex() {
+        return currentPointIndex;
+    }
 }
@@ -1,40 +1,48 @@
 package io.github.mazs.movement;
 
+import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.math.Vector2;
 import io.github.mazs.components.TileUtils;
+import io.github.mazs.ecs.UnitStore;
 import io.github.mazs.movement.hpa.HpaPathFindingStrategy;
 import io.github.mazs.units.Unit;
 
-import java.util.Optional;
-
 import static io.github.mazs.components.TileUtils.hasReachedTile;
 
-public class UnitMovementComponent {
+/**
+ * Decides which tile unit steps to next.
+ * Stepping itself is done by {@link io.github.mazs.ecs.MovementSystem} using the target tile kept in {@link UnitStore}.
+ */
+public class UnitMovementComponent implements Component {
     private Unit owner;
+    private final UnitStore store;
     private final Vector2 finalTargetPosition;
-    private final Vector2 currentTargetTile;
-    private float movementSpeed;
+    private final Vector2 currentTargetTile = new Vector2();
     private final IMovementStrategy movementStrategy;
-
-    private final Vector2 tempDirection = new Vector2();
+    // strategy could not find next tile, don't ask again until unit thinks
+    private boolean waitingForReplan = false;
 
     public UnitMovementComponent(Unit owner, float movementSpeed) {
         this.owner = owner;
-        this.movementSpeed = movementSpeed;
+        this.store = owner.getWorld().getUnitStore();
         this.finalTargetPosition = new Vector2(owner.getPosition());
-        this.currentTargetTile = new Vector2(owner.getPosition());
         this.movementStrategy = new HpaPathFindingStrategy(
             owner.getWorld().getClustersManager(),
             owner.getWorld().getSpatialGrid()
         );
+        store.setSpeed(owner.getSlot(), movementSpeed);
     }
 
-    public void update(float delta) {
+    /**
+     * Asks movement strategy for the next tile, once unit reached its current one.
+     */
+    public void updateTargetTile() {
         Vector2 unitPosition = owner.getPosition();
+        int slot = owner.getSlot();
+        currentTargetTile.set(store.getTargetX(slot), store.getTargetY(slot));
 
-        // Step 1: If we haven't reached current target tile, move towards it
+        // Step 1: If we haven't reached current target tile, keep moving towards it
         if (!hasReachedTile(unitPosition, currentTargetTile)) {
-            moveTowardsTile(delta);
             return;
         }
 
@@ -43,32 +51,42 @@ public class UnitMovementComponent {
             return; // Arrived at final destination
         }
 
+        if (waitingForReplan) {
+            return;
+        }
+
         // Step 3: Calculate next tile using movement strategy
-        Optional.ofNullable(movementStrategy.calculateNextCell(owner, finalTargetPosition))
-            .ifPresent(currentTargetTile::set);
+        Vector2 nextTile = movementStrategy.calculateNextCell(owner, finalTargetPosition);
+        if (nextTile != null) {
+            store.setTarget(slot, nextTile.x, nextTile.y);
+        } else {
+            waitingForReplan = true;
+        }
     }
 
-    private void moveTowardsTile(float delta) {
-        Vector2 position = owner.getPosition();
-        tempDirection.set(currentTargetTile).sub(position).nor();
-
-        float moveDistance = movementSpeed * delta;
-        float distanceToTarget = position.dst(currentTargetTile);
-
-        if (moveDistance > distanceToTarget) {
-            position.set(currentTargetTile);
-        } else {
-            position.add(tempDirection.scl(moveDistance));
+    /**
+     * Called by {@link io.github.mazs.ecs.ThinkSystem} at unit's think rate.
+     * If strategy failed to find next tile, its cached state is dropped, so next tile is planned from scratch.
+     */
+    public void think() {
+        if (waitingForReplan) {
+            waitingForReplan = false;
+            movementStrategy.resetState();
         }
-        owner.updateSpatialPosition();
     }
 
     public void moveTo(float x, float y) {
         movementStrategy.resetState();
+        waitingForReplan = false;
         finalTargetPosition.set(x, y);
         TileUtils.snapToTileCenterInPlace(finalTargetPosition);
         // Reset current tile to current position to trigger recalculation
-        currentTargetTile.set(owner.getPosition());
+        Vector2 position = owner.getPosition();
+        store.setTarget(owner.getSlot(), position.x, position.y);
+    }
+
+    public Vector2 getFinalTargetPosition() {
+        return finalTargetPosition;
     }
 
     public boolean isMoving(Vector2 currentPosition) {
@@ -2,12 +2,19 @@ package io.github.mazs.movement.hpa;
 
 import com.badlogic.gdx.math.Vector2;
 import io.github.mazs.components.TileUtils;
+import io.github.mazs.metrics.Tracer;
+import io.github.mazs.metrics.Tracing;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.github.mazs.components.TileUtils.positionToKey;
 
 public class AStarPathfinder {
+    // searches of all graphs of the process, read by metrics from other threads
+    private static final AtomicLong searchCount = new AtomicLong();
+    private static final AtomicLong failedSearchCount = new AtomicLong();
+    private static final AtomicLong checkedNodeCount = new AtomicLong();
 
     private static class Node {
         Vector2 position;
@@ -29,6 +36,29 @@ public class AStarPathfinder {
     //todo, query to find path in async way and store in cache
 
     public static PathfindingResult findPath(PathfindingGraph graph, Vector2 start, Vector2 end) {
+        return findPath(graph, start, end, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxNodes search gives up after checking this many nodes, an unreachable goal would otherwise make it
+     *                 visit every node of the graph
+     */
+    public static PathfindingResult findPath(PathfindingGraph graph, Vector2 start, Vector2 end, int maxNodes) {
+        Tracer tracer = Tracing.get();
+        if (!tracer.isPathSearchEnabled()) {
+            return search(graph, start, end, maxNodes);
+        }
+        tracer.beginPathSearch();
+        PathfindingResult result = null;
+        try {
+            result = search(graph, start, end, maxNodes);
+            return result;
+        } finally {
+            tracer.endPathSearch(graph, result);
+        }
+    }
+
+    private static PathfindingResult search(PathfindingGraph graph, Vector2 start, Vector2 end, int maxNodes) {
         // Snap start and end positions to tile centers for grid-based pathfinding
         start = TileUtils.snapToTileCenter(start);
         end = TileUtils.snapToTileCenter(end);
@@ -42,7 +72,7 @@ public class AStarPathfinder {
         openSet.add(startNode);
         openMap.put(positionToKey(start), startNode);
 
-        while (!openSet.isEmpty()) {
+        while (!openSet.isEmpty() && nodesChecked < maxNodes) {
             Node current = openSet.poll();
             openMap.remove(positionToKey(current.position));
             nodesChecked++;
@@ -50,6 +80,7 @@ public class AStarPathfinder {
             // Goal reached
             if (graph.isGoalReached(current.position, end)) {
                 List<Vector2> path = reconstructPath(current);
+                count(nodesChecked, true);
                 return new PathfindingResult(path, nodesChecked, openSet.size(), current.gCost);
             }
 
@@ -83,9 +114,36 @@ public class AStarPathfinder {
             }
         }
 
+        count(nodesChecked, false);
         return PathfindingResult.failure(nodesChecked, openSet.size());
     }
 
+    private static void count(int checked, boolean success) {
+        searchCount.incrementAndGet();
+        checkedNodeCount.addAndGet(checked);
+        if (!success) {
+            failedSearchCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return searches of every graph since the process started, local ones inside clusters included
+     */
+    public static long getSearchCount() {
+        return searchCount.get();
+    }
+
+    public static long getFailedSearchCount() {
+        return failedSearchCount.get();
+    }
+
+    /**
+     * @return nodes taken from the open set by all searches since the process started
+     */
+    public static long getNodesCheckedCount() {
+        return checkedNodeCount.get();
+    }
+
     private static List<Vector2> reconstructPath(Node endNode) {
         List<Vector2> path = new ArrayList<>();
         Node current = endNode;
@@ -5,18 +5,48 @@ import com.badlogic.gdx.math.Vector2;
 import io.github.mazs.components.DebugDrawComponent;
 import io.github.mazs.components.TileUtils;
 import io.github.mazs.components.UnitsSpatialHashGrid;
+import io.github.mazs.metrics.Tracer;
+import io.github.mazs.metrics.Tracing;
+import io.github.mazs.worlds.WalkabilityLayer;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
+/**
+ * Square of tiles with gates to its neighbors. Clusters are created empty and generate their gates and gate links
+ * the first time they are asked for them, so a big map only pays for the parts that are walked or looked at.
+ */
 public class Cluster implements PathfindingGraph {
+    private static final Color DEBUG_COLOR = new Color(1f, 1f, 0f, 0.1f);
+
     private final ClustersManager clustersManager;
 
     private List<Gate> gates = new LinkedList<>();
     private Map<Long, Gate> tileToGateMap = new HashMap<>();
+    private boolean generated = false;
+
+    // gate links only depend on static obstacles, so they are the same no matter when the cluster is generated
+    private final PathfindingGraph staticObstaclesGraph = new PathfindingGraph() {
+        @Override
+        public List<Vector2> getNeighbors(Vector2 node) {
+            return Cluster.this.getNeighbors(node, clustersManager.getWalkability()::isBlocked);
+        }
+
+        @Override
+        public float getCost(Vector2 from, Vector2 to) {
+            return from.dst(to);
+        }
+
+        @Override
+        public float getHeuristic(Vector2 from, Vector2 to) {
+            return from.dst(to);
+        }
+    };
 
     private final int tileSize;
     private final int clusterCellsSize;
@@ -29,6 +59,10 @@ public class Cluster implements PathfindingGraph {
         this.clusterPosition = clusterPosition;
     }
 
+    public Vector2 getClusterPosition() {
+        return clusterPosition;
+    }
+
     public Vector2 getClusterCenter() {
         int clusterWorldSize = tileSize * clusterCellsSize;
         return new Vector2(
@@ -37,7 +71,43 @@ public class Cluster implements PathfindingGraph {
         );
     }
 
+    /**
+     * Generates gates and gate links unless the cluster has them already.
+     */
+    void ensureGenerated() {
+        if (generated) {
+            return;
+        }
+        // set first, so a lookup made while generating doesn't start generation again
+        generated = true;
+        Tracer tracer = Tracing.get();
+        if (!tracer.isClusterGenerationEnabled()) {
+            generateGates();
+            calculateGatesLinks();
+            return;
+        }
+        tracer.beginClusterGeneration((int) clusterPosition.x, (int) clusterPosition.y);
+        try {
+            generateGates();
+            calculateGatesLinks();
+        } finally {
+            tracer.endClusterGeneration(gates.size());
+        }
+    }
+
+    /**
+     * @return this cluster with static obstacles only, units standing around are ignored
+     */
+    PathfindingGraph getStaticObstaclesGraph() {
+        return staticObstaclesGraph;
+    }
+
+    public boolean isGenerated() {
+        return generated;
+    }
+
     public void generateGates() {
+        generated = true;
         gates.clear();
         tileToGateMap.clear();
 
@@ -61,6 +131,23 @@ public class Cluster implements PathfindingGraph {
             clusterCellsSize, clusterCellsSize,
             1, clusterCellsSize);
 
+        buildGateLookup();
+
+        gates.removeIf(gate -> gate.getTiles().isEmpty());
+    }
+
+    /**
+     * Replaces gates with already computed ones, links between them are expected to be set by caller.
+     */
+    void restoreGates(List<Gate> restoredGates) {
+        generated = true;
+        gates.clear();
+        tileToGateMap.clear();
+        gates.addAll(restoredGates);
+        buildGateLookup();
+    }
+
+    private void buildGateLookup() {
         // Build tile-to-gate lookup map
         for (Gate gate : gates) {
             for (Vector2 tile : gate.getTiles()) {
@@ -68,8 +155,6 @@ public class Cluster implements PathfindingGraph {
                 tileToGateMap.put(key, gate);
             }
         }
-
-        gates.removeIf(gate -> gate.getTiles().isEmpty());
     }
 
     private void fillGates(
@@ -77,7 +162,7 @@ public class Cluster implements PathfindingGraph {
         Vector2 neighborGateOffset,
         int fromX, int toX,
         int fromY, int toY) {
-        UnitsSpatialHashGrid sg = clustersManager.getUnitsSpatialHashGrid();
+        WalkabilityLayer walkability = clustersManager.getWalkability();
         float bottomLeftX = clusterPosition.x * clusterCellsSize * tileSize + tileSize / 2f;
         float bottomLeftY = clusterPosition.y * clusterCellsSize * tileSize + tileSize / 2f;
 
@@ -91,8 +176,8 @@ public class Cluster implements PathfindingGraph {
                 Vector2 outTile = new Vector2(inTile).add(neighborGateOffset);
 
                 Cluster neighbor = clustersManager.getClusterByTilePosition(outTile);
-                boolean inTileWalkable = !sg.isBlockedByStaticUnit(inTile);
-                boolean outTileWalkable = !sg.isBlockedByStaticUnit(outTile);
+                boolean inTileWalkable = !walkability.isBlocked(inTile);
+                boolean outTileWalkable = !walkability.isBlocked(outTile);
 
                 if (neighbor != null && outTileWalkable && inTileWalkable) {
                     if (tempGate == null || tempGate.getTiles().size() >= 3) {
@@ -123,7 +208,7 @@ public class Cluster implements PathfindingGraph {
                     }
 
                     PathfindingResult result = AStarPathfinder.findPath(
-                        this,
+                        staticObstaclesGraph,
                         gateA.getMiddlePoint(),
                         gateB.getMiddlePoint()
                     );
@@ -139,6 +224,22 @@ public class Cluster implements PathfindingGraph {
                 }
             }
         }
+        sortGateLinks();
+    }
+
+    /**
+     * Puts reachable gates of every gate in the order of {@link #getGates()}. Pathfinding breaks ties by neighbor
+     * order, so links loaded from a file must be visited in the same order as generated ones, on every machine.
+     */
+    void sortGateLinks() {
+        Map<Gate, Integer> gateIndexes = new HashMap<>();
+        for (Gate gate : gates) {
+            gateIndexes.put(gate, gateIndexes.size());
+        }
+        Comparator<Gate> order = Comparator.comparing(gateIndexes::get);
+        for (Gate gate : gates) {
+            gate.sortReachableGates(order);
+        }
     }
 
     private boolean isWithinCluster(Vector2 tilePos) {
@@ -153,8 +254,13 @@ public class Cluster implements PathfindingGraph {
 
     @Override
     public List<Vector2> getNeighbors(Vector2 node) {
-        List<Vector2> neighbors = new ArrayList<>();
+        //todo, change to checking against dynamic unit, we want units to avoid each another
         UnitsSpatialHashGrid sg = clustersManager.getUnitsSpatialHashGrid();
+        return getNeighbors(node, sg::isBlocked);
+    }
+
+    private List<Vector2> getNeighbors(Vector2 node, Predicate<Vector2> blocked) {
+        List<Vector2> neighbors = new ArrayList<>();
 
         // Check 4 adjacent tiles: up, down, left, right
         Vector2[] directions = {
@@ -168,8 +274,7 @@ public class Cluster implements PathfindingGraph {
             Vector2 neighbor = new Vector2(node).add(dir);
 
             // Check if within cluster bounds and walkable
-            //todo, change to checking against dynamic unit, we want units to avoid each another
-            if (isWithinCluster(neighbor) && !sg.isBlocked(neighbor)) {
+            if (isWithinCluster(neighbor) && !blocked.test(neighbor)) {
                 neighbors.add(neighbor);
             }
         }
@@ -188,18 +293,23 @@ public class Cluster implements PathfindingGraph {
     }
 
     public Gate getGateByPosition(Vector2 position) {
+        ensureGenerated();
         long key = TileUtils.positionToKey(position);
         return tileToGateMap.get(key);
     }
 
     public List<Gate> getGates() {
+        ensureGenerated();
         return gates;
     }
 
+    /**
+     * Queues the cluster's area for the next frame, see {@link DebugDrawComponent#FRAME}.
+     */
     public void debug() {
         float clusterWorldSize = tileSize * clusterCellsSize * 0.95f;
         DebugDrawComponent.getInstance().drawRectangle(getClusterCenter(),
-            clusterWorldSize, new Color(1f, 1f, 0f, 0.1f), 0.1f);
+            clusterWorldSize, DEBUG_COLOR, DebugDrawComponent.FRAME);
 
 //        gates.forEach(gateA -> {
 //            gates.forEach(gateB -> {
@@ -231,7 +341,7 @@ public class Cluster implements PathfindingGraph {
 //            });
 //        });
 
-        gates.forEach(gate -> gate.debug());
+        getGates().forEach(gate -> gate.debug());
 
     }
 }
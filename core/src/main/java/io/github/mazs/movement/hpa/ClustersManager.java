@@ -1,53 +1,100 @@
 package io.github.mazs.movement.hpa;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import io.github.mazs.components.DebugDrawComponent;
 import io.github.mazs.components.UnitsSpatialHashGrid;
+import io.github.mazs.worlds.WalkabilityLayer;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Grid of clusters covering the map, the higher level graph of hierarchical pathfinding.
+ * Clusters are created when something looks them up and generate gates when something asks for them, nothing is
+ * generated up front unless {@link #generateClusters()} is called, so creating a manager doesn't depend on map size.
+ * As a graph it ignores units, they only matter to local paths inside clusters.
+ */
 public class ClustersManager implements PathfindingGraph {
+    /**
+     * Global search gives up after this many gates, so an unreachable goal doesn't generate the whole map.
+     */
+    public static final int MAX_SEARCH_NODES = 8192;
 
     private final Map<Long, Cluster> clustersMap;
     private final int cellSize;
     private final int clusterCellsSize;
     private final UnitsSpatialHashGrid unitsSpatialHashGrid;
-    private final Vector2 mapSize;
+    private final WalkabilityLayer walkability;
+    private final int clustersInX;
+    private final int clustersInY;
 
-    public ClustersManager(int cellSize, int clusterCellsSize, UnitsSpatialHashGrid unitsSpatialHashGrid, Vector2 mapSize) {
+    public ClustersManager(int cellSize, int clusterCellsSize, UnitsSpatialHashGrid unitsSpatialHashGrid,
+                           WalkabilityLayer walkability, Vector2 mapSize) {
         this.cellSize = cellSize;
         this.clusterCellsSize = clusterCellsSize;
         this.unitsSpatialHashGrid = unitsSpatialHashGrid;
-        this.mapSize = mapSize;
+        this.walkability = walkability;
         this.clustersMap = new HashMap<>();
+
+        int clusterWorldSize = cellSize * clusterCellsSize;
+        this.clustersInX = (int) Math.ceil(mapSize.x / clusterWorldSize);
+        this.clustersInY = (int) Math.ceil(mapSize.y / clusterWorldSize);
     }
 
+    /**
+     * Generates gates and gate links of the whole map at once, dropping clusters generated so far.
+     */
     public void generateClusters() {
         clustersMap.clear();
 
-        int clusterWorldSize = cellSize * clusterCellsSize;
-
-        int clustersInX = (int) Math.ceil(mapSize.x / clusterWorldSize);
-        int clustersInY = (int) Math.ceil(mapSize.y / clusterWorldSize);
-
-        // First: Create all clusters
         for (int clusterX = 0; clusterX < clustersInX; clusterX++) {
             for (int clusterY = 0; clusterY < clustersInY; clusterY++) {
-                Vector2 clusterPosition = new Vector2(clusterX, clusterY);
-                Cluster cluster = new Cluster(this, cellSize, clusterCellsSize, clusterPosition);
+                getCluster(clusterX, clusterY).ensureGenerated();
+            }
+        }
+    }
 
-                long key = getClusterKey(clusterX, clusterY);
-                clustersMap.put(key, cluster);
+    /**
+     * Sorts gate links of every generated cluster, see {@link Cluster#sortGateLinks()}.
+     */
+    void sortGateLinks() {
+        for (Cluster cluster : clustersMap.values()) {
+            if (cluster.isGenerated()) {
+                cluster.sortGateLinks();
             }
         }
+    }
 
-        // Generate gates for all clusters with interlinks
+    /**
+     * @return generated clusters sorted by x then y, unlike {@link #getClusters()} the order is the same on every run
+     */
+    List<Cluster> getClustersInOrder() {
+        List<Cluster> clusters = new ArrayList<>();
         for (Cluster cluster : clustersMap.values()) {
-            cluster.generateGates();
-            cluster.calculateGatesLinks();
+            if (cluster.isGenerated()) {
+                clusters.add(cluster);
+            }
         }
+        clusters.sort(Comparator
+            .comparingDouble((Cluster c) -> c.getClusterPosition().x)
+            .thenComparingDouble(c -> c.getClusterPosition().y));
+        return clusters;
+    }
+
+    private Cluster createCluster(int clusterX, int clusterY) {
+        Vector2 clusterPosition = new Vector2(clusterX, clusterY);
+        Cluster cluster = new Cluster(this, cellSize, clusterCellsSize, clusterPosition);
+        clustersMap.put(getClusterKey(clusterX, clusterY), cluster);
+        return cluster;
+    }
+
+    /**
+     * Drops all clusters, they are generated again from the current walkability when used.
+     */
+    public void clearClusters() {
+        clustersMap.clear();
     }
 
     private long getClusterKey(int clusterX, int clusterY) {
@@ -58,9 +105,55 @@ public class ClustersManager implements PathfindingGraph {
         return unitsSpatialHashGrid;
     }
 
+    public WalkabilityLayer getWalkability() {
+        return walkability;
+    }
+
+    /**
+     * @return clusters created so far, generated or not
+     */
+    public Collection<Cluster> getClusters() {
+        return clustersMap.values();
+    }
+
+    /**
+     * @return number of clusters covering the map
+     */
+    public int getClusterCount() {
+        return clustersInX * clustersInY;
+    }
+
+    public int getGeneratedClusterCount() {
+        int count = 0;
+        for (Cluster cluster : clustersMap.values()) {
+            if (cluster.isGenerated()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    public int getClusterCellsSize() {
+        return clusterCellsSize;
+    }
+
+    /**
+     * @return cluster at given cluster coordinates, created on first use, null outside of the map
+     */
     public Cluster getCluster(int clusterX, int clusterY) {
+        if (clusterX < 0 || clusterY < 0 || clusterX >= clustersInX || clusterY >= clustersInY) {
+            return null;
+        }
         long key = getClusterKey(clusterX, clusterY);
-        return clustersMap.get(key);
+        Cluster cluster = clustersMap.get(key);
+        if (cluster == null) {
+            cluster = createCluster(clusterX, clusterY);
+        }
+        return cluster;
     }
 
     public Cluster getClusterByTilePosition(Vector2 xy) {
@@ -72,12 +165,23 @@ public class ClustersManager implements PathfindingGraph {
         int clusterX = (int) (tileX / clusterWorldSize);
         int clusterY = (int) (tileY / clusterWorldSize);
 
-        long key = getClusterKey(clusterX, clusterY);
-        return clustersMap.get(key);
+        return getCluster(clusterX, clusterY);
     }
 
-    public void debug() {
-        clustersMap.forEach((key, cluster) -> cluster.debug());
+    /**
+     * Draws clusters overlapping given area, generating the ones that weren't generated yet.
+     */
+    public void debug(Rectangle area) {
+        int clusterWorldSize = cellSize * clusterCellsSize;
+        int fromX = Math.max(0, (int) (area.x / clusterWorldSize));
+        int fromY = Math.max(0, (int) (area.y / clusterWorldSize));
+        int toX = Math.min(clustersInX - 1, (int) ((area.x + area.width) / clusterWorldSize));
+        int toY = Math.min(clustersInY - 1, (int) ((area.y + area.height) / clusterWorldSize));
+        for (int clusterX = fromX; clusterX <= toX; clusterX++) {
+            for (int clusterY = fromY; clusterY <= toY; clusterY++) {
+                getCluster(clusterX, clusterY).debug();
+            }
+        }
     }
 
     @Override
@@ -90,7 +194,7 @@ public class ClustersManager implements PathfindingGraph {
                 if (g.getNeighborCluster() == getClusterByTilePosition(end)) {
                     Gate neighborGate = g.getNeighborGate(this);
                     PathfindingResult result = AStarPathfinder.findPath(
-                        g.getNeighborCluster(), neighborGate.getMiddlePoint(), end);
+                        g.getNeighborCluster().getStaticObstaclesGraph(), neighborGate.getMiddlePoint(), end);
                     return result.isSuccess();
 
                 }
@@ -145,7 +249,7 @@ public class ClustersManager implements PathfindingGraph {
             // lets calculate gates we can reach
             .orElseGet(() -> cluster.getGates().stream().map(g -> {
                     PathfindingResult pathResult = AStarPathfinder.findPath(
-                        cluster,
+                        cluster.getStaticObstaclesGraph(),
                         location,
                         g.getMiddlePoint()
                     );
@@ -173,14 +277,15 @@ public class ClustersManager implements PathfindingGraph {
                         .get(gateB);
                 })
                 .orElseGet(() -> {
-                    DebugDrawComponent
-                        .getInstance()
-                        .drawLine(from, to, Color.RED, 10f);
+                    DebugDrawComponent debugDraw = DebugDrawComponent.getInstance();
+                    if (debugDraw.isEnabled()) {
+                        debugDraw.drawLine(from, to, Color.RED, 10f);
+                    }
                     return Float.MAX_VALUE;
                 });
         } else {
             // we calculate cost from somewhere in the cluster to gate
-            PathfindingResult result = AStarPathfinder.findPath(clusterFrom, from, to);
+            PathfindingResult result = AStarPathfinder.findPath(clusterFrom.getStaticObstaclesGraph(), from, to);
             if (result.isSuccess()) {
                 return result.getPathCost();
             }
@@ -198,6 +303,8 @@ public class ClustersManager implements PathfindingGraph {
 
     @Override
     public float getHeuristic(Vector2 from, Vector2 to) {
-        return from.dst(to);
+        // units walk in 4 directions, straight line distance underestimates diagonal paths so much
+        // that search spreads over most gates around the start, and generates their clusters
+        return Math.abs(from.x - to.x) + Math.abs(from.y - to.y);
     }
 }
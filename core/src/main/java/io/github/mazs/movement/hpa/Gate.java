@@ -4,7 +4,9 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
 import io.github.mazs.components.DebugDrawComponent;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -13,7 +15,7 @@ public class Gate {
     private final List<Vector2> tiles;
     private final Cluster neighborCluster;
     private final Vector2 direction; // the direction in which we have external gate from neighbor cluster
-    private final Map<Gate, Float> reachableGates = new HashMap<>(); // gates reachable from this gate with their path costs
+    private final Map<Gate, Float> reachableGates = new LinkedHashMap<>(); // gates reachable from this gate with their path costs
 
     public Gate(List<Vector2> tiles, Cluster cluster, Vector2 direction) {
         this.tiles = tiles;
@@ -58,15 +60,32 @@ public class Gate {
         reachableGates.put(gate, pathCost);
     }
 
+    /**
+     * Reorders reachable gates, so neighbors are always visited in the same order no matter how links were added.
+     */
+    void sortReachableGates(Comparator<Gate> order) {
+        List<Map.Entry<Gate, Float>> entries = new ArrayList<>(reachableGates.entrySet());
+        entries.sort(Map.Entry.comparingByKey(order));
+        reachableGates.clear();
+        for (Map.Entry<Gate, Float> entry : entries) {
+            reachableGates.put(entry.getKey(), entry.getValue());
+        }
+    }
+
     public void clearReachableGates() {
         reachableGates.clear();
     }
 
     void debug() {
-        tiles.forEach(tile -> {
-            DebugDrawComponent.getInstance().drawRectangle(tile, 4, Color.BLUE, 0.1f);
-        });
-        DebugDrawComponent.getInstance().drawRectangle(getMiddlePoint(), 6, Color.BLUE, 0.1f);
+        DebugDrawComponent debugDraw = DebugDrawComponent.getInstance();
+        for (int i = 0; i < tiles.size(); i++) {
+            debugDraw.drawRectangle(tiles.get(i), 4, Color.BLUE, DebugDrawComponent.FRAME);
+        }
+        debugDraw.drawRectangle(getMiddlePoint(), 6, Color.BLUE, DebugDrawComponent.FRAME);
+    }
+
+    public Vector2 getDirection() {
+        return direction;
     }
 
     public Cluster getNeighborCluster() {
@@ -42,9 +42,12 @@ public class HpaPathFindingStrategy implements IMovementStrategy {
                 currentCluster,
                 position,
                 targetFinalPosition);
-            if (localPath.isSuccess()) {
-                DebugDrawComponent.getInstance()
-                    .drawPath(localPath.getPath(), Color.BLUE, 1f);
+            // path of one tile means unit already stands on the local goal
+            if (localPath.isSuccess() && localPath.getPath().size() > 1) {
+                DebugDrawComponent debugDraw = DebugDrawComponent.getInstance();
+                if (debugDraw.isEnabled()) {
+                    debugDraw.drawPath(localPath.getPath(), Color.BLUE, 1f);
+                }
                 return localPath.getPath().get(1);
 //                cachedLocalPath = localPath.getPath();
             }
@@ -72,9 +75,12 @@ public class HpaPathFindingStrategy implements IMovementStrategy {
                 currentCluster,
                 owner.getPosition(),
                 globalPath.isEmpty() ? targetFinalPosition : globalPath.get(0));
-            if (localPath.isSuccess()) {
-                DebugDrawComponent.getInstance()
-                    .drawPath(localPath.getPath(), Color.RED, 1f);
+            // path of one tile means unit already stands on the local goal
+            if (localPath.isSuccess() && localPath.getPath().size() > 1) {
+                DebugDrawComponent debugDraw = DebugDrawComponent.getInstance();
+                if (debugDraw.isEnabled()) {
+                    debugDraw.drawPath(localPath.getPath(), Color.RED, 1f);
+                }
                 return localPath.getPath().get(1);
             }
 
@@ -103,16 +109,23 @@ public class HpaPathFindingStrategy implements IMovementStrategy {
     }
 
     private List<Vector2> getGlobalPath(Vector2 from, Vector2 to) {
+        // nothing can stand on a static obstacle, don't search the map for it
+        if (clustersManager.getWalkability().isBlocked(to)) {
+            return null;
+        }
         if (cachedGlobalPath == null) {
             PathfindingResult globalPath = AStarPathfinder.findPath(
                 clustersManager,
                 from,
-                to);
+                to,
+                ClustersManager.MAX_SEARCH_NODES);
 
             if (globalPath.isSuccess()) {
                 cachedGlobalPath = globalPath.getPath();
-                DebugDrawComponent.getInstance()
-                    .drawPath(cachedGlobalPath, Color.BLUE, 3f);
+                DebugDrawComponent debugDraw = DebugDrawComponent.getInstance();
+                if (debugDraw.isEnabled()) {
+                    debugDraw.drawPath(cachedGlobalPath, Color.BLUE, 3f);
+                }
             }
         }
         return cachedGlobalPath;
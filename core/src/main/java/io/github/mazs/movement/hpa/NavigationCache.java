@@ -0,0 +1,14 @@
+package io.github.mazs.movement.hpa;
+
+/**
+ * Keeps generated cluster graphs between runs, so the same map doesn't need gates and gate links generated again.
+ * Graphs are stored with {@link NavigationGraphIO}. Core has no storage for them on every platform, the ones that
+ * have it pass a cache in, see {@link io.github.mazs.Platform#createNavigationCache()}.
+ */
+public interface NavigationCache {
+    /**
+     * Loads clusters of the manager from the cache, or generates them and stores them when there is no valid entry.
+     * Failing to store them only gets logged.
+     */
+    void loadOrGenerate(ClustersManager clustersManager);
+}
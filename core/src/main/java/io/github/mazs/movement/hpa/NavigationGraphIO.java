@@ -0,0 +1,153 @@
+package io.github.mazs.movement.hpa;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes and reads generated clusters, their gates and gate links, so they don't need to be generated again.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * int clusterCount
+ *   per cluster: int clusterX, int clusterY, int gateCount
+ *     per gate: byte directionX, byte directionY, int tileCount, tileCount * (int tileX, int tileY)
+ * int linkCount
+ *   per link: int gateA, int gateB, float cost   (gate index in the order gates were written, stored once per pair)
+ * </pre>
+ */
+public class NavigationGraphIO {
+
+    private NavigationGraphIO() {
+    }
+
+    public static void write(ClustersManager clustersManager, DataOutput out) throws IOException {
+        int tileSize = clustersManager.getCellSize();
+
+        // hash map order is not stable, sort to always get the same bytes for the same graph
+        List<Cluster> clusters = clustersManager.getClustersInOrder();
+
+        Map<Gate, Integer> gateIndexes = new HashMap<>();
+        List<Gate> orderedGates = new ArrayList<>();
+
+        out.writeInt(clusters.size());
+        for (Cluster cluster : clusters) {
+            out.writeInt((int) cluster.getClusterPosition().x);
+            out.writeInt((int) cluster.getClusterPosition().y);
+            out.writeInt(cluster.getGates().size());
+
+            for (Gate gate : cluster.getGates()) {
+                gateIndexes.put(gate, orderedGates.size());
+                orderedGates.add(gate);
+
+                out.writeByte((int) Math.signum(gate.getDirection().x));
+                out.writeByte((int) Math.signum(gate.getDirection().y));
+                out.writeInt(gate.getTiles().size());
+                for (Vector2 tile : gate.getTiles()) {
+                    out.writeInt((int) (tile.x / tileSize));
+                    out.writeInt((int) (tile.y / tileSize));
+                }
+            }
+        }
+
+        // sort links to always write them in the same order
+        Map<Long, Float> links = new TreeMap<>();
+        for (int a = 0; a < orderedGates.size(); a++) {
+            for (Map.Entry<Gate, Float> link : orderedGates.get(a).getReachableGates().entrySet()) {
+                Integer b = gateIndexes.get(link.getKey());
+                if (b != null && a < b) {
+                    links.put(((long) a << 32) | b, link.getValue());
+                }
+            }
+        }
+
+        out.writeInt(links.size());
+        for (Map.Entry<Long, Float> link : links.entrySet()) {
+            out.writeInt((int) (link.getKey() >> 32));
+            out.writeInt((int) (long) link.getKey());
+            out.writeFloat(link.getValue());
+        }
+    }
+
+    /**
+     * Replaces all clusters of the manager with the ones read from buffer, reading starts at buffer's position.
+     * Clusters missing in the data are left to be generated when they are needed.
+     *
+     * @throws IOException when data doesn't fit manager's map
+     */
+    public static void read(ClustersManager clustersManager, ByteBuffer in) throws IOException {
+        int tileSize = clustersManager.getCellSize();
+        clustersManager.clearClusters();
+
+        int graphStart = in.position();
+
+        // first pass creates clusters, gates need their neighbor clusters to exist
+        int clusterCount = in.getInt();
+        for (int c = 0; c < clusterCount; c++) {
+            int clusterX = in.getInt();
+            int clusterY = in.getInt();
+            if (clustersManager.getCluster(clusterX, clusterY) == null) {
+                throw new IOException("Cluster " + clusterX + "," + clusterY + " is outside of the map");
+            }
+            int gateCount = in.getInt();
+            for (int g = 0; g < gateCount; g++) {
+                in.get();
+                in.get();
+                int tileCount = in.getInt();
+                ((Buffer) in).position(in.position() + tileCount * 2 * Integer.BYTES);
+            }
+        }
+
+        ((Buffer) in).position(graphStart + Integer.BYTES);
+        List<Gate> orderedGates = new ArrayList<>();
+        for (int c = 0; c < clusterCount; c++) {
+            int clusterX = in.getInt();
+            int clusterY = in.getInt();
+            int gateCount = in.getInt();
+
+            List<Gate> gates = new ArrayList<>(gateCount);
+            for (int g = 0; g < gateCount; g++) {
+                int directionX = in.get();
+                int directionY = in.get();
+                int tileCount = in.getInt();
+
+                List<Vector2> tiles = new ArrayList<>(tileCount);
+                for (int t = 0; t < tileCount; t++) {
+                    tiles.add(new Vector2(
+                        in.getInt() * tileSize + tileSize / 2f,
+                        in.getInt() * tileSize + tileSize / 2f));
+                }
+
+                Cluster neighbor = clustersManager.getCluster(clusterX + directionX, clusterY + directionY);
+                if (neighbor == null) {
+                    throw new IOException("Gate of cluster " + clusterX + "," + clusterY + " leads to missing cluster");
+                }
+                Gate gate = new Gate(tiles, neighbor, new Vector2(directionX * tileSize, directionY * tileSize));
+                gates.add(gate);
+                orderedGates.add(gate);
+            }
+            clustersManager.getCluster(clusterX, clusterY).restoreGates(gates);
+        }
+
+        int linkCount = in.getInt();
+        for (int i = 0; i < linkCount; i++) {
+            int a = in.getInt();
+            int b = in.getInt();
+            float cost = in.getFloat();
+            if (a < 0 || b < 0 || a >= orderedGates.size() || b >= orderedGates.size()) {
+                throw new IOException("Gate link " + a + "-" + b + " is out of " + orderedGates.size() + " gates");
+            }
+            orderedGates.get(a).addReachableGate(orderedGates.get(b), cost);
+            orderedGates.get(b).addReachableGate(orderedGates.get(a), cost);
+        }
+        clustersManager.sortGateLinks();
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.mazs.net;
+
+/**
+ * Binary messages exchanged by lockstep peers through the relay, big endian, first byte is the message type.
+ * <pre>
+ * START  relay to peer, once all players joined:  byte type, byte playerId, byte playerCount
+ * INPUT  peer to relay, relayed to other peers:    byte type, byte playerId, int confirmedTick, short batchCount,
+ *                                                  per batch: int tick, short commandCount, commands
+ * </pre>
+ * confirmedTick is the last tick for which the player sent all of its commands, ticks without commands are not sent
+ * at all, so idle players only cost one small message per send interval.
+ */
+public final class LockstepProtocol {
+    public static final byte MSG_START = 1;
+    public static final byte MSG_INPUT = 2;
+
+    public static final int MAX_PLAYERS = 8;
+
+    private LockstepProtocol() {
+    }
+}
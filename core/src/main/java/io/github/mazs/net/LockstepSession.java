@@ -0,0 +1,269 @@
+package io.github.mazs.net;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntMap;
+import io.github.mazs.commands.Command;
+import io.github.mazs.commands.CommandSink;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deterministic lockstep: every peer runs the whole simulation and only player commands travel over the network,
+ * so traffic doesn't depend on the number of units.
+ * <p>
+ * Commands submitted during tick T are applied at tick T + inputDelay on every peer, ordered by player id and then by
+ * submission order. A tick is simulated only once commands of all players for it are known, otherwise the peer waits.
+ * Input of sendInterval ticks is batched into one message, ticks without commands are only confirmed, not sent.
+ */
+public class LockstepSession implements CommandSink {
+    private static final String TAG = "Lockstep";
+
+    private final MessageTransport transport;
+    private final int inputDelay;
+    private final int sendInterval;
+
+    private int playerId = -1;
+    private int playerCount = 0;
+    // next tick to simulate
+    private int tick = 0;
+    // per player, last tick for which all of its commands are known
+    private int[] confirmedTicks;
+    // commands of every player by tick, list per player id
+    private final IntMap<List<Command>[]> scheduled = new IntMap<>();
+
+    // submitted since the last simulated tick
+    private final List<Command> submitted = new ArrayList<>();
+    private final List<Batch> unsent = new ArrayList<>();
+    private int lastSentConfirmedTick;
+
+    private long stalledTicks = 0;
+
+    public LockstepSession(MessageTransport transport, NetworkOptions options) {
+        this.transport = transport;
+        this.inputDelay = options.inputDelay;
+        this.sendInterval = options.sendInterval;
+    }
+
+    @Override
+    public void submit(Command command) {
+        submitted.add(command);
+    }
+
+    /**
+     * Applies commands of the next tick when commands of all players are known for it.
+     * Call it before every world update, skip the update when it returns false.
+     *
+     * @return false when the simulation has to wait for other players
+     */
+    public boolean applyNextTick(WorldRts world) {
+        poll();
+        if (!isStarted()) {
+            return false;
+        }
+
+        for (int confirmedTick : confirmedTicks) {
+            if (confirmedTick < tick) {
+                // others may wait for our confirmation too, don't hold it until the send interval
+                flush();
+                stalledTicks++;
+                return false;
+            }
+        }
+
+        List<Command>[] commands = scheduled.remove(tick);
+        if (commands != null) {
+            for (List<Command> playerCommands : commands) {
+                if (playerCommands != null) {
+                    for (Command command : playerCommands) {
+                        world.execute(command);
+                    }
+                }
+            }
+        }
+
+        closeLocalInput();
+        tick++;
+        if (tick % sendInterval == 0) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Reads messages received from other peers.
+     */
+    public void poll() {
+        byte[] message;
+        while ((message = transport.poll()) != null) {
+            try {
+                handle(ByteBuffer.wrap(message));
+            } catch (IOException | BufferUnderflowException e) {
+                // peers can't agree on the simulation anymore
+                throw new GdxRuntimeException("Malformed lockstep message", e);
+            }
+        }
+    }
+
+    private void handle(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case LockstepProtocol.MSG_START:
+                start(in.get(), in.get());
+                break;
+            case LockstepProtocol.MSG_INPUT:
+                readInput(in);
+                break;
+            default:
+                throw new IOException("Unknown message type " + type);
+        }
+    }
+
+    private void start(int playerId, int playerCount) throws IOException {
+        if (isStarted()) {
+            throw new IOException("Match already started");
+        }
+        if (playerCount < 1 || playerCount > LockstepProtocol.MAX_PLAYERS || playerId < 0 || playerId >= playerCount) {
+            throw new IOException("Player " + playerId + " of " + playerCount + " is not valid");
+        }
+        this.playerId = playerId;
+        this.playerCount = playerCount;
+
+        // nobody can issue commands for the first ticks
+        confirmedTicks = new int[playerCount];
+        Arrays.fill(confirmedTicks, inputDelay - 1);
+        lastSentConfirmedTick = inputDelay - 1;
+
+        Gdx.app.log(TAG, String.format("Started as player %d of %d, input delay %d ticks, send interval %d ticks",
+            playerId, playerCount, inputDelay, sendInterval));
+    }
+
+    private void readInput(ByteBuffer in) throws IOException {
+        if (!isStarted()) {
+            throw new IOException("Input before match started");
+        }
+        int player = in.get();
+        if (player < 0 || player >= playerCount || player == playerId) {
+            throw new IOException("Input of unexpected player " + player);
+        }
+
+        int confirmedTick = in.getInt();
+        int batchCount = in.getShort() & 0xFFFF;
+        for (int b = 0; b < batchCount; b++) {
+            int batchTick = in.getInt();
+            if (batchTick <= confirmedTicks[player] || batchTick > confirmedTick) {
+                throw new IOException("Player " + player + " sent commands for tick " + batchTick
+                    + " outside of " + confirmedTicks[player] + ".." + confirmedTick);
+            }
+            int commandCount = in.getShort() & 0xFFFF;
+            List<Command> commands = new ArrayList<>(commandCount);
+            for (int c = 0; c < commandCount; c++) {
+                commands.add(Command.read(in));
+            }
+            schedule(player, batchTick, commands);
+        }
+        confirmedTicks[player] = Math.max(confirmedTicks[player], confirmedTick);
+    }
+
+    /**
+     * Moves commands submitted during the tick being simulated to tick + inputDelay.
+     */
+    private void closeLocalInput() {
+        int target = tick + inputDelay;
+        if (!submitted.isEmpty()) {
+            List<Command> commands = new ArrayList<>(submitted);
+            submitted.clear();
+            schedule(playerId, target, commands);
+            unsent.add(new Batch(target, commands));
+        }
+        confirmedTicks[playerId] = target;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void schedule(int player, int commandsTick, List<Command> commands) {
+        List<Command>[] tickCommands = scheduled.get(commandsTick);
+        if (tickCommands == null) {
+            tickCommands = (List<Command>[]) new List<?>[playerCount];
+            scheduled.put(commandsTick, tickCommands);
+        }
+        tickCommands[player] = commands;
+    }
+
+    private void flush() {
+        int confirmedTick = confirmedTicks[playerId];
+        if (confirmedTick == lastSentConfirmedTick && unsent.isEmpty()) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(LockstepProtocol.MSG_INPUT);
+            out.writeByte(playerId);
+            out.writeInt(confirmedTick);
+            out.writeShort(unsent.size());
+            for (Batch batch : unsent) {
+                out.writeInt(batch.tick);
+                out.writeShort(batch.commands.size());
+                for (Command command : batch.commands) {
+                    out.writeByte(command.getType());
+                    command.write(out);
+                }
+            }
+        } catch (IOException e) {
+            // writing to memory doesn't fail
+            throw new GdxRuntimeException(e);
+        }
+
+        transport.send(bytes.toByteArray());
+        unsent.clear();
+        lastSentConfirmedTick = confirmedTick;
+    }
+
+    public boolean isStarted() {
+        return playerId >= 0;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * @return next tick to simulate, the same on every peer for the same world state
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * @return how many times a tick had to wait for other players
+     */
+    public long getStalledTicks() {
+        return stalledTicks;
+    }
+
+    public void dispose() {
+        transport.dispose();
+    }
+
+    private static class Batch {
+        final int tick;
+        final List<Command> commands;
+
+        Batch(int tick, List<Command> commands) {
+            this.tick = tick;
+            this.commands = commands;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.mazs.net;
+
+/**
+ * Delivers whole binary messages between a peer and the server or relay, in order.
+ */
+public interface MessageTransport {
+    void send(byte[] message);
+
+    /**
+     * Called from the render thread, messages received on other threads wait until then.
+     *
+     * @return next received message or null when there is none
+     */
+    byte[] poll();
+
+    boolean isConnected();
+
+    void dispose();
+}
@@ -0,0 +1,42 @@
+package io.github.mazs.net;
+
+/**
+ * How the game joins a multiplayer match, given by the platform launcher.
+ */
+public class NetworkOptions {
+    public enum Mode {
+        // every peer simulates, only commands are exchanged through the relay, see LockstepSession
+        LOCKSTEP,
+        // server simulates, the game only shows state streamed by it, see StateClient
+        CLIENT
+    }
+
+    // 4 ticks is 133 ms at 30 ticks per second, enough for a LAN or a near relay
+    public static final int DEFAULT_INPUT_DELAY = 4;
+    public static final int DEFAULT_SEND_INTERVAL = 2;
+
+    public final Mode mode;
+    public final String url;
+    public final int inputDelay;
+    public final int sendInterval;
+
+    public NetworkOptions(Mode mode, String url) {
+        this(mode, url, DEFAULT_INPUT_DELAY, DEFAULT_SEND_INTERVAL);
+    }
+
+    /**
+     * @param url          websocket address of the relay or server, e.g. ws://localhost:8000
+     * @param inputDelay   lockstep only, ticks between issuing a command and applying it,
+     *                     has to cover the round trip to the relay
+     * @param sendInterval lockstep only, ticks of input batched into one message
+     */
+    public NetworkOptions(Mode mode, String url, int inputDelay, int sendInterval) {
+        if (inputDelay < 1 || sendInterval < 1) {
+            throw new IllegalArgumentException("Input delay and send interval must be at least one tick");
+        }
+        this.mode = mode;
+        this.url = url;
+        this.inputDelay = inputDelay;
+        this.sendInterval = sendInterval;
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.mazs.net;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntIntMap;
+import io.github.mazs.commands.Command;
+import io.github.mazs.commands.CommandSink;
+import io.github.mazs.units.Unit;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Client of an authoritative server: sends commands and the visible area, moves units of a replica world to positions
+ * streamed by the server. The replica is built locally from the {@link WorldInfo} the server sends first, so static
+ * obstacles are never sent and units are matched by id.
+ */
+public class StateClient implements CommandSink {
+    // view is sent again once the camera moved this far, server adds its own margin around it
+    private static final float VIEW_RESEND_DISTANCE = WorldRts.TILE_SIZE;
+
+    private final MessageTransport transport;
+    // null until the server said which world it runs
+    private WorldInfo serverWorld;
+    // replica, null until started
+    private WorldRts world;
+
+    private final Rectangle sentView = new Rectangle();
+    private boolean viewSent = false;
+    // last received quantized position of every visible unit, moves are relative to it
+    private final IntIntMap visibleX = new IntIntMap();
+    private final IntIntMap visibleY = new IntIntMap();
+
+    private int serverTick = -1;
+    private long receivedBytes = 0;
+    private int unknownUnits = 0;
+
+    public StateClient(MessageTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Receives the server's world, call it every frame until it returns non null, then build the replica and
+     * {@link #start(WorldRts)}.
+     *
+     * @return null while the server hasn't said yet
+     */
+    public WorldInfo pollServerWorld() {
+        if (serverWorld == null) {
+            byte[] message = transport.poll();
+            if (message != null) {
+                receivedBytes += message.length;
+                try {
+                    ByteBuffer in = ByteBuffer.wrap(message);
+                    byte type = in.get();
+                    if (type != StateProtocol.MSG_HELLO) {
+                        throw new IOException("Expected hello, got message type " + type);
+                    }
+                    serverWorld = WorldInfo.read(in);
+                } catch (IOException | BufferUnderflowException e) {
+                    throw new GdxRuntimeException("Malformed hello message", e);
+                }
+            }
+        }
+        return serverWorld;
+    }
+
+    /**
+     * Starts following the server, refuses a replica that isn't the server's world.
+     *
+     * @param world replica built from {@link #pollServerWorld()}, see {@link WorldRts#setReplica(boolean)}
+     * @throws GdxRuntimeException when the replica's size or obstacles differ from the server's world
+     */
+    public void start(WorldRts world) {
+        if (serverWorld == null) {
+            throw new IllegalStateException("Server world isn't known yet");
+        }
+        if (!serverWorld.matches(world)) {
+            transport.dispose();
+            throw new GdxRuntimeException("Server runs a " + serverWorld + ", the local world differs");
+        }
+        this.world = world;
+    }
+
+    @Override
+    public void submit(Command command) {
+        send(out -> {
+            out.writeByte(StateProtocol.MSG_COMMAND);
+            out.writeByte(command.getType());
+            command.write(out);
+        });
+    }
+
+    public void setView(Rectangle view) {
+        if (world == null) {
+            return;
+        }
+        if (viewSent
+            && Math.abs(view.x - sentView.x) < VIEW_RESEND_DISTANCE
+            && Math.abs(view.y - sentView.y) < VIEW_RESEND_DISTANCE
+            && Math.abs(view.width - sentView.width) < VIEW_RESEND_DISTANCE
+            && Math.abs(view.height - sentView.height) < VIEW_RESEND_DISTANCE) {
+            return;
+        }
+        if (!transport.isConnected()) {
+            return;
+        }
+        sentView.set(view);
+        viewSent = true;
+        send(out -> {
+            out.writeByte(StateProtocol.MSG_VIEW);
+            out.writeFloat(view.x);
+            out.writeFloat(view.y);
+            out.writeFloat(view.x + view.width);
+            out.writeFloat(view.y + view.height);
+        });
+    }
+
+    /**
+     * Applies state received since last call, does nothing before {@link #start(WorldRts)}.
+     */
+    public void update() {
+        if (world == null) {
+            return;
+        }
+        byte[] message;
+        while ((message = transport.poll()) != null) {
+            receivedBytes += message.length;
+            try {
+                readState(ByteBuffer.wrap(message));
+            } catch (IOException | BufferUnderflowException e) {
+                // deltas after a broken message would be applied to wrong positions
+                throw new GdxRuntimeException("Malformed state message", e);
+            }
+        }
+    }
+
+    private void readState(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        if (type != StateProtocol.MSG_STATE) {
+            throw new IOException("Unknown message type " + type);
+        }
+        serverTick = in.getInt();
+        int entryCount = in.getShort() & 0xFFFF;
+        for (int i = 0; i < entryCount; i++) {
+            byte kind = in.get();
+            int id = in.getInt();
+            switch (kind) {
+                case StateProtocol.ENTRY_ENTER:
+                    place(id, in.getInt(), in.getInt(), !visibleX.containsKey(id));
+                    break;
+                case StateProtocol.ENTRY_MOVE_SMALL:
+                    if (!visibleX.containsKey(id)) {
+                        throw new IOException("Move of unit " + id + " which is not visible");
+                    }
+                    place(id, visibleX.get(id, 0) + in.get(), visibleY.get(id, 0) + in.get(), false);
+                    break;
+                case StateProtocol.ENTRY_LEAVE:
+                    visibleX.remove(id, 0);
+                    visibleY.remove(id, 0);
+                    break;
+                default:
+                    throw new IOException("Unknown state entry " + kind);
+            }
+        }
+    }
+
+    private void place(int id, int x, int y, boolean appeared) {
+        visibleX.put(id, x);
+        visibleY.put(id, y);
+
+        Unit unit = world.getUnit(id);
+        if (unit == null) {
+            // spawned on the server after the replica was generated
+            unknownUnits++;
+            return;
+        }
+        if (appeared) {
+            unit.setPosition(StateProtocol.dequantize(x), StateProtocol.dequantize(y));
+        } else {
+            unit.setPositionInterpolated(StateProtocol.dequantize(x), StateProtocol.dequantize(y));
+        }
+    }
+
+    private void send(MessageWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            // writing to memory doesn't fail
+            throw new GdxRuntimeException(e);
+        }
+        transport.send(bytes.toByteArray());
+    }
+
+    /**
+     * @return tick of the last received state, -1 before the first one
+     */
+    public int getServerTick() {
+        return serverTick;
+    }
+
+    public int getVisibleUnitCount() {
+        return visibleX.size;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * @return how many times the server sent a unit the replica doesn't have
+     */
+    public int getUnknownUnits() {
+        return unknownUnits;
+    }
+
+    public void dispose() {
+        transport.dispose();
+    }
+
+    private interface MessageWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
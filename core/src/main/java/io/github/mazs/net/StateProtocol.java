@@ -0,0 +1,65 @@
+package io.github.mazs.net;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary messages between an authoritative server and its clients, big endian, first byte is the message type.
+ * <pre>
+ * VIEW     client to server: byte type, float minX, float minY, float maxX, float maxY   area the client looks at,
+ *                                                                                      at most MAX_VIEW_SIZE a side
+ * COMMAND  client to server: byte type, byte commandType, command                        see Command#write
+ * HELLO    server to client, sent first: byte type, world                                see WorldInfo#write
+ * STATE    server to client: byte type, int tick, short entryCount, entries:
+ *            ENTER       byte kind, int unitId, int x, int y      unit became visible, or moved too far for MOVE_SMALL
+ *            MOVE_SMALL  byte kind, int unitId, byte dx, byte dy  moved relative to the last sent position
+ *            LEAVE       byte kind, int unitId                    unit is not visible anymore
+ * </pre>
+ * Positions are quantized to 1 / {@link #POSITION_SCALE} pixel. Messages travel over a websocket, so they arrive in
+ * order and every delta can be relative to the previous message sent to the same client.
+ */
+public final class StateProtocol {
+    public static final byte MSG_VIEW = 1;
+    public static final byte MSG_COMMAND = 2;
+    public static final byte MSG_STATE = 3;
+    public static final byte MSG_HELLO = 4;
+
+    public static final byte ENTRY_ENTER = 1;
+    public static final byte ENTRY_MOVE_SMALL = 2;
+    public static final byte ENTRY_LEAVE = 3;
+
+    public static final int POSITION_SCALE = 4;
+    /**
+     * Longest side of a view in pixels, a few screens, servers cut bigger views down.
+     */
+    public static final float MAX_VIEW_SIZE = 2048f;
+
+    private StateProtocol() {
+    }
+
+    public static int quantize(float position) {
+        return Math.round(position * POSITION_SCALE);
+    }
+
+    public static float dequantize(int position) {
+        return position / (float) POSITION_SCALE;
+    }
+
+    /**
+     * @return HELLO message a server sends to every client that connects
+     */
+    public static byte[] hello(WorldInfo world) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MSG_HELLO);
+            world.write(out);
+        } catch (IOException e) {
+            // writing to memory doesn't fail
+            throw new GdxRuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.mazs.net;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Queue;
+import com.github.czyzby.websocket.WebSocket;
+import com.github.czyzby.websocket.WebSocketAdapter;
+import com.github.czyzby.websocket.WebSockets;
+
+/**
+ * Message transport over gdx-websockets. The platform has to initiate websockets before it is created,
+ * e.g. CommonWebSockets.initiate() on desktop.
+ */
+public class WebSocketTransport implements MessageTransport {
+    private static final String TAG = "WebSocketTransport";
+
+    private final WebSocket socket;
+    // filled by the socket thread on desktop, so access is synchronized
+    private final Queue<byte[]> received = new Queue<>();
+
+    public WebSocketTransport(String url) {
+        socket = WebSockets.newSocket(url);
+        socket.setSendGracefully(true);
+        socket.addListener(new WebSocketAdapter() {
+            @Override
+            public boolean onOpen(WebSocket webSocket) {
+                Gdx.app.log(TAG, "Connected to " + url);
+                return FULLY_HANDLED;
+            }
+
+            @Override
+            public boolean onMessage(WebSocket webSocket, byte[] packet) {
+                synchronized (received) {
+                    received.addLast(packet);
+                }
+                return FULLY_HANDLED;
+            }
+
+            @Override
+            public boolean onError(WebSocket webSocket, Throwable error) {
+                Gdx.app.error(TAG, "Connection to " + url + " failed", error);
+                return FULLY_HANDLED;
+            }
+        });
+        socket.connect();
+    }
+
+    @Override
+    public void send(byte[] message) {
+        socket.send(message);
+    }
+
+    @Override
+    public byte[] poll() {
+        synchronized (received) {
+            return received.notEmpty() ? received.removeFirst() : null;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return socket.isOpen();
+    }
+
+    @Override
+    public void dispose() {
+        WebSockets.closeGracefully(socket);
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.mazs.net;
+
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * World an authoritative server started with, sent to every client before any state, see
+ * {@link StateProtocol#MSG_HELLO}. A generated world is generated again by the client from its seed and size, other
+ * worlds have to be loaded from the same map. Either way the replica's obstacles must hash like the server's, otherwise
+ * units matched by id would be the wrong ones.
+ */
+public class WorldInfo {
+    private static final byte ORIGIN_GENERATED = 1;
+    private static final byte ORIGIN_FILE = 2;
+
+    private final boolean generated;
+    private final long seed;
+    private final int widthTiles;
+    private final int heightTiles;
+    private final long walkabilityHash;
+
+    private WorldInfo(boolean generated, long seed, int widthTiles, int heightTiles, long walkabilityHash) {
+        this.generated = generated;
+        this.seed = seed;
+        this.widthTiles = widthTiles;
+        this.heightTiles = heightTiles;
+        this.walkabilityHash = walkabilityHash;
+    }
+
+    /**
+     * @param seed obstacle seed of the {@link io.github.mazs.worlds.WorldGenerator} that made the world
+     */
+    public static WorldInfo generated(long seed, WorldRts world) {
+        return new WorldInfo(true, seed, world.getWorldWidthTiles(), world.getWorldHeightTiles(),
+            world.getWalkability().contentHash());
+    }
+
+    /**
+     * World loaded from a map or a snapshot.
+     */
+    public static WorldInfo loaded(WorldRts world) {
+        return new WorldInfo(false, 0, world.getWorldWidthTiles(), world.getWorldHeightTiles(),
+            world.getWalkability().contentHash());
+    }
+
+    /**
+     * @return true when the world is the one the server started with, as far as obstacles tell
+     */
+    public boolean matches(WorldRts world) {
+        return world.getWorldWidthTiles() == widthTiles && world.getWorldHeightTiles() == heightTiles
+            && world.getWalkability().contentHash() == walkabilityHash;
+    }
+
+    public boolean isGenerated() {
+        return generated;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidthTiles() {
+        return widthTiles;
+    }
+
+    public int getHeightTiles() {
+        return heightTiles;
+    }
+
+    /**
+     * Writes the info without the message type.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeByte(generated ? ORIGIN_GENERATED : ORIGIN_FILE);
+        out.writeLong(seed);
+        out.writeInt(widthTiles);
+        out.writeInt(heightTiles);
+        out.writeLong(walkabilityHash);
+    }
+
+    static WorldInfo read(ByteBuffer in) throws IOException {
+        byte origin = in.get();
+        if (origin != ORIGIN_GENERATED && origin != ORIGIN_FILE) {
+            throw new IOException("Unknown world origin " + origin);
+        }
+        long seed = in.getLong();
+        int widthTiles = in.getInt();
+        int heightTiles = in.getInt();
+        if (widthTiles < 1 || heightTiles < 1
+            || widthTiles > WorldRts.MAX_WORLD_SIZE_TILES || heightTiles > WorldRts.MAX_WORLD_SIZE_TILES) {
+            throw new IOException("Server world of " + widthTiles + "x" + heightTiles + " tiles is not supported");
+        }
+        return new WorldInfo(origin == ORIGIN_GENERATED, seed, widthTiles, heightTiles, in.getLong());
+    }
+
+    @Override
+    public String toString() {
+        String size = "world of " + widthTiles + "x" + heightTiles + " tiles";
+        return generated ? size + " generated from seed " + seed : size + " loaded from a file";
+    }
+}
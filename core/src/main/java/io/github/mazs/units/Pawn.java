@@ -4,6 +4,7 @@ import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 import com.badlogic.gdx.math.Vector2;
+import io.github.mazs.ecs.ThinkComponent;
 import io.github.mazs.movement.Moving;
 import io.github.mazs.movement.PatrolComponent;
 import io.github.mazs.movement.UnitMovementComponent;
@@ -28,31 +29,30 @@ public class Pawn extends Unit implements Moving {
         super(world, new Vector2(spawnPosition), 64, 30);
         this.movementComponent = new UnitMovementComponent(this, 100);
         this.patrolComponent = new PatrolComponent(this, movementComponent);
+        entity.add(movementComponent);
+        entity.add(patrolComponent);
+        entity.add(new ThinkComponent());
 
-        idleAnimation = createAnimation(
+        idleAnimation = getAnimation(
             IDLE_SPRITE_PATH,
             FRAME_WIDTH,
             FRAME_HEIGHT,
             8, 15);
-        runAnimation = createAnimation(
+        runAnimation = getAnimation(
             RUN_SPRITE_PATH,
             FRAME_WIDTH,
             FRAME_HEIGHT,
             6, 15);
     }
 
-    @Override
-    public void update(float delta) {
-        super.update(delta);
-
-        movementComponent.update(delta);
-        patrolComponent.update(delta);
-    }
-
     public UnitMovementComponent getMovementComponent() {
         return movementComponent;
     }
 
+    public PatrolComponent getPatrolComponent() {
+        return patrolComponent;
+    }
+
     @Override
     public void moveTo(float x, float y) {
         movementComponent.moveTo(x, y);
@@ -68,7 +68,7 @@ public class Pawn extends Unit implements Moving {
 
     @Override
     protected Animation<TextureRegion> getCurrentAnimation() {
-        if (movementComponent.isMoving(position)) return runAnimation;
+        if (movementComponent.isMoving(getPosition())) return runAnimation;
         return idleAnimation;
     }
 }
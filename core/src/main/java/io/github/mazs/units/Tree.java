@@ -10,16 +10,38 @@ public class Tree extends Unit {
     private final Animation<TextureRegion> idleAnimation;
 
     public Tree(WorldRts world, float x, float y) {
+        this(world, x, y, true);
+    }
+
+    private Tree(WorldRts world, float x, float y, boolean indexed) {
         super(world, new Vector2(x, y),
             64,
-            20);
-        idleAnimation = createAnimation(
+            20,
+            indexed);
+        idleAnimation = getAnimation(
             TEXTURE_PATH,
             1536 / 8,
             256,
             8,
             5
         );
+        if (indexed) {
+            world.getWalkability().setBlocked(getPosition(), true);
+        }
+    }
+
+    /**
+     * Tree that is neither in the spatial grid nor blocking its tile yet, {@link io.github.mazs.worlds.WorldBuilder}
+     * does both for all of its trees at once.
+     */
+    public static Tree createUnindexed(WorldRts world, float x, float y) {
+        return new Tree(world, x, y, false);
+    }
+
+    @Override
+    public void dispose() {
+        world.getWalkability().setBlocked(getPosition(), false);
+        super.dispose();
     }
 
     @Override
@@ -1,91 +1,164 @@
 package io.github.mazs.units;
 
+import com.badlogic.ashley.core.Entity;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
+import io.github.mazs.ecs.UnitComponent;
+import io.github.mazs.ecs.UnitStore;
+import io.github.mazs.worlds.RenderSnapshot;
 import io.github.mazs.worlds.WorldRts;
 
 // Represents something that may be placed in the world, and it has collision
+// Unit is a facade over its entity, position and other per tick data live in UnitStore
 public abstract class Unit {
     protected WorldRts world;
-    protected Vector2 position;
-    protected float lifetime = 0f;
+    protected final Entity entity;
+    protected final UnitStore store;
+    protected final int slot;
+    // same on every peer as long as units are created in the same order, used to address units in commands
+    protected final int id;
     protected final int renderSize;
     protected final int renderYOffset;
+    private final Vector2 position = new Vector2();
     private boolean pendingDestroy = false;
 
     public Unit(WorldRts world, Vector2 position, int renderSize, int renderYOffset) {
+        this(world, position, renderSize, renderYOffset, true);
+    }
+
+    /**
+     * @param indexed false leaves the unit out of the spatial grid, for units indexed in bulk by
+     *                {@link io.github.mazs.worlds.WorldBuilder}
+     */
+    protected Unit(WorldRts world, Vector2 position, int renderSize, int renderYOffset, boolean indexed) {
         this.world = world;
-        this.position = position    ;
         this.renderSize = renderSize;
         this.renderYOffset = renderYOffset;
+        this.id = world.nextUnitId();
 
         world.getSpatialGrid().snapToGrid(position);
-        world.getSpatialGrid().update(this);
+        this.store = world.getUnitStore();
+        this.slot = store.allocate(this, position.x, position.y);
+        this.entity = new Entity();
+        entity.add(new UnitComponent(this, slot));
+
+        if (indexed) {
+            world.getSpatialGrid().update(this);
+        }
     }
 
-    protected Animation<TextureRegion> createAnimation(
+    /**
+     * @return animation shared by every unit using the same sheet, null in a headless world
+     */
+    protected Animation<TextureRegion> getAnimation(
         String spriteSheetPath,
         int frameWidth,
         int frameHeight,
         int frameCount,
         float fps) {
-
-        Texture spriteSheet = world.assertsManager.getTexture(spriteSheetPath);
-
-        TextureRegion[] frames = new TextureRegion[frameCount];
-
-        for (int i = 0; i < frameCount; i++) {
-            frames[i] = new TextureRegion(spriteSheet, i * frameWidth, 0, frameWidth, frameHeight);
-        }
-
-        return new Animation<>(1f / fps, frames);
+        return world.assertsManager.getAnimation(spriteSheetPath, frameWidth, frameHeight, frameCount, fps);
     }
 
-    public void update(float delta) {
-        lifetime += delta;
-    }
-
-    public void render(SpriteBatch batch) {
+    /**
+     * Renders the unit between its previous and current simulation position.
+     *
+     * @param batch SpriteBatch to render with
+     * @param alpha Interpolation factor between previous and current tick
+     */
+    public void render(SpriteBatch batch, float alpha) {
         Animation<TextureRegion> currentAnimation = getCurrentAnimation();
 
         if (currentAnimation != null) {
-            TextureRegion currentFrame = currentAnimation.getKeyFrame(lifetime, true);
+            TextureRegion currentFrame = currentAnimation.getKeyFrame(store.getAnimationTime(slot), true);
 
-            float renderX = position.x - renderSize / 2f;
-            float renderY = position.y - renderYOffset;
+            float prevX = store.getPrevX(slot);
+            float prevY = store.getPrevY(slot);
+            float x = prevX + (store.getX(slot) - prevX) * alpha;
+            float y = prevY + (store.getY(slot) - prevY) * alpha;
+            float renderX = x - renderSize / 2f;
+            float renderY = y - renderYOffset;
 
             batch.draw(currentFrame, renderX, renderY, renderSize, renderSize);
         }
     }
 
+    /**
+     * Adds the unit as of the current tick to a snapshot drawn while the simulation runs on, see
+     * {@link RenderSnapshot}.
+     */
+    public void snapshot(RenderSnapshot out) {
+        Animation<TextureRegion> currentAnimation = getCurrentAnimation();
+        if (currentAnimation != null) {
+            out.addUnit(currentAnimation, store.getAnimationTime(slot), store.getPrevX(slot), store.getPrevY(slot),
+                store.getX(slot), store.getY(slot), renderSize, renderYOffset);
+        }
+    }
+
     protected abstract Animation<TextureRegion> getCurrentAnimation();
 
+    /**
+     * @return current position, the vector is reused and refreshed on every call, use {@link #setPosition} to move unit
+     */
     public Vector2 getPosition() {
-        return position;
+        return position.set(store.getX(slot), store.getY(slot));
+    }
+
+    /**
+     * Places unit at given position without interpolating from the previous one.
+     */
+    public void setPosition(float x, float y) {
+        store.setPosition(slot, x, y);
+        updateSpatialPosition();
+    }
+
+    /**
+     * Moves unit to given position, rendering interpolates from the current one.
+     */
+    public void setPositionInterpolated(float x, float y) {
+        store.setPositionInterpolated(slot, x, y);
+        updateSpatialPosition();
     }
 
     public WorldRts getWorld() {
         return world;
     }
 
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Unit is removed from the world after the current update.
+     */
     public void destroy() {
-        pendingDestroy = true;
+        if (!pendingDestroy) {
+            pendingDestroy = true;
+            world.markDestroyed(this);
+        }
     }
 
     public boolean isPendingDestroy() {
         return pendingDestroy;
     }
 
-    public void drawDebug(SpriteBatch batch) {
-        world.getDebugDraw().drawPixel(batch, position.x, position.y, Color.GREEN, 4f);
+    public void drawDebug() {
+        world.getDebugDraw().drawPixel(store.getX(slot), store.getY(slot), Color.GREEN, 4f);
     }
 
     public void dispose() {
         world.getSpatialGrid().remove(this);
+        store.free(slot);
     }
 
     public void updateSpatialPosition() {
@@ -0,0 +1,282 @@
+package io.github.mazs.worlds;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntMap;
+import io.github.mazs.components.AssertsManager;
+import io.github.mazs.units.Pawn;
+import io.github.mazs.units.Tree;
+import io.github.mazs.units.Unit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map made to be shipped with the game: terrain and placed objects, split into square chunks.
+ * Loading streams the file chunk by chunk straight into the world, so memory used on top of the world is one chunk,
+ * no matter how big the map is.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header: int magic "MZMP", short version, int widthTiles, int heightTiles, short chunkSize
+ * chunks: row by row from the bottom left, per chunk:
+ *   int chunkX, int chunkY
+ *   byte terrainFlag           0 when nothing is blocked, 1 when chunkSize * chunkSize bits follow
+ *   terrain bits               blocked tiles without an object, bit (y * chunkSize + x) of byte array, low bit first
+ *   short objectCount, objectCount * (byte type, byte x, byte y)   tile inside of the chunk
+ * </pre>
+ * Pawns are written as spawn points, only their tile is kept.
+ */
+public class MapFile {
+    public static final int VERSION = 1;
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+    // object tile is stored in a byte
+    public static final int MAX_CHUNK_SIZE = 256;
+
+    private static final int MAGIC = 0x4D5A4D50; // "MZMP"
+
+    private static final byte TERRAIN_EMPTY = 0;
+    private static final byte TERRAIN_BITS = 1;
+
+    private static final byte OBJECT_TREE = 1;
+    private static final byte OBJECT_PAWN = 2;
+
+    private MapFile() {
+    }
+
+    public static void save(WorldRts world, FileHandle file) throws IOException {
+        save(world, file, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static void save(WorldRts world, FileHandle file, int chunkSize) throws IOException {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be 1 to " + MAX_CHUNK_SIZE + ", got " + chunkSize);
+        }
+        int widthTiles = world.getWorldWidthTiles();
+        int heightTiles = world.getWorldHeightTiles();
+        int chunksX = (widthTiles + chunkSize - 1) / chunkSize;
+        int chunksY = (heightTiles + chunkSize - 1) / chunkSize;
+
+        // objects by chunk, the world has all of them in memory anyway
+        IntMap<List<Unit>> chunkObjects = new IntMap<>();
+        world.forEachUnit(unit -> {
+            if (!(unit instanceof Tree) && !(unit instanceof Pawn)) {
+                throw new IllegalArgumentException("Unit type can't be saved: " + unit.getClass().getSimpleName());
+            }
+            if (tileX(unit) >= widthTiles || tileY(unit) >= heightTiles || unit.getPosition().x < 0
+                || unit.getPosition().y < 0) {
+                throw new IllegalArgumentException("Unit at " + unit.getPosition() + " is outside of the map");
+            }
+            int chunk = tileY(unit) / chunkSize * chunksX + tileX(unit) / chunkSize;
+            List<Unit> objects = chunkObjects.get(chunk);
+            if (objects == null) {
+                objects = new ArrayList<>();
+                chunkObjects.put(chunk, objects);
+            }
+            objects.add(unit);
+        });
+
+        WalkabilityLayer walkability = world.getWalkability();
+        byte[] terrain = new byte[(chunkSize * chunkSize + 7) / 8];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.write(false)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(widthTiles);
+            out.writeInt(heightTiles);
+            out.writeShort(chunkSize);
+
+            for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+                for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+                    List<Unit> objects = chunkObjects.get(chunkY * chunksX + chunkX);
+                    if (objects != null && objects.size() > 0xFFFF) {
+                        throw new IllegalArgumentException("Chunk " + chunkX + "," + chunkY + " has too many objects");
+                    }
+                    out.writeInt(chunkX);
+                    out.writeInt(chunkY);
+
+                    // trees block their tiles when they are created, only the rest of blocked tiles is terrain
+                    Arrays.fill(terrain, (byte) 0);
+                    for (int y = 0; y < chunkSize; y++) {
+                        for (int x = 0; x < chunkSize; x++) {
+                            int tileX = chunkX * chunkSize + x;
+                            int tileY = chunkY * chunkSize + y;
+                            if (tileX < widthTiles && tileY < heightTiles && walkability.isBlocked(tileX, tileY)) {
+                                setBit(terrain, y * chunkSize + x, true);
+                            }
+                        }
+                    }
+                    if (objects != null) {
+                        for (Unit unit : objects) {
+                            if (unit instanceof Tree) {
+                                int x = tileX(unit) - chunkX * chunkSize;
+                                int y = tileY(unit) - chunkY * chunkSize;
+                                setBit(terrain, y * chunkSize + x, false);
+                            }
+                        }
+                    }
+                    if (isEmpty(terrain)) {
+                        out.writeByte(TERRAIN_EMPTY);
+                    } else {
+                        out.writeByte(TERRAIN_BITS);
+                        out.write(terrain);
+                    }
+
+                    out.writeShort(objects != null ? objects.size() : 0);
+                    if (objects != null) {
+                        for (Unit unit : objects) {
+                            out.writeByte(unit instanceof Tree ? OBJECT_TREE : OBJECT_PAWN);
+                            out.writeByte(tileX(unit) - chunkX * chunkSize);
+                            out.writeByte(tileY(unit) - chunkY * chunkSize);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a world of the map's size and fills it with the map, clusters are left to be generated when used.
+     *
+     * @param headless see {@link WorldRts#WorldRts(boolean)}
+     * @throws IOException when file can't be read, is not a map, or is made by another version
+     */
+    public static WorldRts load(FileHandle file, boolean headless) throws IOException {
+        return load(file, headless, null);
+    }
+
+    /**
+     * Same as {@link #load(FileHandle, boolean)}, for a world drawn with shared assets.
+     *
+     * @param assets see {@link WorldRts#WorldRts(AssertsManager, int, int)}
+     */
+    public static WorldRts load(FileHandle file, AssertsManager assets) throws IOException {
+        return load(file, assets.isHeadless(), assets);
+    }
+
+    private static WorldRts load(FileHandle file, boolean headless, AssertsManager assets) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(file.read(), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file.path() + " is not a map");
+            }
+            int version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported map version " + version + ", expected " + VERSION);
+            }
+            int widthTiles = in.readInt();
+            int heightTiles = in.readInt();
+            int chunkSize = in.readShort() & 0xFFFF;
+            if (widthTiles < 1 || heightTiles < 1
+                || widthTiles > WorldRts.MAX_WORLD_SIZE_TILES || heightTiles > WorldRts.MAX_WORLD_SIZE_TILES
+                || chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+                throw new IOException("Map of " + widthTiles + "x" + heightTiles + " tiles in chunks of " + chunkSize
+                    + " is not supported");
+            }
+
+            WorldRts world = assets != null
+                ? new WorldRts(assets, widthTiles, heightTiles)
+                : new WorldRts(headless, widthTiles, heightTiles);
+            try {
+                WorldBuilder builder = world.beginBuild();
+                readChunks(in, builder, chunkSize);
+                builder.commit(null);
+            } catch (IOException | RuntimeException e) {
+                world.dispose();
+                throw e;
+            }
+            return world;
+        } catch (EOFException e) {
+            throw new IOException(file.path() + " is truncated", e);
+        }
+    }
+
+    private static void readChunks(DataInputStream in, WorldBuilder builder, int chunkSize) throws IOException {
+        WorldRts world = builder.getWorld();
+        int widthTiles = world.getWorldWidthTiles();
+        int heightTiles = world.getWorldHeightTiles();
+        int chunksX = (widthTiles + chunkSize - 1) / chunkSize;
+        int chunksY = (heightTiles + chunkSize - 1) / chunkSize;
+        WalkabilityLayer walkability = world.getWalkability();
+        int tileSize = WorldRts.TILE_SIZE;
+
+        // the only buffer, reused by every chunk
+        byte[] terrain = new byte[(chunkSize * chunkSize + 7) / 8];
+        for (int expectedY = 0; expectedY < chunksY; expectedY++) {
+            for (int expectedX = 0; expectedX < chunksX; expectedX++) {
+                int chunkX = in.readInt();
+                int chunkY = in.readInt();
+                if (chunkX != expectedX || chunkY != expectedY) {
+                    throw new IOException("Expected chunk " + expectedX + "," + expectedY
+                        + ", found " + chunkX + "," + chunkY);
+                }
+                int originX = chunkX * chunkSize;
+                int originY = chunkY * chunkSize;
+
+                byte terrainFlag = in.readByte();
+                if (terrainFlag == TERRAIN_BITS) {
+                    in.readFully(terrain);
+                    for (int bit = 0; bit < chunkSize * chunkSize; bit++) {
+                        if ((terrain[bit >>> 3] & (1 << (bit & 7))) != 0) {
+                            walkability.setBlocked(originX + bit % chunkSize, originY + bit / chunkSize, true);
+                        }
+                    }
+                } else if (terrainFlag != TERRAIN_EMPTY) {
+                    throw new IOException("Unknown terrain of chunk " + chunkX + "," + chunkY + ": " + terrainFlag);
+                }
+
+                int objectCount = in.readShort() & 0xFFFF;
+                for (int i = 0; i < objectCount; i++) {
+                    byte type = in.readByte();
+                    int tileX = originX + (in.readByte() & 0xFF);
+                    int tileY = originY + (in.readByte() & 0xFF);
+                    if (tileX >= widthTiles || tileY >= heightTiles) {
+                        throw new IOException("Object at " + tileX + "," + tileY + " is outside of the map");
+                    }
+                    float x = tileX * tileSize + tileSize / 2f;
+                    float y = tileY * tileSize + tileSize / 2f;
+                    switch (type) {
+                        case OBJECT_TREE:
+                            builder.addTree(x, y);
+                            break;
+                        case OBJECT_PAWN:
+                            builder.addUnit(new Pawn(world, new Vector2(x, y)));
+                            break;
+                        default:
+                            throw new IOException("Unknown object type " + type);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void setBit(byte[] bits, int bit, boolean value) {
+        if (value) {
+            bits[bit >>> 3] |= 1 << (bit & 7);
+        } else {
+            bits[bit >>> 3] &= ~(1 << (bit & 7));
+        }
+    }
+
+    private static boolean isEmpty(byte[] bits) {
+        for (byte b : bits) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int tileX(Unit unit) {
+        return (int) (unit.getPosition().x / WorldRts.TILE_SIZE);
+    }
+
+    private static int tileY(Unit unit) {
+        return (int) (unit.getPosition().y / WorldRts.TILE_SIZE);
+    }
+}
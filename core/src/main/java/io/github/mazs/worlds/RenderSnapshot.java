@@ -0,0 +1,177 @@
+package io.github.mazs.worlds;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+import java.util.Arrays;
+
+/**
+ * Everything needed to draw one simulation tick, copied out of the world so it can be drawn while the world runs the
+ * next tick, see {@link SimulationRunner}.
+ * Units are kept in draw order with their previous and current position, so drawing interpolates between ticks the
+ * same way {@link WorldRts#render} does. Arrays grow as needed and are reused by the next tick written into the
+ * snapshot.
+ */
+public class RenderSnapshot {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long tick;
+    private float tickDuration;
+    // when the snapshot was published, drawing interpolates by time since then
+    private long publishedNanos;
+    private int culledUnitCount;
+
+    private int unitCount = 0;
+    private Animation<TextureRegion>[] animations;
+    private float[] animationTimes;
+    private float[] prevX;
+    private float[] prevY;
+    private float[] x;
+    private float[] y;
+    private float[] renderSizes;
+    private float[] renderYOffsets;
+
+    private int effectCount = 0;
+    private TextureRegion[] effectRegions;
+    // bottom left corner, size and fade of every effect
+    private float[] effectX;
+    private float[] effectY;
+    private float[] effectSizes;
+    private float[] effectAlphas;
+
+    public RenderSnapshot() {
+        resizeUnits(INITIAL_CAPACITY);
+        resizeEffects(16);
+    }
+
+    /**
+     * Starts writing the given tick, dropping what was written before.
+     */
+    void begin(long tick) {
+        this.tick = tick;
+        // regions and animations aren't cleared, they are shared by all units and live as long as the assets
+        unitCount = 0;
+        effectCount = 0;
+    }
+
+    void end(int culledUnitCount) {
+        this.culledUnitCount = culledUnitCount;
+    }
+
+    /**
+     * @param publishedNanos when the snapshot was handed to rendering
+     * @param tickDuration   time until the next snapshot, over which drawing interpolates
+     */
+    public void publish(long publishedNanos, float tickDuration) {
+        this.publishedNanos = publishedNanos;
+        this.tickDuration = tickDuration;
+    }
+
+    /**
+     * Adds a unit on top of the ones added before.
+     *
+     * @param animationTime time of the unit's animation at the tick
+     */
+    public void addUnit(Animation<TextureRegion> animation, float animationTime, float prevX, float prevY,
+                        float x, float y, float renderSize, float renderYOffset) {
+        if (unitCount == this.x.length) {
+            resizeUnits(unitCount * 2);
+        }
+        int i = unitCount++;
+        animations[i] = animation;
+        animationTimes[i] = animationTime;
+        this.prevX[i] = prevX;
+        this.prevY[i] = prevY;
+        this.x[i] = x;
+        this.y[i] = y;
+        renderSizes[i] = renderSize;
+        renderYOffsets[i] = renderYOffset;
+    }
+
+    /**
+     * Adds an effect drawn over all units.
+     *
+     * @param x bottom left corner
+     * @param y bottom left corner
+     */
+    public void addEffect(TextureRegion region, float x, float y, float size, float alpha) {
+        if (effectCount == effectX.length) {
+            resizeEffects(effectCount * 2);
+        }
+        int i = effectCount++;
+        effectRegions[i] = region;
+        effectX[i] = x;
+        effectY[i] = y;
+        effectSizes[i] = size;
+        effectAlphas[i] = alpha;
+    }
+
+    /**
+     * @param alpha interpolation factor between previous and current tick, see {@link #getAlpha(long)}
+     */
+    public void render(SpriteBatch batch, float alpha) {
+        float animationDelta = alpha * tickDuration;
+        for (int i = 0; i < unitCount; i++) {
+            TextureRegion frame = animations[i].getKeyFrame(animationTimes[i] + animationDelta, true);
+            float renderX = prevX[i] + (x[i] - prevX[i]) * alpha - renderSizes[i] / 2f;
+            float renderY = prevY[i] + (y[i] - prevY[i]) * alpha - renderYOffsets[i];
+            batch.draw(frame, renderX, renderY, renderSizes[i], renderSizes[i]);
+        }
+        for (int i = 0; i < effectCount; i++) {
+            batch.setColor(1f, 1f, 1f, effectAlphas[i]);
+            batch.draw(effectRegions[i], effectX[i], effectY[i], effectSizes[i], effectSizes[i]);
+        }
+        batch.setColor(1f, 1f, 1f, 1f);
+    }
+
+    /**
+     * @param now {@link com.badlogic.gdx.utils.TimeUtils#nanoTime()} of the frame
+     * @return how far the frame is from the snapshot's tick towards the next one, 0 to 1
+     */
+    public float getAlpha(long now) {
+        float alpha = (now - publishedNanos) / (tickDuration * 1e9f);
+        return Math.max(0f, Math.min(1f, alpha));
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * @return units of the world left out of the snapshot because they were outside of the view
+     */
+    public int getCulledUnitCount() {
+        return culledUnitCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resizeUnits(int capacity) {
+        animations = animations == null
+            ? (Animation<TextureRegion>[]) new Animation<?>[capacity]
+            : Arrays.copyOf(animations, capacity);
+        animationTimes = copy(animationTimes, capacity);
+        prevX = copy(prevX, capacity);
+        prevY = copy(prevY, capacity);
+        x = copy(x, capacity);
+        y = copy(y, capacity);
+        renderSizes = copy(renderSizes, capacity);
+        renderYOffsets = copy(renderYOffsets, capacity);
+    }
+
+    private void resizeEffects(int capacity) {
+        effectRegions = effectRegions == null ? new TextureRegion[capacity] : Arrays.copyOf(effectRegions, capacity);
+        effectX = copy(effectX, capacity);
+        effectY = copy(effectY, capacity);
+        effectSizes = copy(effectSizes, capacity);
+        effectAlphas = copy(effectAlphas, capacity);
+    }
+
+    private static float[] copy(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.mazs.worlds;
+
+/**
+ * Fixed-step clock for the world simulation.
+ * Frame time is accumulated and consumed in ticks of constant length, so the world
+ * always advances by the same delta no matter how fast or slow frames are rendered.
+ * What is left in the accumulator is exposed as interpolation alpha for rendering.
+ */
+public class SimulationClock {
+    public static final int DEFAULT_TICK_RATE = 30;
+    public static final int DEFAULT_MAX_TICKS_PER_FRAME = 5;
+
+    // frames longer than this (debugger, window drag) are treated as this long
+    private static final float MAX_FRAME_DELTA = 0.25f;
+
+    private final int tickRate;
+    private final float tickDuration;
+    private final int maxTicksPerFrame;
+
+    private float accumulator = 0f;
+    private long tick = 0;
+    private long droppedTicks = 0;
+
+    public SimulationClock() {
+        this(DEFAULT_TICK_RATE, DEFAULT_MAX_TICKS_PER_FRAME);
+    }
+
+    public SimulationClock(int tickRate, int maxTicksPerFrame) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("tickRate must be positive: " + tickRate);
+        }
+        if (maxTicksPerFrame <= 0) {
+            throw new IllegalArgumentException("maxTicksPerFrame must be positive: " + maxTicksPerFrame);
+        }
+        this.tickRate = tickRate;
+        this.tickDuration = 1f / tickRate;
+        this.maxTicksPerFrame = maxTicksPerFrame;
+    }
+
+    /**
+     * Adds frame time to the accumulator.
+     *
+     * @param frameDelta Time elapsed since last frame
+     * @return how many ticks the simulation has to run this frame
+     */
+    public int advance(float frameDelta) {
+        accumulator += Math.min(frameDelta, MAX_FRAME_DELTA);
+
+        int ticks = (int) (accumulator / tickDuration);
+        if (ticks > maxTicksPerFrame) {
+            // we can't catch up, drop the backlog instead of spiraling into longer and longer frames
+            droppedTicks += ticks - maxTicksPerFrame;
+            accumulator -= (ticks - maxTicksPerFrame) * tickDuration;
+            ticks = maxTicksPerFrame;
+        }
+
+        accumulator -= ticks * tickDuration;
+        tick += ticks;
+        return ticks;
+    }
+
+    /**
+     * @return how far rendering is between the previous and the current tick, in range [0, 1)
+     */
+    public float getAlpha() {
+        return Math.min(accumulator / tickDuration, 1f);
+    }
+
+    public float getTickDuration() {
+        return tickDuration;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getMaxTicksPerFrame() {
+        return maxTicksPerFrame;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.mazs.worlds;
+
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * Ticks a world away from the render thread, which draws {@link RenderSnapshot}s of it instead of the world.
+ * Anything else touching the world from another thread, e.g. input selecting units or giving orders, must hold
+ * {@link #getLock()}, ticks run while holding it. Platforms with threads create one, see
+ * {@link io.github.mazs.Platform#createSimulationRunner}.
+ */
+public interface SimulationRunner {
+    /**
+     * Publishes the first snapshot and starts ticking.
+     *
+     * @param visibleArea world area seen by the camera at start
+     */
+    void start(Rectangle visibleArea);
+
+    /**
+     * @param visibleArea world area seen by the camera, used by the next snapshot
+     */
+    void setView(Rectangle visibleArea);
+
+    /**
+     * Called by the render thread once per frame.
+     *
+     * @return newest published snapshot, owned by the caller until the next call
+     * @throws com.badlogic.gdx.utils.GdxRuntimeException when the simulation failed
+     */
+    RenderSnapshot acquireSnapshot();
+
+    /**
+     * @return lock held by the simulation while it ticks
+     */
+    Object getLock();
+
+    /**
+     * @return average time of one tick, measured where the simulation runs
+     */
+    float getTickTimeMs();
+
+    /**
+     * Stops ticking and waits for the current tick to finish.
+     */
+    void dispose();
+}
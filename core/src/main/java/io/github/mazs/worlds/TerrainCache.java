@@ -0,0 +1,194 @@
+package io.github.mazs.worlds;
+
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Ground of the map kept on the GPU in square chunks, so drawing it costs one draw call per visible chunk instead of
+ * submitting every tile to the SpriteBatch each frame.
+ * Chunk slots are reused for the chunks the camera sees, least recently drawn slot first, so memory depends on the
+ * size of the view, not of the map. Slots come in pages of one SpriteCache each, a page is added when the view has
+ * more chunks than there are slots, so a big view doesn't build its chunks again every frame. A chunk is built again
+ * only when it comes into view after its slot was reused. The ground is one tile repeated, it never changes.
+ */
+public class TerrainCache {
+    public static final int CHUNK_SIZE_TILES = 16;
+    private static final int TILES_PER_CHUNK = CHUNK_SIZE_TILES * CHUNK_SIZE_TILES;
+    // SpriteCache with indices holds at most 8191 sprites
+    private static final int SLOTS_PER_PAGE = 8191 / TILES_PER_CHUNK;
+
+    private final Array<SpriteCache> pages = new Array<>();
+    private final TextureRegion groundTile;
+    private final int widthTiles;
+    private final int heightTiles;
+    private final int tileSize;
+    private final int chunksX;
+    private final int chunksY;
+
+    // slot is the cache slot % SLOTS_PER_PAGE of page slot / SLOTS_PER_PAGE
+    private int[] cacheIds = new int[0];
+    // chunk index held by slot, -1 when free
+    private int[] slotChunks = new int[0];
+    private long[] slotLastDrawn = new long[0];
+    private final IntIntMap chunkSlots = new IntIntMap();
+    private long frame = 0;
+
+    // counted by the last render
+    private int drawnChunkCount = 0;
+    private int drawnTileCount = 0;
+    private int builtChunkCount = 0;
+
+    public TerrainCache(TextureRegion groundTile, int widthTiles, int heightTiles, int tileSize) {
+        this.groundTile = groundTile;
+        this.widthTiles = widthTiles;
+        this.heightTiles = heightTiles;
+        this.tileSize = tileSize;
+        this.chunksX = (widthTiles + CHUNK_SIZE_TILES - 1) / CHUNK_SIZE_TILES;
+        this.chunksY = (heightTiles + CHUNK_SIZE_TILES - 1) / CHUNK_SIZE_TILES;
+
+        addPage();
+    }
+
+    private void addPage() {
+        int firstSlot = cacheIds.length;
+        int slotCount = firstSlot + SLOTS_PER_PAGE;
+        cacheIds = Arrays.copyOf(cacheIds, slotCount);
+        slotChunks = Arrays.copyOf(slotChunks, slotCount);
+        slotLastDrawn = Arrays.copyOf(slotLastDrawn, slotCount);
+        Arrays.fill(slotChunks, firstSlot, slotCount, -1);
+
+        SpriteCache cache = new SpriteCache(SLOTS_PER_PAGE * TILES_PER_CHUNK, true);
+        // a redefined cache can't grow, so every slot starts at the size of a full chunk
+        for (int slot = firstSlot; slot < slotCount; slot++) {
+            cache.beginCache();
+            for (int i = 0; i < TILES_PER_CHUNK; i++) {
+                cache.add(groundTile, 0, 0, tileSize, tileSize);
+            }
+            cacheIds[slot] = cache.endCache();
+        }
+        pages.add(cache);
+    }
+
+    /**
+     * Draws chunks overlapping the visible area. Must not be called between begin() and end() of a SpriteBatch.
+     */
+    public void render(Matrix4 projection, Rectangle visibleArea) {
+        frame++;
+        drawnChunkCount = 0;
+        drawnTileCount = 0;
+        builtChunkCount = 0;
+
+        int chunkWorldSize = CHUNK_SIZE_TILES * tileSize;
+        int fromX = Math.max(0, (int) Math.floor(visibleArea.x / chunkWorldSize));
+        int fromY = Math.max(0, (int) Math.floor(visibleArea.y / chunkWorldSize));
+        int toX = Math.min(chunksX - 1, (int) Math.floor((visibleArea.x + visibleArea.width) / chunkWorldSize));
+        int toY = Math.min(chunksY - 1, (int) Math.floor((visibleArea.y + visibleArea.height) / chunkWorldSize));
+
+        SpriteCache drawing = null;
+        for (int chunkY = fromY; chunkY <= toY; chunkY++) {
+            for (int chunkX = fromX; chunkX <= toX; chunkX++) {
+                int chunk = chunkY * chunksX + chunkX;
+                int slot = chunkSlots.get(chunk, -1);
+                if (slot < 0) {
+                    // caches can't be defined while drawing
+                    if (drawing != null) {
+                        drawing.end();
+                        drawing = null;
+                    }
+                    slot = leastRecentlyDrawnSlot();
+                    if (slotLastDrawn[slot] == frame) {
+                        // every slot holds a chunk of this view
+                        slot = cacheIds.length;
+                        addPage();
+                    }
+                    build(slot, chunk);
+                }
+                SpriteCache cache = pages.get(slot / SLOTS_PER_PAGE);
+                if (drawing != cache) {
+                    if (drawing != null) {
+                        drawing.end();
+                    }
+                    drawing = cache;
+                    drawing.setProjectionMatrix(projection);
+                    drawing.begin();
+                }
+                drawing.draw(cacheIds[slot]);
+                slotLastDrawn[slot] = frame;
+                drawnChunkCount++;
+                drawnTileCount += chunkTileCount(chunkX, chunkY);
+            }
+        }
+        if (drawing != null) {
+            drawing.end();
+        }
+    }
+
+    private int leastRecentlyDrawnSlot() {
+        int best = 0;
+        for (int slot = 1; slot < slotLastDrawn.length; slot++) {
+            if (slotLastDrawn[slot] < slotLastDrawn[best]) {
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    private void build(int slot, int chunk) {
+        if (slotChunks[slot] >= 0) {
+            chunkSlots.remove(slotChunks[slot], -1);
+        }
+        int chunkX = chunk % chunksX;
+        int chunkY = chunk / chunksX;
+        int fromX = chunkX * CHUNK_SIZE_TILES;
+        int fromY = chunkY * CHUNK_SIZE_TILES;
+        int toX = Math.min(widthTiles, fromX + CHUNK_SIZE_TILES);
+        int toY = Math.min(heightTiles, fromY + CHUNK_SIZE_TILES);
+
+        SpriteCache cache = pages.get(slot / SLOTS_PER_PAGE);
+        cache.beginCache(cacheIds[slot]);
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                cache.add(groundTile, x * tileSize, y * tileSize, tileSize, tileSize);
+            }
+        }
+        cache.endCache();
+
+        slotChunks[slot] = chunk;
+        chunkSlots.put(chunk, slot);
+        builtChunkCount++;
+    }
+
+    private int chunkTileCount(int chunkX, int chunkY) {
+        int width = Math.min(CHUNK_SIZE_TILES, widthTiles - chunkX * CHUNK_SIZE_TILES);
+        int height = Math.min(CHUNK_SIZE_TILES, heightTiles - chunkY * CHUNK_SIZE_TILES);
+        return width * height;
+    }
+
+    public int getDrawnChunkCount() {
+        return drawnChunkCount;
+    }
+
+    public int getDrawnTileCount() {
+        return drawnTileCount;
+    }
+
+    /**
+     * @return chunks built by the last render, 0 while the camera stays over cached chunks
+     */
+    public int getBuiltChunkCount() {
+        return builtChunkCount;
+    }
+
+    public void dispose() {
+        for (SpriteCache cache : pages) {
+            cache.dispose();
+        }
+        pages.clear();
+    }
+}
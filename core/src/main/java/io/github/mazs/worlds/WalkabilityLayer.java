@@ -0,0 +1,128 @@
+package io.github.mazs.worlds;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.nio.Buffer;
+import java.nio.LongBuffer;
+
+/**
+ * Bit per tile, set when the tile is blocked by a static obstacle.
+ * Units moving around are not part of it, they are tracked by {@link io.github.mazs.components.UnitsSpatialHashGrid}.
+ * Bits live in a LongBuffer, so a layer can be backed directly by a memory mapped snapshot;
+ * read-only bits are copied to heap on the first change.
+ */
+public class WalkabilityLayer {
+    private final int widthTiles;
+    private final int heightTiles;
+    private final int tileSize;
+    private LongBuffer bits;
+
+    public WalkabilityLayer(int widthTiles, int heightTiles, int tileSize) {
+        this.widthTiles = widthTiles;
+        this.heightTiles = heightTiles;
+        this.tileSize = tileSize;
+        this.bits = LongBuffer.allocate(wordCount(widthTiles, heightTiles));
+    }
+
+    public static int wordCount(int widthTiles, int heightTiles) {
+        return (int) (((long) widthTiles * heightTiles + 63) / 64);
+    }
+
+    /**
+     * Tiles outside of the map are blocked.
+     */
+    public boolean isBlocked(int tileX, int tileY) {
+        if (tileX < 0 || tileY < 0 || tileX >= widthTiles || tileY >= heightTiles) {
+            return true;
+        }
+        int index = tileY * widthTiles + tileX;
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    public boolean isBlocked(Vector2 position) {
+        return isBlocked(position.x, position.y);
+    }
+
+    public boolean isBlocked(float x, float y) {
+        if (x < 0 || y < 0) {
+            return true;
+        }
+        return isBlocked((int) (x / tileSize), (int) (y / tileSize));
+    }
+
+    public void setBlocked(int tileX, int tileY, boolean blocked) {
+        if (tileX < 0 || tileY < 0 || tileX >= widthTiles || tileY >= heightTiles) {
+            return;
+        }
+        int index = tileY * widthTiles + tileX;
+        int word = index >>> 6;
+        long mask = 1L << index;
+        long current = bits.get(word);
+        long updated = blocked ? current | mask : current & ~mask;
+        if (updated == current) {
+            return;
+        }
+        if (bits.isReadOnly()) {
+            LongBuffer copy = LongBuffer.allocate(bits.capacity());
+            ((Buffer) bits).clear();
+            copy.put(bits);
+            bits = copy;
+        }
+        bits.put(word, updated);
+    }
+
+    public void setBlocked(Vector2 position, boolean blocked) {
+        setBlocked((int) (position.x / tileSize), (int) (position.y / tileSize), blocked);
+    }
+
+    /**
+     * @return read-only view of the bits, tile (x, y) is bit (y * width + x)
+     */
+    public LongBuffer getBits() {
+        LongBuffer view = bits.asReadOnlyBuffer();
+        ((Buffer) view).clear();
+        return view;
+    }
+
+    /**
+     * Replaces all bits with given ones, the buffer is used as is, not copied until the layer is changed.
+     */
+    public void setBits(LongBuffer newBits) {
+        if (newBits.capacity() != wordCount(widthTiles, heightTiles)) {
+            throw new IllegalArgumentException("Expected " + wordCount(widthTiles, heightTiles)
+                + " words for " + widthTiles + "x" + heightTiles + " tiles, got " + newBits.capacity());
+        }
+        this.bits = newBits;
+    }
+
+    /**
+     * 64 bit hash of map size and all bits, same blocked tiles always give the same hash.
+     */
+    public long contentHash() {
+        long hash = 0xCBF29CE484222325L;
+        hash = mix(hash, widthTiles);
+        hash = mix(hash, heightTiles);
+        hash = mix(hash, tileSize);
+        for (int i = 0, n = bits.capacity(); i < n; i++) {
+            hash = mix(hash, bits.get(i));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value * 0x9E3779B97F4A7C15L;
+        return Long.rotateLeft(hash, 31) * 0xBF58476D1CE4E5B9L;
+    }
+
+    public int getWidthTiles() {
+        return widthTiles;
+    }
+
+    public int getHeightTiles() {
+        return heightTiles;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+}
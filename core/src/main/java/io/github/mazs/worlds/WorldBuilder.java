@@ -0,0 +1,92 @@
+package io.github.mazs.worlds;
+
+import com.badlogic.gdx.utils.Array;
+import io.github.mazs.movement.hpa.ClustersManager;
+import io.github.mazs.movement.hpa.NavigationCache;
+import io.github.mazs.units.Tree;
+import io.github.mazs.units.Unit;
+
+/**
+ * Fills a world with many units at once, see {@link WorldRts#beginBuild()}.
+ * Units are created as they are added, so ids follow the order of adding, but indexing waits for {@link #commit}:
+ * walkability, spatial grid and engine are updated in one pass over the added units, then navigation is built once.
+ * Until the commit the world doesn't know about added units, so nothing can look them up.
+ */
+public class WorldBuilder {
+    private final WorldRts world;
+    // everything added, in order
+    private final Array<Unit> units = new Array<>();
+    // trees among them, they block tiles and are indexed in bulk
+    private final Array<Unit> trees = new Array<>();
+    private boolean committed = false;
+
+    WorldBuilder(WorldRts world) {
+        this.world = world;
+    }
+
+    public WorldRts getWorld() {
+        return world;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the position is outside of the map
+     */
+    public WorldBuilder addTree(float x, float y) {
+        checkNotCommitted();
+        if (x < 0 || y < 0
+            || x >= world.getWorldWidthTiles() * WorldRts.TILE_SIZE
+            || y >= world.getWorldHeightTiles() * WorldRts.TILE_SIZE) {
+            throw new IllegalArgumentException("Tree at " + x + "," + y + " is outside of the map");
+        }
+        Tree tree = Tree.createUnindexed(world, x, y);
+        units.add(tree);
+        trees.add(tree);
+        return this;
+    }
+
+    /**
+     * Adds a unit that indexed itself when it was created, e.g. a pawn, keeping its place among the added units.
+     */
+    public WorldBuilder addUnit(Unit unit) {
+        checkNotCommitted();
+        units.add(unit);
+        return this;
+    }
+
+    public int getUnitCount() {
+        return units.size;
+    }
+
+    /**
+     * Indexes added units and builds navigation of the whole world. Clusters generated before are dropped.
+     *
+     * @param navigationCache loads or generates all clusters at once, null leaves them to be generated when used
+     */
+    public void commit(NavigationCache navigationCache) {
+        checkNotCommitted();
+        committed = true;
+
+        WalkabilityLayer walkability = world.getWalkability();
+        for (int i = 0; i < trees.size; i++) {
+            walkability.setBlocked(trees.get(i).getPosition(), true);
+        }
+        world.getSpatialGrid().addAll(trees);
+        for (int i = 0; i < units.size; i++) {
+            world.addUnit(units.get(i));
+        }
+        units.clear();
+        trees.clear();
+
+        ClustersManager clustersManager = world.getClustersManager();
+        clustersManager.clearClusters();
+        if (navigationCache != null) {
+            navigationCache.loadOrGenerate(clustersManager);
+        }
+    }
+
+    private void checkNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("World build is already committed");
+        }
+    }
+}
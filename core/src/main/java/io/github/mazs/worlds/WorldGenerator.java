@@ -0,0 +1,217 @@
+package io.github.mazs.worlds;
+
+import io.github.mazs.movement.hpa.ClustersManager;
+import io.github.mazs.movement.hpa.Gate;
+import io.github.mazs.movement.hpa.NavigationCache;
+import io.github.mazs.units.Pawn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills world with the test map: tree border, random obstacles in every cluster and a few pawns.
+ * Used by every runtime, so rendered and headless worlds are the same for the same seed.
+ */
+public class WorldGenerator {
+    public static final long DEFAULT_OBSTACLE_SEED = 12345L;
+
+    private final long obstacleSeed;
+    private NavigationCache navigationCache;
+
+    public WorldGenerator() {
+        this(DEFAULT_OBSTACLE_SEED);
+    }
+
+    public WorldGenerator(long obstacleSeed) {
+        this.obstacleSeed = obstacleSeed;
+    }
+
+    public long getObstacleSeed() {
+        return obstacleSeed;
+    }
+
+    /**
+     * @param navigationCache used to load clusters instead of generating them, null to always generate
+     */
+    public void setNavigationCache(NavigationCache navigationCache) {
+        this.navigationCache = navigationCache;
+    }
+
+    /**
+     * Places obstacles in one bulk build and loads clusters from navigation cache when it is set, otherwise clusters
+     * are generated the first time pathfinding or debug drawing needs them.
+     */
+    public void generate(WorldRts world) {
+        WorldBuilder builder = world.beginBuild();
+        // Create obstacle patterns for testing pathfinding
+        createObstaclePatterns(builder);
+        builder.commit(navigationCache);
+    }
+
+    /**
+     * Spawns one idle pawn and two pawns patrolling between gates of the first clusters.
+     *
+     * @return spawned pawns, idle one goes first
+     */
+    public List<Pawn> spawnPawns(WorldRts world) {
+        List<Pawn> pawns = new ArrayList<>();
+        ClustersManager cm = world.getClustersManager();
+
+        Gate gate000 = cm.getCluster(0,0).getGates().get(0);
+        Pawn pawn1 = new Pawn(world, gate000.getMiddlePoint());
+        world.addUnit(pawn1);
+        pawns.add(pawn1);
+
+        Gate gate001 = cm.getCluster(0,0).getGates().get(1);
+        Gate gate102 = cm.getCluster(1,0).getGates().get(3);
+        Pawn pawn2 = new Pawn(world, gate001.getMiddlePoint());
+        pawn2.patrol(gate102.getMiddlePoint());
+        world.addUnit(pawn2);
+        pawns.add(pawn2);
+
+        Pawn pawn3 = new Pawn(world, gate102.getMiddlePoint());
+        pawn3.patrol(gate001.getMiddlePoint());
+        world.addUnit(pawn3);
+        pawns.add(pawn3);
+
+        return pawns;
+    }
+
+    /**
+     * Create tree border and random obstacle patterns (T, L, I shapes) in each cluster.
+     */
+    private void createObstaclePatterns(WorldBuilder builder) {
+        final int TILE = WorldRts.TILE_SIZE;
+        final int mapWidthTiles = builder.getWorld().getWorldWidthTiles();
+        final int mapHeightTiles = builder.getWorld().getWorldHeightTiles();
+
+        // Tree border around the map
+        createBorder(builder, TILE, mapWidthTiles, mapHeightTiles);
+
+        // Generate random obstacles in each cluster
+        Random random = new Random(obstacleSeed);
+        int clusterSize = 10; // tiles per cluster
+        int clustersX = (int) Math.ceil((double) mapWidthTiles / clusterSize);
+        int clustersY = (int) Math.ceil((double) mapHeightTiles / clusterSize);
+
+        for (int cx = 0; cx < clustersX; cx++) {
+            for (int cy = 0; cy < clustersY; cy++) {
+                int obstacleCount = 1 + random.nextInt(5); // 1-3 obstacles per cluster
+                for (int o = 0; o < obstacleCount; o++) {
+                    createRandomObstacle(builder, random, cx, cy, clusterSize, TILE, clustersX, clustersY);
+                }
+            }
+        }
+    }
+
+    private void createBorder(WorldBuilder builder, int TILE, int mapWidthTiles, int mapHeightTiles) {
+        // Bottom border
+        for (int x = 0; x < mapWidthTiles; x++) {
+            addTree(builder, x * TILE + TILE / 2f, TILE / 2f);
+        }
+        // Top border
+        for (int x = 0; x < mapWidthTiles; x++) {
+            addTree(builder, x * TILE + TILE / 2f, (mapHeightTiles - 1) * TILE + TILE / 2f);
+        }
+        // Left border (excluding corners)
+        for (int y = 1; y < mapHeightTiles - 1; y++) {
+            addTree(builder, TILE / 2f, y * TILE + TILE / 2f);
+        }
+        // Right border (excluding corners)
+        for (int y = 1; y < mapHeightTiles - 1; y++) {
+            addTree(builder, (mapWidthTiles - 1) * TILE + TILE / 2f, y * TILE + TILE / 2f);
+        }
+    }
+
+    private void createRandomObstacle(WorldBuilder builder, Random random, int clusterX, int clusterY,
+                                       int clusterSize, int TILE, int clustersX, int clustersY) {
+        // Calculate cluster bounds in world coordinates
+        float clusterStartX = clusterX * clusterSize * TILE;
+        float clusterStartY = clusterY * clusterSize * TILE;
+
+        // Adjust margins for edge clusters (extra margin near world borders)
+        int marginLeft = (clusterX == 0) ? 3 : 2;
+        int marginRight = (clusterX == clustersX - 1) ? 3 : 2;
+        int marginBottom = (clusterY == 0) ? 3 : 2;
+        int marginTop = (clusterY == clustersY - 1) ? 3 : 2;
+
+        int availableX = clusterSize - marginLeft - marginRight;
+        int availableY = clusterSize - marginBottom - marginTop;
+
+        // Skip if not enough space
+        if (availableX < 2 || availableY < 2) {
+            return;
+        }
+
+        float x = clusterStartX + (marginLeft + random.nextInt(availableX)) * TILE + TILE / 2f;
+        float y = clusterStartY + (marginBottom + random.nextInt(availableY)) * TILE + TILE / 2f;
+
+        int shapeType = random.nextInt(3); // 0=T, 1=L, 2=I
+        int size = 2 + random.nextInt(3); // 2-4 tiles
+
+        switch (shapeType) {
+            case 0: createTShape(builder, x, y, size, TILE, random.nextBoolean()); break;
+            case 1: createLShape(builder, x, y, size, TILE, random.nextInt(4)); break;
+            case 2: createIShape(builder, x, y, size, TILE, random.nextBoolean()); break;
+        }
+    }
+
+    private void createTShape(WorldBuilder builder, float x, float y, int size, int TILE, boolean vertical) {
+        if (vertical) {
+            // Vertical T
+            for (int i = 0; i < size; i++) {
+                addTree(builder, x, y + i * TILE);
+            }
+            for (int i = 1; i <= size / 2; i++) {
+                addTree(builder, x - i * TILE, y + (size / 2) * TILE);
+                addTree(builder, x + i * TILE, y + (size / 2) * TILE);
+            }
+        } else {
+            // Horizontal T
+            for (int i = 0; i < size; i++) {
+                addTree(builder, x + i * TILE, y);
+            }
+            for (int i = 1; i <= size / 2; i++) {
+                addTree(builder, x + (size / 2) * TILE, y - i * TILE);
+                addTree(builder, x + (size / 2) * TILE, y + i * TILE);
+            }
+        }
+    }
+
+    private void createLShape(WorldBuilder builder, float x, float y, int size, int TILE, int rotation) {
+        // rotation: 0=normal, 1=90deg, 2=180deg, 3=270deg
+        int dx1 = 0, dy1 = 1, dx2 = 1, dy2 = 0;
+        switch (rotation) {
+            case 1: dx1 = -1; dy1 = 0; dx2 = 0; dy2 = 1; break;
+            case 2: dx1 = 0; dy1 = -1; dx2 = -1; dy2 = 0; break;
+            case 3: dx1 = 1; dy1 = 0; dx2 = 0; dy2 = -1; break;
+        }
+
+        for (int i = 0; i < size; i++) {
+            addTree(builder, x + dx1 * i * TILE, y + dy1 * i * TILE);
+        }
+        for (int i = 1; i < size; i++) {
+            addTree(builder, x + dx2 * i * TILE, y + dy2 * i * TILE);
+        }
+    }
+
+    private void addTree(WorldBuilder builder, float x, float y) {
+        WorldRts world = builder.getWorld();
+        // obstacles of clusters cut by the map edge may reach out of the map
+        if (x >= 0 && y >= 0
+            && x < world.getWorldWidthTiles() * WorldRts.TILE_SIZE && y < world.getWorldHeightTiles() * WorldRts.TILE_SIZE) {
+            builder.addTree(x, y);
+        }
+    }
+
+    private void createIShape(WorldBuilder builder, float x, float y, int size, int TILE, boolean vertical) {
+        for (int i = 0; i < size; i++) {
+            if (vertical) {
+                addTree(builder, x, y + i * TILE);
+            } else {
+                addTree(builder, x + i * TILE, y);
+            }
+        }
+    }
+}
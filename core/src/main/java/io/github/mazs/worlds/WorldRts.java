@@ -1,12 +1,31 @@
 package io.github.mazs.worlds;
 
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import io.github.mazs.commands.Command;
+import io.github.mazs.commands.ReplayRecorder;
 import io.github.mazs.components.AssertsManager;
 import io.github.mazs.components.DebugDrawComponent;
+import io.github.mazs.components.Profiler;
 import io.github.mazs.components.UnitsSpatialHashGrid;
+import io.github.mazs.ecs.AnimationSystem;
+import io.github.mazs.ecs.MovementSystem;
+import io.github.mazs.ecs.RenderSystem;
+import io.github.mazs.ecs.SpatialIndexSystem;
+import io.github.mazs.ecs.ThinkSystem;
+import io.github.mazs.ecs.UnitComponent;
+import io.github.mazs.ecs.UnitStore;
 import io.github.mazs.effects.AnimationEffect;
 import io.github.mazs.movement.hpa.ClustersManager;
 import io.github.mazs.units.Unit;
@@ -14,59 +33,186 @@ import io.github.mazs.units.Unit;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class WorldRts {
-    private static final int WORLD_WIDTH_TILES = 50;
-    private static final int WORLD_HEIGHT_TILES = 50;
+    public static final int DEFAULT_WORLD_SIZE_TILES = 50;
+    public static final int MAX_WORLD_SIZE_TILES = 8192;
 
     public static final int TILE_SIZE = 16;
+    public static final int CLUSTER_SIZE_TILES = 10;
 
-    private Texture tilesetTexture;
-    private TextureRegion grassTile;
+    private final int worldWidthTiles;
+    private final int worldHeightTiles;
 
-    private List<Unit> units = new ArrayList<>();
+    private TerrainCache terrainCache;
+
+    private final Engine engine = new Engine();
+    private final UnitStore unitStore = new UnitStore();
+    private final RenderSystem renderSystem;
+    private final ImmutableArray<Entity> unitEntities;
     private List<AnimationEffect> effects = new ArrayList<>();
+    // units to remove after the update, so finding them doesn't go over every unit of a big map
+    private final List<Unit> destroyedUnits = new ArrayList<>();
+    private final IntMap<Unit> unitsById = new IntMap<>();
+    private int nextUnitId = 1;
+    private long tick = 0;
+    private ReplayRecorder replayRecorder;
+    private Profiler profiler;
+    // section names of systems, getSimpleName() builds a new string on every call
+    private final ObjectMap<Class<?>, String> systemSections = new ObjectMap<>();
 
-    public boolean debug = true;
+    public boolean debug;
     private ClustersManager clustersManager;
     private UnitsSpatialHashGrid spatialGrid;
-    public final AssertsManager assertsManager = new AssertsManager();
+    private WalkabilityLayer walkability;
+    public final AssertsManager assertsManager;
+    // false when the assets are shared with other worlds
+    private final boolean ownsAssets;
+    private final boolean headless;
     private DebugDrawComponent debugDraw;
+    // units drawn by the last render
+    private int drawnUnitCount = 0;
 
     public WorldRts() {
+        this(false);
+    }
+
+    /**
+     * @param headless world without rendering resources, it can be updated without GL context but not rendered
+     */
+    public WorldRts(boolean headless) {
+        this(headless, DEFAULT_WORLD_SIZE_TILES, DEFAULT_WORLD_SIZE_TILES);
+    }
+
+    /**
+     * Creating a world doesn't depend on its size, clusters of the map are generated when they are first used.
+     *
+     * @param widthTiles  map width, 1 to {@link #MAX_WORLD_SIZE_TILES}
+     * @param heightTiles map height, 1 to {@link #MAX_WORLD_SIZE_TILES}
+     */
+    public WorldRts(boolean headless, int widthTiles, int heightTiles) {
+        this(new AssertsManager(headless), true, widthTiles, heightTiles);
+    }
+
+    /**
+     * World drawn with assets loaded beforehand, see {@link AssertsManager#queuePreload()}. The assets are shared,
+     * disposing the world leaves them loaded.
+     *
+     * @param assets headless assets make a headless world
+     */
+    public WorldRts(AssertsManager assets, int widthTiles, int heightTiles) {
+        this(assets, false, widthTiles, heightTiles);
+    }
+
+    private WorldRts(AssertsManager assets, boolean ownsAssets, int widthTiles, int heightTiles) {
+        if (widthTiles < 1 || heightTiles < 1
+            || widthTiles > MAX_WORLD_SIZE_TILES || heightTiles > MAX_WORLD_SIZE_TILES) {
+            throw new IllegalArgumentException("World of " + widthTiles + "x" + heightTiles
+                + " tiles, size must be 1 to " + MAX_WORLD_SIZE_TILES);
+        }
+        this.worldWidthTiles = widthTiles;
+        this.worldHeightTiles = heightTiles;
+        this.headless = assets.isHeadless();
+        this.debug = !headless;
+        this.assertsManager = assets;
+        this.ownsAssets = ownsAssets;
         spatialGrid = new UnitsSpatialHashGrid(TILE_SIZE);
+        walkability = new WalkabilityLayer(widthTiles, heightTiles, TILE_SIZE);
         clustersManager = new ClustersManager(
             TILE_SIZE,
-            10, spatialGrid,
+            CLUSTER_SIZE_TILES, spatialGrid, walkability,
             new Vector2(
-                WORLD_WIDTH_TILES * TILE_SIZE,
-                WORLD_HEIGHT_TILES * TILE_SIZE
+                widthTiles * TILE_SIZE,
+                heightTiles * TILE_SIZE
             )
         );
-        debugDraw = DebugDrawComponent.getInstance(assertsManager);
-        tilesetTexture = new Texture("TinySwords/Terrain/Tileset/Tilemap_color1.png");
 
-        grassTile = new TextureRegion(tilesetTexture, 32, 16, 16, 16);
+        engine.addSystem(new MovementSystem(unitStore, 0));
+        engine.addSystem(new SpatialIndexSystem(unitStore, spatialGrid, 1));
+        engine.addSystem(new ThinkSystem(
+            ThinkSystem.bucketsFor(SimulationClock.DEFAULT_TICK_RATE, ThinkSystem.DEFAULT_THINK_INTERVAL), 2));
+        engine.addSystem(new AnimationSystem(unitStore, 3));
+        // headless worlds aren't rendered, they don't keep render order of their units either
+        if (!headless) {
+            renderSystem = new RenderSystem(unitStore, TILE_SIZE, heightTiles);
+            engine.addSystem(renderSystem);
+        } else {
+            renderSystem = null;
+        }
+        unitEntities = engine.getEntitiesFor(Family.all(UnitComponent.class).get());
+
+        debugDraw = DebugDrawComponent.getInstance(assertsManager);
+        debugDraw.setEnabled(debug);
+        if (!headless) {
+            TextureRegion tileset = assertsManager.getRegion("TinySwords/Terrain/Tileset/Tilemap_color1.png");
+            TextureRegion grassTile = new TextureRegion(tileset, 32, 16, 16, 16);
+            terrainCache = new TerrainCache(grassTile, widthTiles, heightTiles, TILE_SIZE);
+        }
     }
 
 
     public void update(float delta) {
-        units.forEach(unit -> {
-            unit.update(delta);
-            spatialGrid.update(unit);
-        });
+        if (profiler != null) {
+            updateProfiled(delta);
+        } else {
+            engine.update(delta);
+            effects.forEach(effect -> effect.update(delta));
+            removeFinished();
+        }
+        tick++;
 
-        effects.forEach(effect -> effect.update(delta));
+        debugDraw.setEnabled(debug);
+        if (debug) {
+            debugDraw.update(delta);
+        }
+    }
 
-        Iterator<Unit> unitIterator = units.iterator();
-        while (unitIterator.hasNext()) {
-            Unit unit = unitIterator.next();
-            if (unit.isPendingDestroy()) {
-                unit.dispose();
-                unitIterator.remove();
+    /**
+     * Same as update, but every system and step is timed. Systems are updated one by one instead of through
+     * Engine.update(), which is fine as long as they don't add or remove entities or components while updating,
+     * destroyed units are only removed after all systems ran.
+     */
+    private void updateProfiled(float delta) {
+        profiler.beginTick();
+        ImmutableArray<EntitySystem> systems = engine.getSystems();
+        for (int i = 0; i < systems.size(); i++) {
+            EntitySystem system = systems.get(i);
+            if (system.checkProcessing()) {
+                profiler.begin(systemSection(system));
+                system.update(delta);
+                profiler.end();
             }
         }
 
+        profiler.begin("Effects and cleanup");
+        effects.forEach(effect -> effect.update(delta));
+        removeFinished();
+        profiler.end();
+        profiler.endTick(tick);
+    }
+
+    private String systemSection(EntitySystem system) {
+        String section = systemSections.get(system.getClass());
+        if (section == null) {
+            section = system.getClass().getSimpleName();
+            systemSections.put(system.getClass(), section);
+        }
+        return section;
+    }
+
+    /**
+     * Removes destroyed units and finished effects.
+     */
+    private void removeFinished() {
+        for (int i = 0; i < destroyedUnits.size(); i++) {
+            Unit unit = destroyedUnits.get(i);
+            engine.removeEntity(unit.getEntity());
+            unitsById.remove(unit.getId());
+            unit.dispose();
+        }
+        destroyedUnits.clear();
+
         Iterator<AnimationEffect> effectIterator = effects.iterator();
         while (effectIterator.hasNext()) {
             AnimationEffect effect = effectIterator.next();
@@ -75,46 +221,244 @@ public class WorldRts {
                 effectIterator.remove();
             }
         }
+    }
 
-        if (debug) {
-            clustersManager.debug();
-            debugDraw.update(delta);
+    /**
+     * Applies command at the current tick, all player commands go through here so they can be recorded.
+     */
+    public void execute(Command command) {
+        if (replayRecorder != null) {
+            replayRecorder.record(tick, command);
         }
+        command.apply(this);
     }
 
-    public void render(SpriteBatch batch) {
-        for (int x = 0; x < WORLD_WIDTH_TILES; x++) {
-            for (int y = 0; y < WORLD_HEIGHT_TILES; y++) {
-                float screenX = x * TILE_SIZE;
-                float screenY = y * TILE_SIZE;
-                batch.draw(grassTile, screenX, screenY, TILE_SIZE, TILE_SIZE);
-            }
+    /**
+     * @return number of updates so far, commands executed now are applied before this tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @param replayRecorder records every executed command, null to stop recording
+     */
+    public void setReplayRecorder(ReplayRecorder replayRecorder) {
+        this.replayRecorder = replayRecorder;
+    }
+
+    /**
+     * @param profiler times systems and steps of every update and of rendering, null to not measure them.
+     *                 Sections are begun on the thread that updates or renders the world.
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        engine.getSystem(MovementSystem.class).setProfiler(profiler);
+    }
+
+    /**
+     * Draws the ground from cached chunks, see {@link TerrainCache}. Call it before {@link #render} and outside of
+     * SpriteBatch begin() and end().
+     *
+     * @param projection  camera matrix
+     * @param visibleArea world area seen by the camera, chunks outside of it are skipped
+     */
+    public void renderTerrain(Matrix4 projection, Rectangle visibleArea) {
+        if (headless) {
+            throw new IllegalStateException("Headless world can't be rendered");
         }
+        terrainCache.render(projection, visibleArea);
+    }
 
-        units.stream()
-            .sorted((u1, u2) -> Float.compare(u2.getPosition().y, u1.getPosition().y))
-            .forEach(unit -> unit.render(batch));
+    /**
+     * Draws units, effects and debug on top of the terrain.
+     *
+     * @param batch       SpriteBatch to render with
+     * @param alpha       Interpolation factor between previous and current tick, see {@link SimulationClock#getAlpha()}
+     * @param visibleArea world area seen by the camera, units outside of it are skipped
+     */
+    public void render(SpriteBatch batch, float alpha, Rectangle visibleArea) {
+        if (headless) {
+            throw new IllegalStateException("Headless world can't be rendered");
+        }
+
+        if (profiler != null) {
+            profiler.begin("Sort");
+        }
+        renderSystem.collect(visibleArea);
+        Array<Unit> visibleUnits = renderSystem.getVisibleUnits();
+        drawnUnitCount = visibleUnits.size;
+        if (profiler != null) {
+            profiler.end();
+            profiler.begin("Draw");
+        }
+        renderSystem.draw(batch, alpha);
         effects.forEach(effect -> effect.render(batch));
+        if (profiler != null) {
+            profiler.end();
+        }
+        queueDebug(visibleArea);
+    }
+
+    /**
+     * Copies what {@link #render} would draw to a snapshot, so it can be drawn while the next tick runs.
+     *
+     * @param out         snapshot to write, what it held before is dropped
+     * @param visibleArea world area to take units from
+     */
+    public void snapshot(RenderSnapshot out, Rectangle visibleArea) {
+        if (headless) {
+            throw new IllegalStateException("Headless world can't be rendered");
+        }
+        out.begin(tick);
+        renderSystem.collect(visibleArea);
+        Array<Unit> visibleUnits = renderSystem.getVisibleUnits();
+        for (int i = 0; i < visibleUnits.size; i++) {
+            visibleUnits.get(i).snapshot(out);
+        }
+        for (int i = 0; i < effects.size(); i++) {
+            effects.get(i).snapshot(out);
+        }
+        drawnUnitCount = visibleUnits.size;
+        out.end(getCulledUnitCount());
+    }
 
+    /**
+     * Queues debug of the visible area for the next {@link #renderDebug}, does nothing while debug is off.
+     * Units are the ones found by the last render or snapshot.
+     */
+    public void queueDebug(Rectangle visibleArea) {
+        if (!debug) {
+            return;
+        }
+        // queued for this frame only
+        clustersManager.debug(visibleArea);
+        spatialGrid.drawDebug(debugDraw, visibleArea);
+        Array<Unit> visibleUnits = renderSystem.getVisibleUnits();
+        for (int i = 0; i < visibleUnits.size; i++) {
+            visibleUnits.get(i).drawDebug();
+        }
+    }
+
+    /**
+     * Draws debug queued since the last frame in one shape pass, see {@link DebugDrawComponent}. Call it after
+     * {@link #render} and outside of SpriteBatch begin() and end(), it does nothing while debug is off.
+     *
+     * @param batch      draws debug labels
+     * @param projection camera matrix
+     */
+    public void renderDebug(SpriteBatch batch, Matrix4 projection) {
+        if (headless) {
+            throw new IllegalStateException("Headless world can't be rendered");
+        }
         if (debug) {
-            spatialGrid.drawDebug(batch, debugDraw);
-            units.forEach(unit -> unit.drawDebug(batch));
-            debugDraw.render(batch);
+            debugDraw.render(batch, projection);
         }
+    }
+
+    /**
+     * @return ground tiles drawn by the last terrain render, whole chunks are drawn
+     */
+    public int getDrawnTileCount() {
+        return terrainCache != null ? terrainCache.getDrawnTileCount() : 0;
+    }
+
+    /**
+     * @return ground tiles skipped by the last terrain render, because the camera didn't see their chunks
+     */
+    public int getCulledTileCount() {
+        return worldWidthTiles * worldHeightTiles - getDrawnTileCount();
+    }
+
+    public TerrainCache getTerrainCache() {
+        return terrainCache;
+    }
+
+    /**
+     * @return units drawn by the last render
+     */
+    public int getDrawnUnitCount() {
+        return drawnUnitCount;
+    }
+
+    /**
+     * @return units skipped by the last render, because the camera didn't see them
+     */
+    public int getCulledUnitCount() {
+        return getUnitCount() - drawnUnitCount;
+    }
 
+    /**
+     * Replica world only mirrors a world simulated elsewhere: units don't move or think on their own,
+     * their positions are set from outside. Animations and effects still run.
+     */
+    public void setReplica(boolean replica) {
+        engine.getSystem(MovementSystem.class).setProcessing(!replica);
+        engine.getSystem(SpatialIndexSystem.class).setProcessing(!replica);
+        engine.getSystem(ThinkSystem.class).setProcessing(!replica);
+    }
 
+    public boolean isHeadless() {
+        return headless;
     }
 
     public int getWorldWidthTiles() {
-        return WORLD_WIDTH_TILES;
+        return worldWidthTiles;
     }
 
     public int getWorldHeightTiles() {
-        return WORLD_HEIGHT_TILES;
+        return worldHeightTiles;
+    }
+
+    /**
+     * Starts bulk construction, for maps with many static obstacles adding units one by one is much slower.
+     */
+    public WorldBuilder beginBuild() {
+        return new WorldBuilder(this);
     }
 
     public void addUnit(Unit unit) {
-        units.add(unit);
+        engine.addEntity(unit.getEntity());
+        unitsById.put(unit.getId(), unit);
+    }
+
+    /**
+     * Called by {@link Unit#destroy()}, the unit is removed once the current update is over.
+     */
+    public void markDestroyed(Unit unit) {
+        destroyedUnits.add(unit);
+    }
+
+    /**
+     * @return null when there is no such unit in the world, or it was destroyed
+     */
+    public Unit getUnit(int id) {
+        return unitsById.get(id);
+    }
+
+    /**
+     * Ids are given in creation order, so worlds built the same way have the same ids.
+     */
+    public int nextUnitId() {
+        return nextUnitId++;
+    }
+
+    public void forEachUnit(Consumer<Unit> action) {
+        for (int i = 0; i < unitEntities.size(); i++) {
+            action.accept(unitEntities.get(i).getComponent(UnitComponent.class).getUnit());
+        }
+    }
+
+    public int getUnitCount() {
+        return unitEntities.size();
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public UnitStore getUnitStore() {
+        return unitStore;
     }
 
     public void addEffect(AnimationEffect effect) {
@@ -129,6 +473,10 @@ public class WorldRts {
         return spatialGrid;
     }
 
+    public WalkabilityLayer getWalkability() {
+        return walkability;
+    }
+
     public ClustersManager getClustersManager() {
         return clustersManager;
     }
@@ -138,11 +486,17 @@ public class WorldRts {
     }
 
     public void dispose() {
-        tilesetTexture.dispose();
-        units.forEach(Unit::dispose);
+        if (terrainCache != null) {
+            terrainCache.dispose();
+        }
+        forEachUnit(Unit::dispose);
+        engine.removeAllEntities();
+        unitsById.clear();
         effects.forEach(AnimationEffect::dispose);
         spatialGrid.dispose();
         debugDraw.dispose();
-        assertsManager.dispose();
+        if (ownsAssets) {
+            assertsManager.dispose();
+        }
     }
 }
@@ -0,0 +1,26 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import io.github.mazs.jvm.JvmPlatform;
+import io.github.mazs.worlds.SimulationClock;
+
+/** Launches the simulation without a window or GL context. */
+public class HeadlessLauncher {
+    public static void main(String[] args) {
+        HeadlessOptions options = HeadlessOptions.parse(args);
+        JvmPlatform.installJfr();
+        createApplication(options);
+    }
+
+    private static HeadlessApplication createApplication(HeadlessOptions options) {
+        return new HeadlessApplication(new HeadlessSimulation(options), getDefaultConfiguration(options));
+    }
+
+    private static HeadlessApplicationConfiguration getDefaultConfiguration(HeadlessOptions options) {
+        HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
+        //// 0 calls render() as fast as possible, otherwise render() runs at tick rate like a dedicated server would.
+        configuration.updatesPerSecond = options.maxSpeed ? 0 : SimulationClock.DEFAULT_TICK_RATE;
+        return configuration;
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.files.FileHandle;
+import io.github.mazs.jvm.MetricsHttpServer;
+import io.github.mazs.metrics.MetricsOptions;
+import io.github.mazs.worlds.WorldGenerator;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.File;
+
+/**
+ * Command line options of headless runtime, given as --name=value.
+ */
+public class HeadlessOptions {
+    // 0 runs until the process is stopped
+    long ticks = 0;
+    boolean maxSpeed = false;
+    long seed = WorldGenerator.DEFAULT_OBSTACLE_SEED;
+    // size of generated world, given as --world-size=tiles or --world-size=widthxheight
+    int worldWidthTiles = WorldRts.DEFAULT_WORLD_SIZE_TILES;
+    int worldHeightTiles = WorldRts.DEFAULT_WORLD_SIZE_TILES;
+    // how often progress is logged, in simulated seconds
+    float logInterval = 10f;
+    // world snapshot to start from instead of generating the world
+    String load = null;
+    // where to save world snapshot once it is created
+    String save = null;
+    // map to load instead of generating the world
+    String map = null;
+    // where to save map of the world once it is created
+    String saveMap = null;
+    // directory of navigation cache, null for the default one
+    String navCache = null;
+    boolean noNavCache = false;
+    // port of the authoritative server, 0 runs without clients
+    int servePort = 0;
+    // ticks between states sent to clients
+    int stateInterval = 1;
+    // replay to record commands to
+    String record = null;
+    // replay to play at max speed instead of generating the world, with profiling
+    String replay = null;
+    boolean profile = false;
+    // metrics file, .csv or JSON lines, and local HTTP port serving them
+    String metricsFile = null;
+    int metricsPort = 0;
+    float metricsInterval = MetricsOptions.DEFAULT_INTERVAL_SECONDS;
+
+    public static HeadlessOptions parse(String[] args) {
+        HeadlessOptions options = new HeadlessOptions();
+        for (String arg : args) {
+            String name = arg;
+            String value = null;
+            int separator = arg.indexOf('=');
+            if (separator >= 0) {
+                name = arg.substring(0, separator);
+                value = arg.substring(separator + 1);
+            }
+
+            switch (name) {
+                case "--ticks": options.ticks = Long.parseLong(value); break;
+                case "--max-speed": options.maxSpeed = true; break;
+                case "--seed": options.seed = Long.parseLong(value); break;
+                case "--world-size": {
+                    int separatorX = value.indexOf('x');
+                    options.worldWidthTiles = Integer.parseInt(separatorX >= 0 ? value.substring(0, separatorX) : value);
+                    options.worldHeightTiles = separatorX >= 0
+                        ? Integer.parseInt(value.substring(separatorX + 1))
+                        : options.worldWidthTiles;
+                    break;
+                }
+                case "--log-interval": options.logInterval = Float.parseFloat(value); break;
+                case "--load": options.load = value; break;
+                case "--save": options.save = value; break;
+                case "--map": options.map = value; break;
+                case "--save-map": options.saveMap = value; break;
+                case "--nav-cache": options.navCache = value; break;
+                case "--no-nav-cache": options.noNavCache = true; break;
+                case "--serve": options.servePort = Integer.parseInt(value); break;
+                case "--state-interval": options.stateInterval = Integer.parseInt(value); break;
+                case "--record": options.record = value; break;
+                case "--replay": options.replay = value; break;
+                case "--profile": options.profile = true; break;
+                case "--metrics": options.metricsFile = value; break;
+                case "--metrics-port": options.metricsPort = Integer.parseInt(value); break;
+                case "--metrics-interval": options.metricsInterval = Float.parseFloat(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.load != null && options.map != null) {
+            throw new IllegalArgumentException("World comes either from a snapshot or from a map, not both");
+        }
+        if (options.replay != null) {
+            if (options.load != null || options.map != null) {
+                throw new IllegalArgumentException(
+                    "Replay generates its own world, it can't be combined with --load or --map");
+            }
+            options.maxSpeed = true;
+            options.profile = true;
+        }
+        if (options.record != null && (options.load != null || options.map != null)) {
+            throw new IllegalArgumentException(
+                "Replays start from a generated world, --record can't be combined with --load or --map");
+        }
+        return options;
+    }
+
+    /**
+     * @return null when neither a metrics file nor a port is given
+     */
+    MetricsOptions metricsOptions() {
+        if (metricsFile == null && metricsPort == 0) {
+            return null;
+        }
+        return new MetricsOptions(metricsFile != null ? new FileHandle(new File(metricsFile).getAbsoluteFile()) : null,
+            metricsPort, metricsInterval, MetricsHttpServer::serve);
+    }
+}
@@ -0,0 +1,247 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.github.mazs.commands.Replay;
+import io.github.mazs.commands.ReplayPlayer;
+import io.github.mazs.commands.ReplayRecorder;
+import io.github.mazs.components.TickProfiler;
+import io.github.mazs.jvm.FileNavigationCache;
+import io.github.mazs.jvm.WorldSnapshot;
+import io.github.mazs.metrics.MetricsOptions;
+import io.github.mazs.metrics.MetricsReporter;
+import io.github.mazs.movement.hpa.NavigationCache;
+import io.github.mazs.net.WorldInfo;
+import io.github.mazs.worlds.MapFile;
+import io.github.mazs.worlds.SimulationClock;
+import io.github.mazs.worlds.WorldGenerator;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Runs world simulation without rendering.
+ * At max speed every render() is exactly one tick, otherwise ticks follow wall clock like in the game.
+ * A replay is played at max speed until its end and works as a benchmark of the recorded session.
+ */
+public class HeadlessSimulation extends ApplicationAdapter {
+    private static final String TAG = "Headless";
+    private static final long NANOS_TO_MILLIS = 1_000_000;
+
+    private final HeadlessOptions options;
+
+    private WorldRts world;
+    private SimulationClock clock;
+    private StateServer server;
+    private long serverBytesSinceLog = 0;
+    private ReplayPlayer replayPlayer;
+    private ReplayRecorder replayRecorder;
+    private TickProfiler profiler;
+    private MetricsReporter metrics;
+
+    private long simulatedTicks = 0;
+    private long ticksSinceLog = 0;
+    private long updateNanosSinceLog = 0;
+    private long startTime;
+    private boolean finished = false;
+
+    public HeadlessSimulation(HeadlessOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public void create() {
+        long createStart = TimeUtils.nanoTime();
+
+        clock = new SimulationClock();
+
+        try {
+            long seed = options.seed;
+            int widthTiles = options.worldWidthTiles;
+            int heightTiles = options.worldHeightTiles;
+            if (options.replay != null) {
+                byte[] bytes = absolute(options.replay).readBytes();
+                Replay replay = Replay.read(ByteBuffer.wrap(bytes));
+                replayPlayer = new ReplayPlayer(replay);
+                seed = replay.getSeed();
+                widthTiles = replay.getWidthTiles();
+                heightTiles = replay.getHeightTiles();
+                Gdx.app.log(TAG, String.format("Replay of %d commands over %d ticks%s",
+                    replay.getCommandCount(), replay.getEndTick(), replay.isComplete() ? "" : ", recording was cut off"));
+                if (replay.getTickRate() != clock.getTickRate()) {
+                    // ticks of another length move units elsewhere, the replay only repeats at its own rate
+                    Gdx.app.log(TAG, "Replay was recorded at " + replay.getTickRate() + " ticks per second");
+                    clock = new SimulationClock(replay.getTickRate(), SimulationClock.DEFAULT_MAX_TICKS_PER_FRAME);
+                }
+            }
+
+            NavigationCache navigationCache = null;
+            if (!options.noNavCache) {
+                navigationCache = options.navCache != null
+                    ? new FileNavigationCache(absolute(options.navCache))
+                    : FileNavigationCache.createDefault();
+            }
+
+            // taken before the first tick, clients build their replica from it
+            WorldInfo worldInfo;
+            if (options.load != null) {
+                world = WorldSnapshot.load(new File(options.load), true);
+                worldInfo = WorldInfo.loaded(world);
+            } else if (options.map != null) {
+                world = MapFile.load(absolute(options.map), true);
+                if (navigationCache != null) {
+                    navigationCache.loadOrGenerate(world.getClustersManager());
+                }
+                worldInfo = WorldInfo.loaded(world);
+            } else {
+                world = new WorldRts(true, widthTiles, heightTiles);
+                WorldGenerator generator = new WorldGenerator(seed);
+                generator.setNavigationCache(navigationCache);
+                generator.generate(world);
+                generator.spawnPawns(world);
+                worldInfo = WorldInfo.generated(seed, world);
+            }
+
+            Gdx.app.log(TAG, String.format(
+                "World of %dx%d tiles created in %.2f ms, %d units, %d of %d clusters generated",
+                world.getWorldWidthTiles(), world.getWorldHeightTiles(),
+                (TimeUtils.nanoTime() - createStart) / (float) NANOS_TO_MILLIS, world.getUnitCount(),
+                world.getClustersManager().getGeneratedClusterCount(), world.getClustersManager().getClusterCount()));
+
+            if (options.save != null) {
+                WorldSnapshot.save(world, new File(options.save));
+                Gdx.app.log(TAG, "World saved to " + options.save);
+            }
+            if (options.saveMap != null) {
+                MapFile.save(world, absolute(options.saveMap));
+                Gdx.app.log(TAG, "Map saved to " + options.saveMap);
+            }
+
+            if (options.record != null) {
+                replayRecorder = new ReplayRecorder(new FileOutputStream(options.record), seed,
+                    world.getWorldWidthTiles(), world.getWorldHeightTiles(), clock.getTickRate());
+                world.setReplayRecorder(replayRecorder);
+            }
+            if (options.profile) {
+                profiler = new TickProfiler();
+                world.setProfiler(profiler);
+            }
+
+            if (options.servePort > 0) {
+                server = new StateServer(world, worldInfo, options.servePort, options.stateInterval);
+                server.start();
+            }
+
+            MetricsOptions metricsOptions = options.metricsOptions();
+            if (metricsOptions != null) {
+                metrics = new MetricsReporter(metricsOptions);
+                metrics.addWorld(world);
+                if (server != null) {
+                    metrics.getRegistry().gauge("server.clients", server::getClientCount);
+                    metrics.getRegistry().gauge("server.sent_bytes", server::getSentBytes);
+                }
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException(e);
+        }
+        startTime = TimeUtils.nanoTime();
+    }
+
+    private static FileHandle absolute(String path) {
+        return Gdx.files.absolute(new File(path).getAbsolutePath());
+    }
+
+    @Override
+    public void render() {
+        // exit is processed after current frame
+        if (finished) {
+            return;
+        }
+
+        int ticks = options.maxSpeed ? 1 : clock.advance(Gdx.graphics.getDeltaTime());
+
+        for (int i = 0; i < ticks; i++) {
+            long updateStart = TimeUtils.nanoTime();
+            if (replayPlayer != null) {
+                replayPlayer.applyCommands(world);
+            }
+            world.update(clock.getTickDuration());
+            simulatedTicks++;
+            if (server != null) {
+                server.update(simulatedTicks);
+            }
+            updateNanosSinceLog += TimeUtils.nanoTime() - updateStart;
+
+            ticksSinceLog++;
+            if (metrics != null) {
+                metrics.update();
+            }
+
+            if (ticksSinceLog * clock.getTickDuration() >= options.logInterval) {
+                logProgress();
+            }
+
+            if ((options.ticks > 0 && simulatedTicks >= options.ticks)
+                || (replayPlayer != null && replayPlayer.isFinished(world))) {
+                logSummary();
+                finished = true;
+                Gdx.app.exit();
+                return;
+            }
+        }
+    }
+
+    private void logProgress() {
+        Gdx.app.log(TAG, String.format("tick %d, %.3f ms per tick, %d units, %d clusters generated",
+            simulatedTicks,
+            updateNanosSinceLog / (float) NANOS_TO_MILLIS / ticksSinceLog,
+            world.getUnitCount(),
+            world.getClustersManager().getGeneratedClusterCount()));
+        if (server != null) {
+            float seconds = ticksSinceLog * clock.getTickDuration();
+            Gdx.app.log(TAG, String.format("%d clients, %.2f kB/s sent",
+                server.getClientCount(), (server.getSentBytes() - serverBytesSinceLog) / 1024f / seconds));
+            serverBytesSinceLog = server.getSentBytes();
+        }
+        ticksSinceLog = 0;
+        updateNanosSinceLog = 0;
+    }
+
+    private void logSummary() {
+        float seconds = (TimeUtils.nanoTime() - startTime) / 1_000_000_000f;
+        Gdx.app.log(TAG, String.format("%d ticks in %.2f s, %.1f ticks per second",
+            simulatedTicks, seconds, simulatedTicks / seconds));
+        if (profiler != null) {
+            for (String line : profiler.report()) {
+                Gdx.app.log(TAG, line);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (metrics != null) {
+            metrics.dispose();
+        }
+        if (server != null) {
+            server.dispose();
+        }
+        if (replayRecorder != null) {
+            try {
+                replayRecorder.finish(world.getTick());
+                Gdx.app.log(TAG, "Replay saved to " + options.record);
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Can't finish replay " + options.record, e);
+            }
+        }
+        if (world != null) {
+            world.dispose();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.Gdx;
+import io.github.mazs.net.LockstepProtocol;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in lockstep server: waits for all players, tells each its player id and then forwards input of every player to
+ * all others. It doesn't simulate anything, so one relay can serve any map size. When a player leaves, the match ends
+ * and the relay waits for new players.
+ */
+public class LockstepRelay {
+    private static final String TAG = "Relay";
+
+    private final int port;
+    private final int playerCount;
+
+    // in join order, index is the player id once the match started
+    private final List<WebSocketConnection> peers = new ArrayList<>();
+    private boolean started = false;
+
+    public LockstepRelay(int port, int playerCount) {
+        if (playerCount < 1 || playerCount > LockstepProtocol.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Player count must be 1.." + LockstepProtocol.MAX_PLAYERS);
+        }
+        this.port = port;
+        this.playerCount = playerCount;
+    }
+
+    /**
+     * Accepts connections until the process is stopped.
+     */
+    public void run() throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            log("Waiting for " + playerCount + " players on port " + port);
+            while (true) {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> serve(socket), "relay-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        WebSocketConnection connection;
+        try {
+            connection = new WebSocketConnection(socket);
+        } catch (IOException e) {
+            log("Handshake with " + socket.getRemoteSocketAddress() + " failed: " + e.getMessage());
+            closeQuietly(socket);
+            return;
+        }
+
+        if (!join(connection)) {
+            connection.close();
+            return;
+        }
+
+        try {
+            byte[] message;
+            while ((message = connection.readMessage()) != null) {
+                relay(connection, message);
+            }
+        } catch (IOException e) {
+            log(connection.getRemoteAddress() + ": " + e.getMessage());
+        } finally {
+            leave(connection);
+        }
+    }
+
+    private synchronized boolean join(WebSocketConnection connection) {
+        if (started) {
+            log("Match is full, rejecting " + connection.getRemoteAddress());
+            return false;
+        }
+        peers.add(connection);
+        log(connection.getRemoteAddress() + " joined, " + peers.size() + "/" + playerCount);
+
+        if (peers.size() == playerCount) {
+            started = true;
+            for (int playerId = 0; playerId < peers.size(); playerId++) {
+                send(peers.get(playerId), new byte[]{LockstepProtocol.MSG_START, (byte) playerId, (byte) playerCount});
+            }
+            log("Match started");
+        }
+        return true;
+    }
+
+    private synchronized void relay(WebSocketConnection from, byte[] message) throws IOException {
+        int playerId = peers.indexOf(from);
+        if (!started || message.length < 2 || message[0] != LockstepProtocol.MSG_INPUT || message[1] != playerId) {
+            throw new IOException("Unexpected message from player " + playerId);
+        }
+        for (WebSocketConnection peer : peers) {
+            if (peer != from) {
+                send(peer, message);
+            }
+        }
+    }
+
+    private synchronized void leave(WebSocketConnection connection) {
+        if (!peers.remove(connection)) {
+            return;
+        }
+        connection.close();
+        log(connection.getRemoteAddress() + " left");
+
+        if (started) {
+            // the rest can't continue without its input
+            log("Match ended");
+            for (WebSocketConnection peer : peers) {
+                peer.close();
+            }
+            peers.clear();
+            started = false;
+        }
+    }
+
+    private void send(WebSocketConnection peer, byte[] message) {
+        try {
+            peer.send(message);
+        } catch (IOException e) {
+            // its reading thread notices the broken connection and leaves
+            log("Sending to " + peer.getRemoteAddress() + " failed: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    private static void log(String message) {
+        Gdx.app.log(TAG, message);
+    }
+}
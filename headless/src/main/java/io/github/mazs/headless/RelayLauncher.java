@@ -0,0 +1,47 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+import java.io.IOException;
+
+/** Launches the lockstep relay, options: --port=8000 --players=2. */
+public class RelayLauncher {
+    public static final int DEFAULT_PORT = 8000;
+
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        int players = 2;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator >= 0 ? arg.substring(0, separator) : arg;
+            String value = separator >= 0 ? arg.substring(separator + 1) : null;
+            switch (name) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--players": players = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        LockstepRelay relay = new LockstepRelay(port, players);
+        // the application only provides Gdx.app for logging, the relay accepts players on its own thread
+        new HeadlessApplication(new ApplicationAdapter() {
+            @Override
+            public void create() {
+                Thread thread = new Thread(() -> run(relay), "relay-accept");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }, new HeadlessApplicationConfiguration());
+    }
+
+    private static void run(LockstepRelay relay) {
+        try {
+            relay.run();
+        } catch (IOException e) {
+            Gdx.app.error("Relay", "Relay stopped: " + e.getMessage());
+            Gdx.app.exit();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.Queue;
+import io.github.mazs.commands.Command;
+import io.github.mazs.commands.MoveCommand;
+import io.github.mazs.movement.Moving;
+import io.github.mazs.net.StateProtocol;
+import io.github.mazs.units.Unit;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * One client of {@link StateServer}: its view, input waiting for the simulation thread and what it was sent last,
+ * so the next state only carries differences. State is written to the socket by the client's own thread, a client
+ * that can't keep up with it is disconnected instead of stalling the simulation.
+ */
+class StateClientConnection {
+    private static final String TAG = "StateServer";
+    // units a bit outside of the view are sent too, so they don't pop in at the edge of the screen
+    private static final float VIEW_MARGIN = 4 * WorldRts.TILE_SIZE;
+    private static final int MAX_ENTRIES_PER_MESSAGE = 0xFFFF;
+    // state messages waiting for the writing thread, a few states behind and the client is dropped
+    private static final int MAX_PENDING_MESSAGES = 16;
+    // wakes up the writing thread when the client is closed
+    private static final byte[] CLOSE = new byte[0];
+
+    private final WebSocketConnection connection;
+    private final UnitOwners owners;
+    private volatile boolean closed = false;
+
+    // filled by the reading thread, drained by the simulation thread
+    private final Queue<byte[]> input = new Queue<>();
+    // filled by the simulation thread, drained by the writing thread
+    private final BlockingQueue<byte[]> output = new ArrayBlockingQueue<>(MAX_PENDING_MESSAGES);
+
+    private boolean hasView = false;
+    private float viewMinX, viewMinY, viewMaxX, viewMaxY;
+
+    // quantized positions the client knows about, swapped with next* after every state
+    private IntIntMap sentX = new IntIntMap();
+    private IntIntMap sentY = new IntIntMap();
+    private IntIntMap nextX = new IntIntMap();
+    private IntIntMap nextY = new IntIntMap();
+
+    private final List<Unit> visible = new ArrayList<>();
+    private final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+    private final DataOutputStream entries = new DataOutputStream(entryBytes);
+    private int entryCount = 0;
+    private int messageBytes = 0;
+
+    StateClientConnection(WebSocketConnection connection, UnitOwners owners) {
+        this.connection = connection;
+        this.owners = owners;
+    }
+
+    /**
+     * Blocks the calling thread until the client disconnects.
+     */
+    void writeMessages() {
+        try {
+            while (true) {
+                byte[] message = output.take();
+                if (message == CLOSE) {
+                    return;
+                }
+                connection.send(message);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                Gdx.app.error(TAG, "Sending state to " + getRemoteAddress() + " failed: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Blocks the calling thread until the client disconnects.
+     */
+    void readMessages() {
+        try {
+            byte[] message;
+            while ((message = connection.readMessage()) != null) {
+                synchronized (input) {
+                    input.addLast(message);
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                Gdx.app.error(TAG, getRemoteAddress() + ": " + e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    void applyInput(WorldRts world) {
+        while (true) {
+            byte[] message;
+            synchronized (input) {
+                if (input.isEmpty()) {
+                    return;
+                }
+                message = input.removeFirst();
+            }
+            try {
+                handle(ByteBuffer.wrap(message), world);
+            } catch (IOException | BufferUnderflowException e) {
+                Gdx.app.error(TAG, getRemoteAddress() + " sent malformed message, disconnecting");
+                close();
+                return;
+            }
+        }
+    }
+
+    private void handle(ByteBuffer in, WorldRts world) throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case StateProtocol.MSG_VIEW:
+                setView(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(), world);
+                break;
+            case StateProtocol.MSG_COMMAND:
+                Command command = Command.read(in);
+                if (claimUnits(command, world)) {
+                    world.execute(command);
+                } else {
+                    Gdx.app.error(TAG, getRemoteAddress() + " commanded units of another client, ignoring");
+                }
+                break;
+            default:
+                throw new IOException("Unknown message type " + type);
+        }
+    }
+
+    /**
+     * The view decides how many cells the simulation thread scans for this client, so it is clamped to the world and
+     * to {@link StateProtocol#MAX_VIEW_SIZE}, extra area is cut off its top right.
+     *
+     * @throws IOException when the view isn't a finite rectangle
+     */
+    void setView(float minX, float minY, float maxX, float maxY, WorldRts world) throws IOException {
+        if (!Float.isFinite(minX) || !Float.isFinite(minY) || !Float.isFinite(maxX) || !Float.isFinite(maxY)
+            || maxX < minX || maxY < minY) {
+            throw new IOException("Invalid view " + minX + "," + minY + " to " + maxX + "," + maxY);
+        }
+        float worldWidth = world.getWorldWidthTiles() * WorldRts.TILE_SIZE;
+        float worldHeight = world.getWorldHeightTiles() * WorldRts.TILE_SIZE;
+        viewMinX = MathUtils.clamp(minX - VIEW_MARGIN, 0, worldWidth);
+        viewMinY = MathUtils.clamp(minY - VIEW_MARGIN, 0, worldHeight);
+        float maxSize = StateProtocol.MAX_VIEW_SIZE + 2 * VIEW_MARGIN;
+        viewMaxX = MathUtils.clamp(maxX + VIEW_MARGIN, viewMinX, Math.min(worldWidth, viewMinX + maxSize));
+        viewMaxY = MathUtils.clamp(maxY + VIEW_MARGIN, viewMinY, Math.min(worldHeight, viewMinY + maxSize));
+        hasView = true;
+    }
+
+    private boolean claimUnits(Command command, WorldRts world) {
+        if (!(command instanceof MoveCommand)) {
+            return true;
+        }
+        int[] unitIds = ((MoveCommand) command).getUnitIds();
+        for (int id : unitIds) {
+            if (!owners.canCommand(this, id)) {
+                return false;
+            }
+        }
+        for (int id : unitIds) {
+            owners.claim(this, id, world);
+        }
+        return true;
+    }
+
+    /**
+     * @return bytes queued for sending
+     */
+    int sendState(WorldRts world, int tick) {
+        if (!hasView || closed) {
+            return 0;
+        }
+        messageBytes = 0;
+
+        visible.clear();
+        world.getSpatialGrid().forEachUnitInRectangle(viewMinX, viewMinY, viewMaxX, viewMaxY, visible::add);
+
+        try {
+            for (Unit unit : visible) {
+                // static obstacles are generated by the client itself
+                if (!(unit instanceof Moving)) {
+                    continue;
+                }
+                int id = unit.getId();
+                int x = StateProtocol.quantize(unit.getPosition().x);
+                int y = StateProtocol.quantize(unit.getPosition().y);
+
+                if (!sentX.containsKey(id)) {
+                    writeEnter(id, x, y, tick);
+                } else {
+                    int dx = x - sentX.remove(id, 0);
+                    int dy = y - sentY.remove(id, 0);
+                    if (dx != 0 || dy != 0) {
+                        if (dx >= Byte.MIN_VALUE && dx <= Byte.MAX_VALUE && dy >= Byte.MIN_VALUE && dy <= Byte.MAX_VALUE) {
+                            startEntry(StateProtocol.ENTRY_MOVE_SMALL, id, tick);
+                            entries.writeByte(dx);
+                            entries.writeByte(dy);
+                        } else {
+                            writeEnter(id, x, y, tick);
+                        }
+                    }
+                }
+                nextX.put(id, x);
+                nextY.put(id, y);
+            }
+
+            // whatever was sent before and is not visible now left the view or was destroyed
+            for (IntIntMap.Entry left : sentX) {
+                startEntry(StateProtocol.ENTRY_LEAVE, left.key, tick);
+            }
+            flush(tick);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Writing state for " + getRemoteAddress() + " failed: " + e.getMessage());
+            close();
+        }
+
+        IntIntMap swap = sentX;
+        sentX = nextX;
+        nextX = swap;
+        nextX.clear();
+        swap = sentY;
+        sentY = nextY;
+        nextY = swap;
+        nextY.clear();
+
+        return messageBytes;
+    }
+
+    private void writeEnter(int id, int x, int y, int tick) throws IOException {
+        startEntry(StateProtocol.ENTRY_ENTER, id, tick);
+        entries.writeInt(x);
+        entries.writeInt(y);
+    }
+
+    private void startEntry(byte kind, int id, int tick) throws IOException {
+        if (entryCount == MAX_ENTRIES_PER_MESSAGE) {
+            flush(tick);
+        }
+        entries.writeByte(kind);
+        entries.writeInt(id);
+        entryCount++;
+    }
+
+    private void flush(int tick) {
+        if (entryCount == 0) {
+            return;
+        }
+        byte[] body = entryBytes.toByteArray();
+        ByteBuffer message = ByteBuffer.allocate(1 + Integer.BYTES + Short.BYTES + body.length);
+        message.put(StateProtocol.MSG_STATE);
+        message.putInt(tick);
+        message.putShort((short) entryCount);
+        message.put(body);
+        entryBytes.reset();
+        entryCount = 0;
+
+        if (closed) {
+            return;
+        }
+        if (send(message.array())) {
+            messageBytes += message.capacity();
+        }
+    }
+
+    /**
+     * Queues the message for the writing thread.
+     *
+     * @return false when the client can't keep up and was disconnected
+     */
+    boolean send(byte[] message) {
+        if (!output.offer(message)) {
+            Gdx.app.error(TAG, getRemoteAddress() + " can't keep up with state, disconnecting");
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+        // a full queue means the writing thread is busy and notices the closed socket
+        output.offer(CLOSE);
+        connection.close();
+    }
+
+    String getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.Gdx;
+import io.github.mazs.net.StateProtocol;
+import io.github.mazs.net.WorldInfo;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Authoritative server: clients send commands and the area they look at, the server runs the only simulation and
+ * streams each client deltas of units inside its area, see {@link io.github.mazs.net.StateProtocol}.
+ * Work and traffic per client depend on what the client sees, not on the size of the world.
+ * <p>
+ * Connections are accepted, read and written on their own threads, everything touching the world runs on the
+ * simulation thread in {@link #update(long)}. Clients only command units they own, see {@link UnitOwners}.
+ */
+public class StateServer {
+    private static final String TAG = "StateServer";
+
+    private final WorldRts world;
+    // sent to every client first, so it builds the same replica
+    private final byte[] hello;
+    private final int port;
+    private final int sendInterval;
+
+    private final List<StateClientConnection> clients = new ArrayList<>();
+    private final UnitOwners owners = new UnitOwners();
+    private ServerSocket serverSocket;
+
+    private long sentBytes = 0;
+
+    /**
+     * @param worldInfo    how the world was made, clients build their replica from it
+     * @param sendInterval state is sent every this many ticks
+     */
+    public StateServer(WorldRts world, WorldInfo worldInfo, int port, int sendInterval) {
+        if (sendInterval < 1) {
+            throw new IllegalArgumentException("Send interval must be at least one tick");
+        }
+        this.world = world;
+        this.hello = StateProtocol.hello(worldInfo);
+        this.port = port;
+        this.sendInterval = sendInterval;
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        Thread acceptThread = new Thread(this::acceptClients, "state-server-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        Gdx.app.log(TAG, "Listening on port " + port + ", state every " + sendInterval + " ticks");
+    }
+
+    private void acceptClients() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // server socket closed by dispose()
+                return;
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Accepting client failed", e);
+                continue;
+            }
+            Thread thread = new Thread(() -> serve(socket), "state-server-" + socket.getRemoteSocketAddress());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        StateClientConnection client;
+        try {
+            client = new StateClientConnection(new WebSocketConnection(socket), owners);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Handshake with " + socket.getRemoteSocketAddress() + " failed: " + e.getMessage());
+            return;
+        }
+        // queued before the client is visible to the simulation thread, so it comes before any state
+        client.send(hello);
+        synchronized (clients) {
+            clients.add(client);
+        }
+        Gdx.app.log(TAG, client.getRemoteAddress() + " connected");
+        Thread writer = new Thread(client::writeMessages, Thread.currentThread().getName() + "-writer");
+        writer.setDaemon(true);
+        writer.start();
+        client.readMessages();
+    }
+
+    /**
+     * Applies input of clients and sends state. Call it on the simulation thread after every tick.
+     */
+    public void update(long tick) {
+        List<StateClientConnection> current;
+        synchronized (clients) {
+            current = new ArrayList<>(clients);
+        }
+
+        for (StateClientConnection client : current) {
+            if (client.isClosed()) {
+                synchronized (clients) {
+                    clients.remove(client);
+                }
+                owners.release(client);
+                Gdx.app.log(TAG, client.getRemoteAddress() + " disconnected");
+                continue;
+            }
+            client.applyInput(world);
+            if (tick % sendInterval == 0) {
+                sentBytes += client.sendState(world, (int) tick);
+            }
+        }
+    }
+
+    public int getClientCount() {
+        synchronized (clients) {
+            return clients.size();
+        }
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public void dispose() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            // closing anyway
+        }
+        synchronized (clients) {
+            clients.forEach(StateClientConnection::close);
+            clients.clear();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.mazs.headless;
+
+import com.badlogic.gdx.utils.IntMap;
+import io.github.mazs.worlds.WorldRts;
+
+/**
+ * Which client of {@link StateServer} controls which unit. A unit nobody controls belongs to the first client that
+ * commands it and stays its until the client disconnects, other clients can't command it meanwhile.
+ * Used on the simulation thread only.
+ */
+class UnitOwners {
+    private final IntMap<StateClientConnection> owners = new IntMap<>();
+
+    boolean canCommand(StateClientConnection client, int unitId) {
+        StateClientConnection owner = owners.get(unitId);
+        return owner == null || owner == client;
+    }
+
+    /**
+     * Units that don't exist aren't claimed, so ids of destroyed units don't pile up.
+     */
+    void claim(StateClientConnection client, int unitId, WorldRts world) {
+        if (world.getUnit(unitId) != null) {
+            owners.put(unitId, client);
+        }
+    }
+
+    void release(StateClientConnection client) {
+        IntMap.Entries<StateClientConnection> entries = owners.entries();
+        while (entries.hasNext()) {
+            if (entries.next().value == client) {
+                entries.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.mazs.headless;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Server side of a websocket connection (RFC 6455), just enough for the relay: handshake, binary messages,
+ * ping and close. Extensions and subprotocols are not supported.
+ */
+class WebSocketConnection {
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_MESSAGE_SIZE = 1 << 20;
+
+    private static final int OPCODE_CONTINUATION = 0x0;
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_BINARY = 0x2;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+
+    WebSocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        // messages are tiny and latency bound
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = socket.getOutputStream();
+        handshake();
+    }
+
+    private void handshake() throws IOException {
+        String key = null;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int separator = line.indexOf(':');
+            if (separator > 0 && line.substring(0, separator).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(separator + 1).trim();
+            }
+        }
+        if (key == null) {
+            throw new IOException("Not a websocket upgrade request");
+        }
+
+        String response = "HTTP/1.1 101 Switching Protocols\r\n"
+            + "Upgrade: websocket\r\n"
+            + "Connection: Upgrade\r\n"
+            + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+        synchronized (out) {
+            out.write(response.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1")
+                .digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("Connection closed during handshake");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Blocks until next binary message, answers pings on the way and skips text messages.
+     *
+     * @return null when the peer closed the connection
+     */
+    byte[] readMessage() throws IOException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        int messageOpcode = -1;
+        while (true) {
+            int first = in.read();
+            if (first < 0) {
+                return null;
+            }
+            int second = in.readUnsignedByte();
+            boolean fin = (first & 0x80) != 0;
+            int opcode = first & 0x0F;
+            boolean masked = (second & 0x80) != 0;
+
+            long length = second & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+            if (length < 0 || message.size() + length > MAX_MESSAGE_SIZE) {
+                throw new IOException("Message is longer than " + MAX_MESSAGE_SIZE + " bytes");
+            }
+
+            byte[] mask = new byte[4];
+            if (masked) {
+                in.readFully(mask);
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            if (masked) {
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+            }
+
+            switch (opcode) {
+                case OPCODE_PING:
+                    writeFrame(OPCODE_PONG, payload);
+                    continue;
+                case OPCODE_PONG:
+                    continue;
+                case OPCODE_CLOSE:
+                    writeFrame(OPCODE_CLOSE, payload);
+                    return null;
+                case OPCODE_TEXT:
+                case OPCODE_BINARY:
+                    messageOpcode = opcode;
+                    break;
+                case OPCODE_CONTINUATION:
+                    if (messageOpcode < 0) {
+                        throw new IOException("Continuation frame without a message");
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown opcode " + opcode);
+            }
+
+            message.write(payload);
+            if (fin) {
+                if (messageOpcode == OPCODE_BINARY) {
+                    return message.toByteArray();
+                }
+                message.reset();
+                messageOpcode = -1;
+            }
+        }
+    }
+
+    /**
+     * Safe to call from any thread.
+     */
+    void send(byte[] message) throws IOException {
+        writeFrame(OPCODE_BINARY, message);
+    }
+
+    private void writeFrame(int opcode, byte[] payload) throws IOException {
+        byte[] header;
+        if (payload.length < 126) {
+            header = new byte[]{(byte) (0x80 | opcode), (byte) payload.length};
+        } else if (payload.length <= 0xFFFF) {
+            header = new byte[]{(byte) (0x80 | opcode), 126, (byte) (payload.length >>> 8), (byte) payload.length};
+        } else {
+            header = new byte[10];
+            header[0] = (byte) (0x80 | opcode);
+            header[1] = 127;
+            for (int i = 0; i < 8; i++) {
+                header[9 - i] = (byte) ((long) payload.length >>> (8 * i));
+            }
+        }
+        synchronized (out) {
+            out.write(header);
+            out.write(payload);
+            out.flush();
+        }
+    }
+
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+}
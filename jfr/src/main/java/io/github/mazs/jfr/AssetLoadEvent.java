@@ -0,0 +1,33 @@
+package io.github.mazs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Committed when the asset is loaded, libGDX loads it in slices across frames, so the time is a field instead of
+ * the event's duration.
+ */
+@Name("io.github.mazs.AssetLoad")
+@Label("Asset Load")
+@Category({"MAZS", "Assets"})
+@StackTrace(false)
+class AssetLoadEvent extends jdk.jfr.Event {
+    @Label("Path")
+    String path;
+
+    @Label("Type")
+    String type;
+
+    @Label("Preloaded")
+    @Description("Loaded behind the loading screen, otherwise it stalled the frame asking for it")
+    boolean preloaded;
+
+    @Label("Load Time")
+    @Description("Preloaded files are timed from the end of the file loaded before, frames in between included")
+    @Timespan(Timespan.NANOSECONDS)
+    long loadTime;
+}
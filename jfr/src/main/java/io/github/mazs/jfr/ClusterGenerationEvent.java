@@ -0,0 +1,21 @@
+package io.github.mazs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.mazs.ClusterGeneration")
+@Label("Cluster Generation")
+@Description("Gates and gate links of a cluster generated for pathfinding, path searches between gates included")
+@Category({"MAZS", "Pathfinding"})
+class ClusterGenerationEvent extends jdk.jfr.Event {
+    @Label("Cluster X")
+    int clusterX;
+
+    @Label("Cluster Y")
+    int clusterY;
+
+    @Label("Gates")
+    int gateCount;
+}
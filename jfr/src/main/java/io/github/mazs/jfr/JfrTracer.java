@@ -0,0 +1,143 @@
+package io.github.mazs.jfr;
+
+import io.github.mazs.metrics.Tracer;
+import io.github.mazs.movement.hpa.PathfindingGraph;
+import io.github.mazs.movement.hpa.PathfindingResult;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+import java.util.Arrays;
+
+/**
+ * Writes spans of the game as Java Flight Recorder events, installed by {@code JvmPlatform.installJfr()} of the jvm
+ * module. Events are only created while a recording has them enabled. Phases begun before a recording started aren't
+ * recorded when it starts, they have no event to end.
+ */
+public class JfrTracer implements Tracer {
+    private static final EventType PHASE = EventType.getEventType(PhaseEvent.class);
+    private static final EventType PATH_SEARCH = EventType.getEventType(PathSearchEvent.class);
+    private static final EventType CLUSTER_GENERATION = EventType.getEventType(ClusterGenerationEvent.class);
+    private static final EventType ASSET_LOAD = EventType.getEventType(AssetLoadEvent.class);
+
+    // anonymous graphs, e.g. static obstacles of a cluster, are named after the class they are made in
+    private static final ClassValue<String> GRAPH_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.isAnonymousClass() ? type.getEnclosingClass().getSimpleName() : type.getSimpleName();
+        }
+    };
+
+    private final ThreadLocal<Spans<PhaseEvent>> phases = ThreadLocal.withInitial(Spans::new);
+    private final ThreadLocal<Spans<PathSearchEvent>> pathSearches = ThreadLocal.withInitial(Spans::new);
+    private final ThreadLocal<Spans<ClusterGenerationEvent>> clusterGenerations = ThreadLocal.withInitial(Spans::new);
+
+    @Override
+    public void beginPhase(String name) {
+        Spans<PhaseEvent> spans = phases.get();
+        PhaseEvent event = null;
+        if (PHASE.isEnabled()) {
+            event = new PhaseEvent();
+            event.name = name;
+            event.depth = spans.size;
+            event.begin();
+        }
+        spans.push(event);
+    }
+
+    @Override
+    public void endPhase() {
+        PhaseEvent event = phases.get().pop();
+        if (event != null) {
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean isPathSearchEnabled() {
+        return PATH_SEARCH.isEnabled();
+    }
+
+    @Override
+    public void beginPathSearch() {
+        PathSearchEvent event = new PathSearchEvent();
+        event.begin();
+        pathSearches.get().push(event);
+    }
+
+    @Override
+    public void endPathSearch(PathfindingGraph graph, PathfindingResult result) {
+        PathSearchEvent event = pathSearches.get().pop();
+        event.end();
+        if (result == null || !event.shouldCommit()) {
+            return;
+        }
+        event.graph = GRAPH_NAMES.get(graph.getClass());
+        event.success = result.isSuccess();
+        event.nodesChecked = result.getNodesChecked();
+        event.nodesInOpenSet = result.getNodesInOpenSet();
+        event.pathCost = result.getPathCost();
+        event.pathLength = result.getPath() != null ? result.getPath().size() : 0;
+        event.commit();
+    }
+
+    @Override
+    public boolean isClusterGenerationEnabled() {
+        return CLUSTER_GENERATION.isEnabled();
+    }
+
+    @Override
+    public void beginClusterGeneration(int clusterX, int clusterY) {
+        ClusterGenerationEvent event = new ClusterGenerationEvent();
+        event.clusterX = clusterX;
+        event.clusterY = clusterY;
+        event.begin();
+        clusterGenerations.get().push(event);
+    }
+
+    @Override
+    public void endClusterGeneration(int gateCount) {
+        ClusterGenerationEvent event = clusterGenerations.get().pop();
+        event.gateCount = gateCount;
+        event.commit();
+    }
+
+    @Override
+    public boolean isAssetLoadEnabled() {
+        return ASSET_LOAD.isEnabled();
+    }
+
+    @Override
+    public void assetLoaded(String path, String type, boolean preloaded, long durationNanos) {
+        AssetLoadEvent event = new AssetLoadEvent();
+        event.path = path;
+        event.type = type;
+        event.preloaded = preloaded;
+        event.loadTime = durationNanos;
+        event.commit();
+    }
+
+    /**
+     * Open events of one thread, null for spans begun while their event was disabled.
+     */
+    private static class Spans<E extends Event> {
+        Object[] events = new Object[16];
+        int size = 0;
+
+        void push(E event) {
+            if (size == events.length) {
+                events = Arrays.copyOf(events, size * 2);
+            }
+            events[size++] = event;
+        }
+
+        @SuppressWarnings("unchecked")
+        E pop() {
+            if (size == 0) {
+                throw new IllegalStateException("No span was begun");
+            }
+            E event = (E) events[--size];
+            events[size] = null;
+            return event;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.mazs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.github.mazs.PathSearch")
+@Label("Path Search")
+@Description("A* search of a pathfinding graph, global ones over gates and local ones inside clusters")
+@Category({"MAZS", "Pathfinding"})
+@StackTrace(false)
+class PathSearchEvent extends jdk.jfr.Event {
+    @Label("Graph")
+    String graph;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Nodes Checked")
+    int nodesChecked;
+
+    @Label("Nodes In Open Set")
+    @Description("Nodes left to check when the search ended")
+    int nodesInOpenSet;
+
+    @Label("Path Cost")
+    float pathCost;
+
+    @Label("Path Length")
+    @Description("Nodes of the path, tiles or gates")
+    int pathLength;
+}
@@ -0,0 +1,21 @@
+package io.github.mazs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.github.mazs.Phase")
+@Label("Frame Phase")
+@Description("Scope of a rendered frame, the whole frame included, as shown by the stats overlay")
+@Category({"MAZS", "Frame"})
+@StackTrace(false)
+class PhaseEvent extends jdk.jfr.Event {
+    @Label("Name")
+    String name;
+
+    @Label("Depth")
+    @Description("0 for the frame, 1 for scopes right inside it")
+    int depth;
+}
@@ -0,0 +1,132 @@
+package io.github.mazs.jvm;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.github.mazs.movement.hpa.ClustersManager;
+import io.github.mazs.movement.hpa.NavigationCache;
+import io.github.mazs.movement.hpa.NavigationGraphIO;
+import io.github.mazs.worlds.WalkabilityLayer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Keeps generated cluster graphs on disk, entries are read by mapping the file.
+ * <p>
+ * Cache file is named after a hash of walkability bits, map size and cluster size, so any change of static obstacles
+ * picks another file. File repeats all of them in its header and is ignored when they don't match.
+ * <pre>
+ * int magic "MZNV", int version, long walkabilityHash, int widthTiles, int heightTiles, int tileSize, int clusterSize
+ * graph, see {@link NavigationGraphIO}
+ * </pre>
+ * Entries hold the whole graph, so maps above {@link #MAX_CLUSTERS} clusters are not cached and generate clusters
+ * when they are used instead.
+ */
+public class FileNavigationCache implements NavigationCache {
+    public static final int VERSION = 2;
+    public static final int MAX_CLUSTERS = 1024;
+
+    private static final String TAG = "NavigationCache";
+    private static final int MAGIC = 0x4D5A4E56; // "MZNV"
+    private static final long NANOS_TO_MILLIS = 1_000_000;
+
+    private final FileHandle directory;
+
+    public FileNavigationCache(FileHandle directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Desktop runtimes work in assets folder, so cache goes to user home.
+     */
+    public static FileNavigationCache createDefault() {
+        return new FileNavigationCache(Gdx.files.external(".mazs/nav-cache"));
+    }
+
+    /**
+     * Does nothing for maps too big to be cached.
+     */
+    @Override
+    public void loadOrGenerate(ClustersManager clustersManager) {
+        if (clustersManager.getClusterCount() > MAX_CLUSTERS) {
+            Gdx.app.log(TAG, String.format("Map of %d clusters is too big to cache, clusters are generated when used",
+                clustersManager.getClusterCount()));
+            return;
+        }
+        long start = TimeUtils.nanoTime();
+        WalkabilityLayer walkability = clustersManager.getWalkability();
+        long hash = walkability.contentHash();
+        FileHandle file = directory.child(fileName(hash, clustersManager.getClusterCellsSize()));
+
+        if (file.exists()) {
+            try {
+                load(clustersManager, file, hash);
+                Gdx.app.log(TAG, String.format("Loaded %s in %.2f ms",
+                    file.name(), (TimeUtils.nanoTime() - start) / (float) NANOS_TO_MILLIS));
+                return;
+            } catch (IOException | RuntimeException e) {
+                Gdx.app.error(TAG, "Ignoring " + file.path() + ": " + e.getMessage());
+            }
+        }
+
+        clustersManager.generateClusters();
+        Gdx.app.log(TAG, String.format("Generated clusters in %.2f ms",
+            (TimeUtils.nanoTime() - start) / (float) NANOS_TO_MILLIS));
+
+        try {
+            save(clustersManager, file, hash);
+        } catch (IOException | RuntimeException e) {
+            Gdx.app.error(TAG, "Can't write " + file.path() + ": " + e.getMessage());
+        }
+    }
+
+    private void load(ClustersManager clustersManager, FileHandle file, long hash) throws IOException {
+        WalkabilityLayer walkability = clustersManager.getWalkability();
+        // map() switches to native order, file is written big endian
+        ByteBuffer buffer = file.map().order(ByteOrder.BIG_ENDIAN);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("not a navigation cache file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported version " + version + ", expected " + VERSION);
+        }
+        if (buffer.getLong() != hash
+            || buffer.getInt() != walkability.getWidthTiles()
+            || buffer.getInt() != walkability.getHeightTiles()
+            || buffer.getInt() != walkability.getTileSize()
+            || buffer.getInt() != clustersManager.getClusterCellsSize()) {
+            throw new IOException("made for another map");
+        }
+
+        NavigationGraphIO.read(clustersManager, buffer);
+    }
+
+    private void save(ClustersManager clustersManager, FileHandle file, long hash) throws IOException {
+        WalkabilityLayer walkability = clustersManager.getWalkability();
+        directory.mkdirs();
+
+        // written next to the entry and renamed, so a concurrent or interrupted run never sees half of a file
+        FileHandle temporary = directory.child(file.name() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(temporary.write(false)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(hash);
+            out.writeInt(walkability.getWidthTiles());
+            out.writeInt(walkability.getHeightTiles());
+            out.writeInt(walkability.getTileSize());
+            out.writeInt(clustersManager.getClusterCellsSize());
+            NavigationGraphIO.write(clustersManager, out);
+        }
+        temporary.moveTo(file);
+    }
+
+    private static String fileName(long hash, int clusterSize) {
+        return String.format("nav-%016x-c%d.bin", hash, clusterSize);
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.mazs.jvm;
+
+import io.github.mazs.components.MemoryProbe;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Bytes allocated by a thread and garbage collections of the JVM, read from management beans.
+ * Desktop JVMs have them, see {@link #create()}.
+ */
+public class JvmMemoryProbe implements MemoryProbe {
+    private final com.sun.management.ThreadMXBean threads;
+    private final GarbageCollectorMXBean[] collectors;
+
+    private JvmMemoryProbe(com.sun.management.ThreadMXBean threads, GarbageCollectorMXBean[] collectors) {
+        this.threads = threads;
+        this.collectors = collectors;
+    }
+
+    /**
+     * @return probe of the running JVM, null when it can't tell allocated bytes
+     */
+    public static JvmMemoryProbe create() {
+        try {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+            if (!allocations.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            allocations.setThreadAllocatedMemoryEnabled(true);
+            return new JvmMemoryProbe(allocations,
+                ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]));
+        } catch (LinkageError | RuntimeException e) {
+            // the platform has no java.lang.management
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @return bytes allocated by the calling thread since it started, including the small array this call allocates
+     */
+    @Override
+    public long getAllocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return collections of all collectors since the JVM started
+     */
+    @Override
+    public long getCollectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * @return milliseconds spent collecting since the JVM started. For stop the world collectors it is the pause
+     * time, concurrent ones also count time running next to the game.
+     */
+    @Override
+    public long getCollectionTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.mazs.jvm;
+
+import io.github.mazs.Platform;
+import io.github.mazs.components.MemoryProbe;
+import io.github.mazs.metrics.Tracer;
+import io.github.mazs.metrics.Tracing;
+import io.github.mazs.movement.hpa.NavigationCache;
+import io.github.mazs.worlds.SimulationClock;
+import io.github.mazs.worlds.SimulationRunner;
+import io.github.mazs.worlds.WorldRts;
+
+/**
+ * Services of a full Java runtime, passed to the game by the desktop and headless launchers.
+ */
+public class JvmPlatform implements Platform {
+    // in the jfr module, which needs Java 11 and isn't packaged for Android, iOS or the browser
+    private static final String JFR_TRACER = "io.github.mazs.jfr.JfrTracer";
+
+    /**
+     * Installs the Java Flight Recorder tracer, see {@link Tracing}. Its events are only written while a recording is
+     * running, e.g. one started with -XX:StartFlightRecording or jcmd, otherwise they cost a check each.
+     *
+     * @return false when the jfr module isn't on the class path or the JVM has no Flight Recorder
+     */
+    public static boolean installJfr() {
+        try {
+            Tracing.set((Tracer) Class.forName(JFR_TRACER).getDeclaredConstructor().newInstance());
+            return true;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public NavigationCache createNavigationCache() {
+        return FileNavigationCache.createDefault();
+    }
+
+    @Override
+    public SimulationRunner createSimulationRunner(WorldRts world, SimulationClock clock) {
+        return new SimulationThread(world, clock);
+    }
+
+    @Override
+    public MemoryProbe createMemoryProbe() {
+        JvmMemoryProbe probe = JvmMemoryProbe.create();
+        return probe != null ? probe : MemoryProbe.NONE;
+    }
+}
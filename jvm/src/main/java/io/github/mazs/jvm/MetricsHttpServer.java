@@ -0,0 +1,135 @@
+package io.github.mazs.jvm;
+
+import com.badlogic.gdx.Gdx;
+import io.github.mazs.metrics.MetricsRegistry;
+import io.github.mazs.metrics.MetricsServer;
+import io.github.mazs.metrics.MetricsSnapshot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the latest metrics snapshot over plain HTTP on the loopback interface, for scripts and dashboards watching
+ * a run: GET /metrics answers the JSON object of {@link MetricsSnapshot#toJson()}, GET /metrics.csv a CSV header and
+ * row. Requests are answered one at a time on the accept thread, answering is a copy of a finished snapshot.
+ */
+public class MetricsHttpServer implements MetricsServer {
+    private static final String TAG = "MetricsHttp";
+    // a client that doesn't send its request in time is dropped, so it can't hold up the others
+    private static final int READ_TIMEOUT_MILLIS = 2000;
+
+    private final MetricsRegistry registry;
+    private final int port;
+    private ServerSocket serverSocket;
+
+    public MetricsHttpServer(MetricsRegistry registry, int port) {
+        this.registry = registry;
+        this.port = port;
+    }
+
+    /**
+     * Factory of {@link io.github.mazs.metrics.MetricsOptions}, starts a server on the port.
+     */
+    public static MetricsHttpServer serve(MetricsRegistry registry, int port) throws IOException {
+        MetricsHttpServer server = new MetricsHttpServer(registry, port);
+        server.start();
+        return server;
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+        Thread acceptThread = new Thread(this::acceptRequests, "metrics-http");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        Gdx.app.log(TAG, "Serving metrics at http://localhost:" + serverSocket.getLocalPort() + "/metrics");
+    }
+
+    private void acceptRequests() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                answer(socket);
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    // closed by dispose()
+                    return;
+                }
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Answering metrics request failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void answer(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        String requestLine = reader.readLine();
+        if (requestLine == null) {
+            return;
+        }
+        // headers are not needed, but read them so the client isn't reset while still sending
+        String header;
+        do {
+            header = reader.readLine();
+        } while (header != null && !header.isEmpty());
+
+        String[] parts = requestLine.split(" ");
+        String path = parts.length > 1 ? parts[1] : "";
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+
+        OutputStream out = socket.getOutputStream();
+        MetricsSnapshot snapshot = registry.getLatest();
+        if (!parts[0].equals("GET")) {
+            respond(out, "405 Method Not Allowed", "text/plain", "Only GET is supported\n");
+        } else if (!path.equals("/metrics") && !path.equals("/metrics.csv")) {
+            respond(out, "404 Not Found", "text/plain", "Metrics are at /metrics and /metrics.csv\n");
+        } else if (snapshot == null) {
+            respond(out, "503 Service Unavailable", "text/plain", "No metrics sampled yet\n");
+        } else if (path.equals("/metrics.csv")) {
+            respond(out, "200 OK", "text/csv", snapshot.toCsvHeader() + "\n" + snapshot.toCsvRow() + "\n");
+        } else {
+            respond(out, "200 OK", "application/json", snapshot.toJson() + "\n");
+        }
+    }
+
+    private static void respond(OutputStream out, String status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + "\r\n"
+            + "Content-Type: " + contentType + "; charset=utf-8\r\n"
+            + "Content-Length: " + bytes.length + "\r\n"
+            + "Cache-Control: no-store\r\n"
+            + "Connection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * @return port the server listens on, useful when it was started on port 0
+     */
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    @Override
+    public void dispose() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Closing metrics server failed", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.mazs.jvm;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.github.mazs.worlds.RenderSnapshot;
+import io.github.mazs.worlds.SimulationClock;
+import io.github.mazs.worlds.SimulationRunner;
+import io.github.mazs.worlds.WorldRts;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs world ticks on a thread of its own, so a frame costs the longer of simulation and rendering instead of both.
+ * After every batch of ticks the world is copied into a {@link RenderSnapshot} of the area around the camera, which
+ * the render thread draws without touching the world. Snapshots are triple buffered: the simulation writes one,
+ * rendering draws another and the third holds the newest finished one, so neither side waits for the other.
+ */
+public class SimulationThread implements SimulationRunner {
+    private static final String TAG = "SimulationThread";
+    // the camera moves on between snapshots, units this far out of its view are copied too
+    private static final float VIEW_MARGIN = 128f;
+    private static final float TICK_TIME_SMOOTHING = 0.1f;
+
+    private final WorldRts world;
+    private final SimulationClock clock;
+    private final Object lock = new Object();
+    private final Thread thread;
+    private volatile boolean running = false;
+    private volatile Throwable failure;
+    private volatile float tickTimeMs = 0;
+
+    // guarded by itself, swapped between the threads
+    private final Object exchange = new Object();
+    private RenderSnapshot ready = new RenderSnapshot();
+    private boolean readyIsNew = false;
+    private final Rectangle view = new Rectangle();
+    // owned by the simulation thread
+    private RenderSnapshot back = new RenderSnapshot();
+    private final Rectangle snapshotArea = new Rectangle();
+    // owned by the render thread
+    private RenderSnapshot front = new RenderSnapshot();
+
+    public SimulationThread(WorldRts world, SimulationClock clock) {
+        if (world.isHeadless()) {
+            throw new IllegalArgumentException("Headless world has nothing to render, update it directly");
+        }
+        this.world = world;
+        this.clock = clock;
+        this.thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+    }
+
+    @Override
+    public void start(Rectangle visibleArea) {
+        setView(visibleArea);
+        synchronized (lock) {
+            publish();
+        }
+        running = true;
+        thread.start();
+    }
+
+    private void run() {
+        long last = TimeUtils.nanoTime();
+        try {
+            while (running) {
+                long now = TimeUtils.nanoTime();
+                int ticks = clock.advance((now - last) / 1e9f);
+                last = now;
+                if (ticks > 0) {
+                    long start = TimeUtils.nanoTime();
+                    synchronized (lock) {
+                        for (int i = 0; i < ticks; i++) {
+                            world.update(clock.getTickDuration());
+                        }
+                        publish();
+                    }
+                    float ms = (TimeUtils.nanoTime() - start) / 1e6f / ticks;
+                    tickTimeMs += (ms - tickTimeMs) * TICK_TIME_SMOOTHING;
+                }
+                // wake up when the next tick is due
+                long untilNextTick = (long) ((1f - clock.getAlpha()) * clock.getTickDuration() * 1e9f);
+                LockSupport.parkNanos(untilNextTick);
+            }
+        } catch (Throwable e) {
+            failure = e;
+            Gdx.app.error(TAG, "Simulation stopped", e);
+        }
+    }
+
+    private void publish() {
+        synchronized (exchange) {
+            snapshotArea.set(view);
+        }
+        snapshotArea.set(snapshotArea.x - VIEW_MARGIN, snapshotArea.y - VIEW_MARGIN,
+            snapshotArea.width + VIEW_MARGIN * 2, snapshotArea.height + VIEW_MARGIN * 2);
+        world.snapshot(back, snapshotArea);
+
+        synchronized (exchange) {
+            back.publish(TimeUtils.nanoTime(), clock.getTickDuration());
+            RenderSnapshot published = back;
+            back = ready;
+            ready = published;
+            readyIsNew = true;
+        }
+    }
+
+    @Override
+    public void setView(Rectangle visibleArea) {
+        synchronized (exchange) {
+            view.set(visibleArea);
+        }
+    }
+
+    @Override
+    public RenderSnapshot acquireSnapshot() {
+        if (failure != null) {
+            throw new GdxRuntimeException("Simulation thread failed", failure);
+        }
+        synchronized (exchange) {
+            if (readyIsNew) {
+                RenderSnapshot newest = ready;
+                ready = front;
+                front = newest;
+                readyIsNew = false;
+            }
+        }
+        return front;
+    }
+
+    @Override
+    public Object getLock() {
+        return lock;
+    }
+
+    @Override
+    public float getTickTimeMs() {
+        return tickTimeMs;
+    }
+
+    @Override
+    public void dispose() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
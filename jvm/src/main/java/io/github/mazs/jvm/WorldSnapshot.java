@@ -0,0 +1,244 @@
+package io.github.mazs.jvm;
+
+import com.badlogic.gdx.math.Vector2;
+import io.github.mazs.movement.Moving;
+import io.github.mazs.movement.PatrolComponent;
+import io.github.mazs.movement.hpa.NavigationGraphIO;
+import io.github.mazs.units.Pawn;
+import io.github.mazs.units.Tree;
+import io.github.mazs.units.Unit;
+import io.github.mazs.worlds.WalkabilityLayer;
+import io.github.mazs.worlds.WorldBuilder;
+import io.github.mazs.worlds.WorldRts;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary snapshot of a world, so it can be loaded without placing obstacles and generating clusters again.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header:   int magic "MAZS", int version, int tileSize, int widthTiles, int heightTiles, int clusterSize
+ * map:      int wordCount, wordCount * long         walkability bits, see {@link WalkabilityLayer}
+ * statics:  int count, count * int tileX, count * int tileY, count * byte type
+ * dynamics: int count, per unit: byte type, float x, float y, float targetX, float targetY,
+ *           int patrolPointCount, int patrolPointIndex, patrolPointCount * (float x, float y)
+ * graph:    see {@link NavigationGraphIO}
+ * </pre>
+ * Loading maps the file and reads big arrays through buffer views over the mapping, walkability bits are used in place
+ * until the map changes.
+ */
+public class WorldSnapshot {
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x4D415A53; // "MAZS"
+
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    // without patrol points
+    private static final int DYNAMIC_UNIT_BYTES = 1 + 4 * Float.BYTES + 2 * Integer.BYTES;
+
+    private static final byte UNIT_TREE = 1;
+    private static final byte UNIT_PAWN = 2;
+
+    private WorldSnapshot() {
+    }
+
+    public static void save(WorldRts world, File file) throws IOException {
+        List<Unit> statics = new ArrayList<>();
+        List<Pawn> dynamics = new ArrayList<>();
+        world.forEachUnit(unit -> {
+            if (unit instanceof Pawn) {
+                dynamics.add((Pawn) unit);
+            } else if (unit instanceof Tree) {
+                statics.add(unit);
+            } else if (!(unit instanceof Moving)) {
+                throw new IllegalArgumentException("Unit type can't be saved: " + unit.getClass().getSimpleName());
+            }
+        });
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(WorldRts.TILE_SIZE);
+            out.writeInt(world.getWorldWidthTiles());
+            out.writeInt(world.getWorldHeightTiles());
+            out.writeInt(world.getClustersManager().getClusterCellsSize());
+
+            LongBuffer bits = world.getWalkability().getBits();
+            out.writeInt(bits.remaining());
+            while (bits.hasRemaining()) {
+                out.writeLong(bits.get());
+            }
+
+            out.writeInt(statics.size());
+            for (Unit unit : statics) {
+                out.writeInt((int) (unit.getPosition().x / WorldRts.TILE_SIZE));
+            }
+            for (Unit unit : statics) {
+                out.writeInt((int) (unit.getPosition().y / WorldRts.TILE_SIZE));
+            }
+            for (int i = 0; i < statics.size(); i++) {
+                out.writeByte(UNIT_TREE);
+            }
+
+            out.writeInt(dynamics.size());
+            for (Pawn pawn : dynamics) {
+                Vector2 position = pawn.getPosition();
+                Vector2 target = pawn.getMovementComponent().getFinalTargetPosition();
+                PatrolComponent patrol = pawn.getPatrolComponent();
+
+                out.writeByte(UNIT_PAWN);
+                out.writeFloat(position.x);
+                out.writeFloat(position.y);
+                out.writeFloat(target.x);
+                out.writeFloat(target.y);
+                out.writeInt(patrol.getPatrolPoints().size());
+                out.writeInt(patrol.getCurrentPointIndex());
+                for (Vector2 point : patrol.getPatrolPoints()) {
+                    out.writeFloat(point.x);
+                    out.writeFloat(point.y);
+                }
+            }
+
+            NavigationGraphIO.write(world.getClustersManager(), out);
+        }
+    }
+
+    /**
+     * @param headless see {@link WorldRts#WorldRts(boolean)}
+     * @throws IOException when file can't be read, is not a snapshot, is made by another version or for other tiles,
+     *                     or is truncated or corrupt
+     */
+    public static WorldRts load(File file, boolean headless) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // mapping stays valid after channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            return load(buffer, file, headless);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException(file + " is truncated or corrupt", e);
+        }
+    }
+
+    private static WorldRts load(ByteBuffer buffer, File file, boolean headless) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a world snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ", expected " + VERSION);
+        }
+
+        int tileSize = buffer.getInt();
+        int widthTiles = buffer.getInt();
+        int heightTiles = buffer.getInt();
+        int clusterSize = buffer.getInt();
+
+        if (tileSize != WorldRts.TILE_SIZE || clusterSize != WorldRts.CLUSTER_SIZE_TILES
+            || widthTiles < 1 || heightTiles < 1
+            || widthTiles > WorldRts.MAX_WORLD_SIZE_TILES || heightTiles > WorldRts.MAX_WORLD_SIZE_TILES) {
+            throw new IOException("Snapshot is for " + widthTiles + "x" + heightTiles + " tiles of " + tileSize
+                + " px with clusters of " + clusterSize + " tiles, world doesn't match");
+        }
+        WorldRts world = new WorldRts(headless, widthTiles, heightTiles);
+        try {
+            read(buffer, world);
+        } catch (IOException | RuntimeException e) {
+            world.dispose();
+            throw e;
+        }
+        return world;
+    }
+
+    private static void read(ByteBuffer buffer, WorldRts world) throws IOException {
+        int tileSize = WorldRts.TILE_SIZE;
+        int widthTiles = world.getWorldWidthTiles();
+        int heightTiles = world.getWorldHeightTiles();
+
+        int wordCount = buffer.getInt();
+        checkCount(buffer, wordCount, Long.BYTES, "walkability words");
+        world.getWalkability().setBits(slice(buffer, wordCount * Long.BYTES).asLongBuffer());
+
+        int staticCount = buffer.getInt();
+        checkCount(buffer, staticCount, 2 * Integer.BYTES + 1, "static units");
+        IntBuffer tileXs = slice(buffer, staticCount * Integer.BYTES).asIntBuffer();
+        IntBuffer tileYs = slice(buffer, staticCount * Integer.BYTES).asIntBuffer();
+        ByteBuffer types = slice(buffer, staticCount);
+        WorldBuilder builder = world.beginBuild();
+        for (int i = 0; i < staticCount; i++) {
+            if (types.get(i) != UNIT_TREE) {
+                throw new IOException("Unknown static unit type " + types.get(i));
+            }
+            int tileX = tileXs.get(i);
+            int tileY = tileYs.get(i);
+            if (tileX < 0 || tileY < 0 || tileX >= widthTiles || tileY >= heightTiles) {
+                throw new IOException("Static unit at " + tileX + "," + tileY + " is outside of the map");
+            }
+            builder.addTree(tileX * tileSize + tileSize / 2f, tileY * tileSize + tileSize / 2f);
+        }
+
+        int dynamicCount = buffer.getInt();
+        checkCount(buffer, dynamicCount, DYNAMIC_UNIT_BYTES, "dynamic units");
+        for (int i = 0; i < dynamicCount; i++) {
+            byte type = buffer.get();
+            if (type != UNIT_PAWN) {
+                throw new IOException("Unknown dynamic unit type " + type);
+            }
+            Pawn pawn = new Pawn(world, new Vector2(buffer.getFloat(), buffer.getFloat()));
+            float targetX = buffer.getFloat();
+            float targetY = buffer.getFloat();
+
+            int patrolPointCount = buffer.getInt();
+            int patrolPointIndex = buffer.getInt();
+            checkCount(buffer, patrolPointCount, 2 * Float.BYTES, "patrol points");
+            List<Vector2> patrolPoints = new ArrayList<>(patrolPointCount);
+            for (int p = 0; p < patrolPointCount; p++) {
+                patrolPoints.add(new Vector2(buffer.getFloat(), buffer.getFloat()));
+            }
+
+            pawn.getPatrolComponent().setPatrolPoints(patrolPoints, patrolPointIndex);
+            pawn.moveTo(targetX, targetY);
+            builder.addUnit(pawn);
+        }
+        // navigation comes from the snapshot
+        builder.commit(null);
+
+        NavigationGraphIO.read(world.getClustersManager(), buffer);
+    }
+
+    /**
+     * Counts are checked against the rest of the file before anything is allocated for them.
+     */
+    private static void checkCount(ByteBuffer buffer, int count, int bytesEach, String what) throws IOException {
+        if (count < 0 || (long) count * bytesEach > buffer.remaining()) {
+            throw new IOException(count + " " + what + " don't fit into " + buffer.remaining() + " bytes left");
+        }
+    }
+
+    /**
+     * @return view of next length bytes, buffer position is moved past them
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        ((Buffer) slice).limit(length);
+        ((Buffer) buffer).position(buffer.position() + length);
+        return slice;
+    }
+}
@@ -2,17 +2,111 @@ package io.github.mazs.lwjgl3;
 
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.github.czyzby.websocket.CommonWebSockets;
 import io.github.mazs.Main;
+import io.github.mazs.jvm.JvmPlatform;
+import io.github.mazs.jvm.MetricsHttpServer;
+import io.github.mazs.metrics.MetricsOptions;
+import io.github.mazs.net.NetworkOptions;
+
+import java.io.File;
 
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
-        createApplication();
+        CommonWebSockets.initiate();
+        JvmPlatform.installJfr();
+        createApplication(parseNetworkOptions(args), parseValue(args, "--record"), parseValue(args, "--map"),
+            hasFlag(args, "--sim-thread"), parseMetricsOptions(args));
+    }
+
+    private static Lwjgl3Application createApplication(NetworkOptions networkOptions, String replayPath,
+                                                       String mapPath, boolean simulationThread,
+                                                       MetricsOptions metricsOptions) {
+        return new Lwjgl3Application(
+            new Main(new JvmPlatform(), networkOptions, replayPath, mapPath, simulationThread, metricsOptions),
+            getDefaultConfiguration());
+    }
+
+    /**
+     * Joins a lockstep match with --connect=ws://host:port, optionally --input-delay=ticks and --send-interval=ticks,
+     * or an authoritative server with --join=ws://host:port.
+     *
+     * @return null for single player
+     */
+    private static NetworkOptions parseNetworkOptions(String[] args) {
+        NetworkOptions.Mode mode = null;
+        String url = null;
+        int inputDelay = NetworkOptions.DEFAULT_INPUT_DELAY;
+        int sendInterval = NetworkOptions.DEFAULT_SEND_INTERVAL;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator >= 0 ? arg.substring(0, separator) : arg;
+            String value = separator >= 0 ? arg.substring(separator + 1) : null;
+            switch (name) {
+                case "--connect": mode = NetworkOptions.Mode.LOCKSTEP; url = value; break;
+                case "--join": mode = NetworkOptions.Mode.CLIENT; url = value; break;
+                case "--input-delay": inputDelay = Integer.parseInt(value); break;
+                case "--send-interval": sendInterval = Integer.parseInt(value); break;
+                case "--record":
+                case "--map":
+                case "--sim-thread":
+                case "--metrics":
+                case "--metrics-port":
+                case "--metrics-interval":
+                    break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        return mode != null ? new NetworkOptions(mode, url, inputDelay, sendInterval) : null;
+    }
+
+    /**
+     * --metrics=file writes metrics as JSON lines, or CSV for a .csv file, --metrics-port=port serves them on
+     * localhost and --metrics-interval=seconds sets how often they are sampled.
+     *
+     * @return null when neither a file nor a port is given
+     */
+    private static MetricsOptions parseMetricsOptions(String[] args) {
+        String file = parseValue(args, "--metrics");
+        String port = parseValue(args, "--metrics-port");
+        String interval = parseValue(args, "--metrics-interval");
+        if (file == null && port == null) {
+            return null;
+        }
+        return new MetricsOptions(file != null ? new FileHandle(new File(file).getAbsoluteFile()) : null,
+            port != null ? Integer.parseInt(port) : 0,
+            interval != null ? Float.parseFloat(interval) : MetricsOptions.DEFAULT_INTERVAL_SECONDS,
+            MetricsHttpServer::serve);
+    }
+
+    /**
+     * Reads options that aren't about networking: --record=file records commands of the session, to be played back
+     * by the headless runtime, --map=file plays on a map file instead of the generated map.
+     *
+     * @return null when the option is not given
+     */
+    private static String parseValue(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return null;
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new Main(), getDefaultConfiguration());
+    /**
+     * --sim-thread runs the simulation on its own thread in single player.
+     */
+    private static boolean hasFlag(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals(name)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {